@@ -29,6 +29,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // JVM tests run the comms code against RadioSimulator; let android.util.Log calls no-op
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -2,13 +2,19 @@ package com.app.annytunes;
 
 import android.app.Application;
 
+import com.app.annytunes.uart.CodeplugImage;
 import com.app.annytunes.uart.CommsThread;
+import com.app.annytunes.uart.TransferSession;
 import com.app.annytunes.uart.channels.ChannelIo;
 
 public class AnnytunesApp extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+        // Codeplug images live in private storage, one file per radio
+        CodeplugImage.setStoreDir(getFilesDir());
+        // Sessions the last run left unfinished, reported by the transfer screen
+        TransferSession.loadInterrupted();
         // Eagerly start communications thread so getObj() is available early.
         CommsThread.getObj();
         // Ensure ChannelIo is constructed early.
@@ -21,16 +21,15 @@ import java.util.Map;
  * - "index:N" zero-based index among enumeration order
  * - empty/null -> first
  */
-public class AnytoneUart implements AutoCloseable {
+public class AnytoneUart implements RadioTransport, AutoCloseable {
     // Expose constants for CommsThread
     static final byte ACK = 0x06; // was private
     static final int FRAME_HEADER_LEN = 7; // 'W' + addr(4) + size + checksum
     private static final String TAG = "AnytoneUart";
+    private static final boolean TRACE_TX = false; // hex-dumps every frame; allocation heavy
     private static AnytoneUart instance; // singleton instance
     private final UsbManager usbManager;
     private final String selector; // remember selector used
-    // RX buffering for async callback
-    private final Object rxLock = new Object();
     // Protocol state fields restored for CommsThread parsing access
     public boolean framed;
     public int address;
@@ -43,8 +42,6 @@ public class AnytoneUart implements AutoCloseable {
     private UsbSerialDevice port;
     private UsbDeviceConnection connection;
     private UsbDevice device;
-    private byte[] rxBuf = new byte[4096];
-    private int rxCount = 0;
 
     // Constructor sets/overwrites singleton
     public AnytoneUart(Context ctx, String selector) throws IOException {
@@ -109,42 +106,24 @@ public class AnytoneUart implements AutoCloseable {
         return sb.toString();
     }
 
+    @Override
     public boolean isOpen() {
         return port != null;
     }
 
+    /**
+     * Identity of the attached device in selector format ("vendor:product" hex), or null.
+     */
+    @Override
+    public String getDeviceKey() {
+        UsbDevice d = device;
+        return d == null ? null : String.format("%04x:%04x", d.getVendorId(), d.getProductId());
+    }
+
     public void onReceivedData(byte[] data) {
         if (data == null || data.length == 0) return;
-        // Forward to communications thread reply queue
-        CommsThread.getObj();
+        // Single copy: straight into the communications thread's receive ring
         CommsThread.enqueueIncoming(data);
-        // Retain local buffer for any legacy direct reads (optional)
-        synchronized (rxLock) {
-            ensureCapacity(rxCount + data.length);
-            System.arraycopy(data, 0, rxBuf, rxCount, data.length);
-            rxCount += data.length;
-            rxLock.notifyAll();
-        }
-    }
-
-    private void ensureCapacity(int need) {
-        if (need <= rxBuf.length) return;
-        int newCap = Math.max(rxBuf.length * 2, need);
-        byte[] n = new byte[newCap];
-        System.arraycopy(rxBuf, 0, n, 0, rxCount);
-        rxBuf = n;
-    }
-
-    // Legacy desktop-style constructor retained only to signal unsupported usage.
-
-    private int takeFromBuffer(byte[] out, int off, int len) {
-        int n = Math.min(len, rxCount);
-        if (n <= 0) return 0;
-        System.arraycopy(rxBuf, 0, out, off, n);
-        int remain = rxCount - n;
-        if (remain > 0) System.arraycopy(rxBuf, n, rxBuf, 0, remain);
-        rxCount = remain;
-        return n;
     }
 
     private UsbDevice pickDevice(String selector) {
@@ -180,7 +159,8 @@ public class AnytoneUart implements AutoCloseable {
         return ordered.values().iterator().next();
     }
 
-    void restartPort() throws IOException {
+    @Override
+    public void restartPort() throws IOException {
         try {
             if (port != null) port.close();
         } catch (Exception ignored) {
@@ -214,16 +194,14 @@ public class AnytoneUart implements AutoCloseable {
         }
     }
 
+    // Receive bytes live in CommsThread's ring; only the comms thread (its consumer) may flush
     void flushInput() {
-        synchronized (rxLock) {
-            int dropped = rxCount;
-            rxCount = 0;
-            if (dropped > 0) Log.d(TAG, "Flushed " + dropped + " buffered byte(s)");
-        }
+        CommsThread.getObj().discardInbound();
     }
 
-    void writeBytes(byte[] b) throws IOException {
-        Log.d(TAG, "TX  " + toHex(b));
+    @Override
+    public void writeBytes(byte[] b) throws IOException {
+        if (TRACE_TX) Log.d(TAG, "TX  " + toHex(b));
         try {
             port.write(b);
         } catch (Exception e) {
@@ -231,48 +209,6 @@ public class AnytoneUart implements AutoCloseable {
         }
     }
 
-    int blockingRead(byte[] buf, int timeoutMs) throws IOException { // visibility relaxed from private
-        long deadline = System.currentTimeMillis() + Math.max(0, timeoutMs);
-        synchronized (rxLock) {
-            while (rxCount == 0) {
-                long remain = deadline - System.currentTimeMillis();
-                if (remain <= 0) return 0;
-                try {
-                    rxLock.wait(Math.min(100, remain));
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    return 0;
-                }
-            }
-            return takeFromBuffer(buf, 0, buf.length);
-        }
-    }
-
-    byte[] readExact(int len, int timeoutMs) throws IOException { // visibility relaxed from private
-        if (len <= 0) return new byte[0];
-        byte[] out = new byte[len];
-        int off = 0;
-        long deadline = System.currentTimeMillis() + Math.max(0, timeoutMs);
-        synchronized (rxLock) {
-            while (off < len) {
-                if (rxCount == 0) {
-                    long remain = deadline - System.currentTimeMillis();
-                    if (remain <= 0) break;
-                    try {
-                        rxLock.wait(Math.min(100, remain));
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                    continue;
-                }
-                off += takeFromBuffer(out, off, len - off);
-            }
-        }
-        if (off < len) throw new IOException("Timeout reading " + len + " bytes; got " + off);
-        return out;
-    }
-
     public boolean parseFrom(long addr, byte[] resp, int len) {
         if (resp == null || resp.length == 0) throw new IllegalArgumentException("resp vazio");
         if ((resp[0] & 0xFF) == 0x57) { // 'W'
@@ -0,0 +1,115 @@
+package com.app.annytunes.uart;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed-capacity, lock-free single-producer/single-consumer byte ring.
+ * Producer: the USB read callback ({@link #write}). Consumer: the comms thread ({@link #read},
+ * {@link #clear}). Positions are monotonically increasing longs; the producer publishes with a
+ * volatile store after copying, so the consumer never sees bytes before they are written.
+ * A waiting consumer parks and is unparked by the producer instead of polling. The handshake is
+ * Dekker-style: the producer stores head then reads waiter, the consumer stores waiter then
+ * re-reads head, so at least one side sees the other and no wakeup is lost.
+ */
+final class ByteRing {
+    private final byte[] buf;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next write position (producer-owned)
+    private final AtomicLong tail = new AtomicLong(); // next read position (consumer-owned)
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Thread waiter;
+
+    /**
+     * @param capacityPow2 capacity in bytes, rounded up to a power of two
+     */
+    ByteRing(int capacityPow2) {
+        int cap = Integer.highestOneBit(Math.max(2, capacityPow2 - 1)) << 1;
+        buf = new byte[cap];
+        mask = cap - 1;
+    }
+
+    int capacity() {
+        return buf.length;
+    }
+
+    int available() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /**
+     * Bytes discarded because the consumer fell a full ring behind.
+     */
+    long droppedBytes() {
+        return dropped.get();
+    }
+
+    /**
+     * Producer side. Copies as much as fits; the rest is dropped and counted, since the USB
+     * callback must never block.
+     */
+    int write(byte[] src, int off, int len) {
+        long h = head.get();
+        int free = buf.length - (int) (h - tail.get());
+        int n = Math.min(len, free);
+        if (n < len) dropped.addAndGet(len - n);
+        if (n > 0) {
+            int pos = (int) (h & mask);
+            int first = Math.min(n, buf.length - pos);
+            System.arraycopy(src, off, buf, pos, first);
+            if (n > first) System.arraycopy(src, off + first, buf, 0, n - first);
+            head.set(h + n); // full fence: must not reorder with the waiter read below
+        }
+        Thread w = waiter;
+        if (w != null) LockSupport.unpark(w);
+        return n;
+    }
+
+    /**
+     * Consumer side. Copies up to {@code len} available bytes without blocking.
+     */
+    int poll(byte[] dst, int off, int len) {
+        long t = tail.get();
+        int n = Math.min(len, (int) (head.get() - t));
+        if (n <= 0) return 0;
+        int pos = (int) (t & mask);
+        int first = Math.min(n, buf.length - pos);
+        System.arraycopy(buf, pos, dst, off, first);
+        if (n > first) System.arraycopy(buf, 0, dst, off + first, n - first);
+        tail.lazySet(t + n);
+        return n;
+    }
+
+    /**
+     * Consumer side. Parks until at least one byte is available or the deadline passes.
+     *
+     * @return false on timeout or interrupt
+     */
+    boolean await(long deadlineNanos) {
+        if (available() > 0) return true;
+        waiter = Thread.currentThread();
+        try {
+            // Re-check after publishing waiter: a write that missed it has already moved head
+            while (available() == 0) {
+                long remain = deadlineNanos - System.nanoTime();
+                if (remain <= 0 || Thread.currentThread().isInterrupted()) return false;
+                LockSupport.parkNanos(this, remain);
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+
+    /**
+     * Consumer side. Discards everything currently buffered.
+     *
+     * @return number of bytes discarded
+     */
+    int clear() {
+        long h = head.get();
+        int n = (int) (h - tail.get());
+        tail.lazySet(h);
+        return n;
+    }
+}
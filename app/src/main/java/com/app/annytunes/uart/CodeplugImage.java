@@ -0,0 +1,305 @@
+package com.app.annytunes.uart;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Persistent local copy of one radio's codeplug memory, kept as aligned 128-byte blocks with a
+ * 64-bit content fingerprint each (blocks only partly known track validity per 16 bytes). CommsThread fills it from every completed read and write; on the
+ * next session a span whose blocks are all cached is confirmed by reading a few sentinel
+ * blocks, and only spans whose sentinels differ are read in full.
+ * <p>
+ * Written bytes are {@link #stage staged}: they serve delta uploads right away but are only
+ * persisted once the radio acknowledged the commit ({@link #commitStaged}); a session that ends
+ * without one drops them ({@link #discardStaged}), so the file never claims uncommitted data.
+ * <p>
+ * Sentinels are a sample: an edit made on the radio itself that touches none of them goes
+ * unnoticed until {@link #clear()} or a refresh with the cache disabled, which is why serving
+ * reads from the image is opt-in (CommsThread.setImageCacheEnabled). Images are keyed by
+ * handshake banner, USB vendor:product and a fingerprint of the radio's ID block, one file per
+ * key under the directory given to {@link #setStoreDir}. With the cache off CommsThread keeps a
+ * {@link #session} image instead, which lives in memory for one connection only.
+ */
+public final class CodeplugImage {
+    static final int BLOCK = 0x80;
+    private static final int GRANULE = 0x10;
+    private static final int FULL = (1 << (BLOCK / GRANULE)) - 1;
+    private static final String TAG = "CodeplugImage";
+    private static final int MAGIC = 0x41544350; // "ATCP"
+    private static final int VERSION = 1;
+    private static volatile File storeDir;
+
+    private final File file;
+    private final String key;
+    private final Map<Long, byte[]> blocks = new HashMap<>();
+    private final Map<Long, Integer> masks = new HashMap<>();
+    private final Map<Long, Long> fingerprints = new HashMap<>();
+    private final java.util.Set<Long> staged = new java.util.HashSet<>(); // written, commit not yet ACKed
+    private boolean dirty;
+
+    private CodeplugImage(File file, String key) {
+        this.file = file;
+        this.key = key;
+    }
+
+    /**
+     * Directory holding image files (normally Context.getFilesDir()); null disables caching.
+     */
+    public static void setStoreDir(File dir) {
+        storeDir = dir;
+    }
+
+    static File storeDir() {
+        return storeDir;
+    }
+
+    /**
+     * Load the image stored for {@code radioKey}, or start an empty one; null when no store
+     * directory is configured.
+     */
+    static CodeplugImage open(String radioKey) {
+        File dir = storeDir;
+        if (dir == null || radioKey == null) return null;
+        byte[] kb = radioKey.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        String name = "codeplug-" + Long.toHexString(fingerprint(kb, 0, kb.length)) + ".img";
+        CodeplugImage img = new CodeplugImage(new File(dir, name), radioKey);
+        if (img.file.exists()) {
+            try {
+                img.load();
+            } catch (IOException e) {
+                Log.w(TAG, "Discarding unreadable image " + img.file + ": " + e.getMessage());
+                img.clear();
+            }
+        }
+        return img;
+    }
+
+    /**
+     * An empty image that is never loaded or saved, for one connection.
+     */
+    static CodeplugImage session(String key) {
+        return new CodeplugImage(null, key);
+    }
+
+    /**
+     * True when the image is backed by a file.
+     */
+    boolean isPersistent() {
+        return file != null;
+    }
+
+    public static long fingerprint(byte[] b, int off, int len) {
+        long h = 0xcbf29ce484222325L; // FNV-1a 64
+        for (int i = off; i < off + len; i++) {
+            h ^= b[i] & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public synchronized int blockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * True when every granule overlapping [addr, addr+len) is cached.
+     */
+    public synchronized boolean covers(long addr, int len) {
+        for (int i = 0; i < len; ) {
+            long a = addr + i;
+            int bo = (int) (a % BLOCK);
+            int n = Math.min(len - i, BLOCK - bo);
+            Integer m = masks.get(a / BLOCK);
+            int need = granuleMask(bo, n, false);
+            if (m == null || (m & need) != need) return false;
+            i += n;
+        }
+        return true;
+    }
+
+    /**
+     * Copy cached bytes out; the range must be {@link #covers covered}.
+     */
+    public synchronized void copyOut(long addr, byte[] dst, int off, int len) {
+        for (int i = 0; i < len; ) {
+            long a = addr + i;
+            int bo = (int) (a % BLOCK);
+            int n = Math.min(len - i, BLOCK - bo);
+            System.arraycopy(blocks.get(a / BLOCK), bo, dst, off + i, n);
+            i += n;
+        }
+    }
+
+    /**
+     * Compare freshly read bytes with the cache: complete blocks by fingerprint, the rest byte-wise.
+     */
+    public synchronized boolean matches(long addr, byte[] src, int off, int len) {
+        if (!covers(addr, len)) return false;
+        for (int i = 0; i < len; ) {
+            long a = addr + i;
+            long bi = a / BLOCK;
+            int bo = (int) (a % BLOCK);
+            int n = Math.min(len - i, BLOCK - bo);
+            Long fp = fingerprints.get(bi);
+            if (n == BLOCK && fp != null) {
+                if (fingerprint(src, off + i, n) != fp) return false;
+            } else {
+                byte[] blk = blocks.get(bi);
+                for (int k = 0; k < n; k++) if (blk[bo + k] != src[off + i + k]) return false;
+            }
+            i += n;
+        }
+        return true;
+    }
+
+    /**
+     * Record bytes known to be on the radio. Only whole granules are marked valid, so a range
+     * that starts or ends mid-granule leaves the edges to be re-read.
+     */
+    public synchronized void store(long addr, byte[] src, int off, int len) {
+        for (int i = 0; i < len; ) {
+            long a = addr + i;
+            long bi = a / BLOCK;
+            int bo = (int) (a % BLOCK);
+            int n = Math.min(len - i, BLOCK - bo);
+            int add = granuleMask(bo, n, true);
+            byte[] blk = blocks.get(bi);
+            if (blk == null) {
+                blk = new byte[BLOCK];
+                blocks.put(bi, blk);
+                masks.put(bi, 0);
+            }
+            System.arraycopy(src, off + i, blk, bo, n);
+            int m = masks.get(bi) | add;
+            masks.put(bi, m);
+            if (m == FULL) fingerprints.put(bi, fingerprint(blk, 0, BLOCK));
+            else fingerprints.remove(bi);
+            dirty = true;
+            i += n;
+        }
+    }
+
+    /**
+     * Record bytes written to the radio but not committed yet: visible like stored bytes, but
+     * kept out of {@link #save} until {@link #commitStaged}.
+     */
+    public synchronized void stage(long addr, byte[] src, int off, int len) {
+        store(addr, src, off, len);
+        for (long b = addr / BLOCK; b <= (addr + len - 1) / BLOCK; b++) staged.add(b);
+    }
+
+    /**
+     * The radio acknowledged the commit: staged bytes become part of the persisted image.
+     */
+    public synchronized void commitStaged() {
+        if (staged.isEmpty()) return;
+        staged.clear();
+        dirty = true;
+    }
+
+    /**
+     * The session ended without an acknowledged commit: forget every staged block, since the
+     * radio may or may not hold those bytes.
+     */
+    public synchronized void discardStaged() {
+        for (Long b : staged) {
+            blocks.remove(b);
+            masks.remove(b);
+            fingerprints.remove(b);
+        }
+        staged.clear();
+    }
+
+    public synchronized void invalidate(long addr, int len) {
+        for (long b = addr / BLOCK; b <= (addr + len - 1) / BLOCK; b++) {
+            if (blocks.remove(b) != null) dirty = true;
+            staged.remove(b);
+            masks.remove(b);
+            fingerprints.remove(b);
+        }
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        masks.clear();
+        fingerprints.clear();
+        staged.clear();
+        dirty = true;
+    }
+
+    /**
+     * Granules touched by [bo, bo+n) within a block; {@code inner} keeps only those fully inside.
+     */
+    private static int granuleMask(int bo, int n, boolean inner) {
+        int first = inner ? (bo + GRANULE - 1) / GRANULE : bo / GRANULE;
+        int last = inner ? (bo + n) / GRANULE : (bo + n + GRANULE - 1) / GRANULE;
+        int m = 0;
+        for (int g = first; g < last; g++) m |= 1 << g;
+        return m;
+    }
+
+    /**
+     * Persist if anything changed since the last save (write to a temp file, then rename).
+     * Staged blocks are left out. A session image has nothing to save to.
+     */
+    public synchronized void save() {
+        if (!dirty || file == null) return;
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(blocks.size() - staged.size());
+            for (Map.Entry<Long, byte[]> e : blocks.entrySet()) {
+                if (staged.contains(e.getKey())) continue;
+                out.writeLong(e.getKey());
+                out.writeByte(masks.get(e.getKey()));
+                out.writeLong(fingerprint(e.getValue(), 0, BLOCK));
+                out.write(e.getValue());
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Image save failed: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Image rename failed: " + file);
+            tmp.delete();
+            return;
+        }
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("bad header");
+            if (!key.equals(in.readUTF())) throw new IOException("key mismatch");
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long bi = in.readLong();
+                int mask = in.readUnsignedByte();
+                long fp = in.readLong();
+                byte[] blk = new byte[BLOCK];
+                in.readFully(blk);
+                if (fingerprint(blk, 0, BLOCK) != fp) continue; // corrupted block: drop, will be re-read
+                blocks.put(bi, blk);
+                masks.put(bi, mask);
+                if (mask == FULL) fingerprints.put(bi, fp);
+            }
+        }
+    }
+}
@@ -4,12 +4,13 @@ import android.util.Log;
 
 import com.app.annytunes.uart.channels.Channel;
 import com.app.annytunes.uart.channels.ChannelIo;
+import com.app.annytunes.uart.channels.ChannelView;
 import com.app.annytunes.uart.zonelistchannels.ZoneChannelsIo;
+import com.app.annytunes.uart.zonelistchannels.ZoneMembership;
 import com.app.annytunes.uart.zones.Zone;
 import com.app.annytunes.uart.zones.ZoneIo;
 import com.app.annytunes.ui.ChannelTransferActivity;
 import com.app.annytunes.ui.MainActivity;
-import com.app.annytunes.ui.ZoneActivity;
 
 import java.io.IOException;
 import java.util.List;
@@ -27,24 +28,62 @@ import java.util.concurrent.atomic.AtomicReference;
 public class CommsThread extends Thread {
 
 
-    private final java.util.concurrent.atomic.AtomicInteger zoneSoFar = new java.util.concurrent.atomic.AtomicInteger(0);
-
-
-    private static final class Task {
+    private static final class Task extends TaskLanes.Entry {
         final Kind kind;
         final long addr;
         final byte[] data;
         final int recs;
         final int recSize;
         final CompletableFuture<Object> future;
+        final ReadPlanner plan;
+        TaskLanes.Lane lane = TaskLanes.Lane.WRITE;
+        List<ReadPlanner.Span> spans; // READ_PLAN progress, kept across yields
+        int nextSpan;
+        TransferSession session;      // null for standalone commands
+        int resumeOffset;             // WRITE progress: bytes acknowledged before a suspend
+        boolean acceptIncomplete;     // COMMIT_WRITE: commit despite suspended or failed writes
 
         Task(Kind kind, long addr, byte[] data, int recs, int recSize, CompletableFuture<Object> future) {
+            super(kind == Kind.WRITE || kind == Kind.ZONE_WRITE || kind == Kind.ERASE_BLOCK, footprint(kind, addr, data));
             this.kind = kind;
             this.addr = addr;
             this.data = data;
             this.recs = recs;
             this.recSize = recSize;
             this.future = future;
+            this.plan = null;
+        }
+
+        Task(ReadPlanner plan) {
+            this(plan, plan.plan());
+        }
+
+        // Spans are planned up front so the lanes know which writes the read must wait for
+        private Task(ReadPlanner plan, List<ReadPlanner.Span> spans) {
+            super(false, footprint(spans));
+            this.kind = Kind.READ_PLAN;
+            this.addr = 0L;
+            this.data = null;
+            this.recs = 0;
+            this.recSize = 0;
+            this.future = null;
+            this.plan = plan;
+            this.spans = spans;
+        }
+
+        private static long[] footprint(Kind kind, long addr, byte[] data) {
+            if (kind == Kind.ERASE_BLOCK) return new long[]{addr, addr + ERASE_CHUNK};
+            if (data == null || (kind != Kind.WRITE && kind != Kind.ZONE_WRITE)) return new long[0];
+            return new long[]{addr, addr + data.length};
+        }
+
+        private static long[] footprint(List<ReadPlanner.Span> spans) {
+            long[] r = new long[spans.size() * 2];
+            for (int i = 0; i < spans.size(); i++) {
+                r[2 * i] = spans.get(i).addr;
+                r[2 * i + 1] = spans.get(i).addr + spans.get(i).length();
+            }
+            return r;
         }
     }
 
@@ -62,15 +101,31 @@ public class CommsThread extends Thread {
     // Static / constants
     // =====================================================================================
     private static final String TAG = "CommsThread";
+    private static final int DEFAULT_READ_WINDOW = 4;        // outstanding 'R' frames in pipelined mode
+    private static final int MAX_PIPELINE_FAULTS = 3;        // consecutive faults before stop-and-wait only
+    private static final int PIPELINE_DRAIN_QUIET_MS = 60;   // line must be silent this long after a fault
+    private static final boolean TRACE_FRAMES = false;       // per-frame logs allocate; keep off outside bring-up
+    private static final int INBOUND_CAPACITY = 64 * 1024;   // far above any read window's worth of replies
+    private static final int SHRINK_AFTER_FAULTS = 2;        // size faults tolerated before a frame size steps down
+    private static final int DEFAULT_WRITE_WINDOW = 8;       // unacknowledged 'W' frames allowed on the wire
+    private static final int WRITE_ACK_TIMEOUT_MS = 5000;
+    private static final int ERASE_CHUNK = 64;               // bytes cleared by one erase command
+    private static final int SENTINEL_BLOCKS = 3;            // image blocks re-read to confirm a cached span
+    private static final long IMAGE_SAVE_INTERVAL_MS = 30_000; // between image saves during reads
+    private static final long RADIO_ID_ADDR = 0x02580000L;   // ASSUMPTION: radio ID list (DMR ID + name) start
+    private static final int RADIO_ID_LEN = 0x20;
+    private static final int MAX_WRITE_RETRIES = 2;          // go-back attempts per frame before giving up
+    private static final int MAX_READ_RETRIES = 2;           // stop-and-wait re-reads of a bad frame
     private static CommsThread instance;
 
     // =====================================================================================
     // Fields
     // =====================================================================================
     private final AnytoneUart at;                      // attached UART
-    private final BlockingQueue<Task> tasks = new LinkedBlockingQueue<>();
+    private final TaskLanes<Task> tasks = new TaskLanes<>();
     private final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
     private final AtomicReference<Throwable> firstError = new AtomicReference<>(null);
+    private final AtomicReference<Throwable> writeFailure = new AtomicReference<>(null); // since the last commit/exit
     private final AtomicInteger inFlight = new AtomicInteger(0);
     private final AtomicInteger outstanding = new AtomicInteger(0);
     private final Object drainLock = new Object();
@@ -79,25 +134,39 @@ public class CommsThread extends Thread {
     private volatile boolean writesSubmitted = false;
 
     private int totalExpected;
+    private volatile FrameSizes frameSizes = FrameSizes.defaults();
+    private int readSizeFaults;
+    private int writeSizeFaults;
+    private int sessionSizeFaults; // since PC mode was entered
+    private volatile int readWindow = DEFAULT_READ_WINDOW;
+    private int readPipelineFaults;
+    private volatile int writeWindow = DEFAULT_WRITE_WINDOW;
+    private int writePipelineFaults;
+    // Write throughput since the last commit (bytes acknowledged / wall time spent in write tasks)
+    private final java.util.concurrent.atomic.AtomicLong writeBytesTotal = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong writeNanosTotal = new java.util.concurrent.atomic.AtomicLong();
     private final AtomicInteger totalSoFar = new AtomicInteger(0); // (progress not currently used)
 
-    // Frame parsing state (moved from UART parse)
-    private boolean framed;
-    private int frameAddress;
-    private int frameSize;
-    private byte[] frameData;
-    private int frameChecksum;
-    private int frameCrc;
-    private boolean frameChecksumOk;
-    private boolean frameAckPresent;
-
-    // Inbound reply queue (RTOS-like): chunks pushed by UART; readExact polls with timeout
-    private final BlockingQueue<byte[]> inboundQueue = new LinkedBlockingQueue<>();
-    private byte[] pendingChunk;
-    private int pendingPos;
-    private final java.util.concurrent.atomic.AtomicInteger zoneChanSoFar = new java.util.concurrent.atomic.AtomicInteger(0);
-    private int zoneTotalExpected;
-    private int zoneChanTotalExpected;
+    // Frame encode/decode buffers, reused for every frame (comms thread only)
+    private final FrameCodec codec = new FrameCodec();
+    private final byte[] ackByte = new byte[1];
+    private byte[] spanBuf = new byte[ReadPlanner.DEFAULT_MAX_SPAN];
+
+    private volatile RadioTransport transport; // null -> the AnytoneUart singleton
+    private boolean servingUrgent; // comms thread only: an interactive task is running mid-transfer
+    private volatile int connection; // entries into PC mode; see getConnection
+    // Tasks of suspended sessions, in the order they should resume; guarded by itself
+    private final java.util.LinkedHashMap<Long, List<Task>> suspended = new java.util.LinkedHashMap<>();
+    private final UiDispatcher ui = new UiDispatcher(this::keepUndelivered);
+    // Codeplug image cache state; owned by the comms thread
+    private volatile CodeplugImage image;
+    private boolean imageUnavailable;
+    private volatile boolean imageCacheEnabled; // opt-in: sentinels can miss on-radio edits
+    private long imageSavedAt;
+    private byte[] banner;
+    private final byte[] sentinelBuf = new byte[CodeplugImage.BLOCK];
+    // Inbound reply ring: USB callback produces, this thread consumes (readExact parks on it)
+    private final ByteRing inbound = new ByteRing(INBOUND_CAPACITY);
 
     // Small helper to format hex for debug (truncated if too long)
     private static String bytesHex(byte[] arr, int max) {
@@ -134,83 +203,211 @@ public class CommsThread extends Thread {
 
 
 
+    /**
+     * Route frames through {@code t} instead of the USB UART (e.g. the unit tests'
+     * RadioSimulator); null restores the AnytoneUart singleton.
+     */
+    public void setTransport(RadioTransport t) {
+        transport = t;
+    }
+
+    private RadioTransport transport() {
+        RadioTransport t = transport;
+        return t != null ? t : AnytoneUart.getObj();
+    }
+
     // Inbound entry point from UART async callback
     public static void enqueueIncoming(byte[] data) {
         if (data == null || data.length == 0) return;
         CommsThread ct = getObj();
-        // push into inbound queue for readExact to consume
-        ct.inboundQueue.offer(data);
+        // copy straight into the ring for readExact to consume
+        int n = ct.inbound.write(data, 0, data.length);
+        if (n < data.length) Log.w(TAG, "Inbound ring full; dropped " + (data.length - n) + " byte(s)");
+    }
+
+    // Discard stale reply bytes; consumer-side, so only call on this thread
+    void discardInbound() {
+        int dropped = inbound.clear();
+        if (dropped > 0) Log.d(TAG, "Flushed " + dropped + " buffered byte(s)");
     }
 
     // =====================================================================================
     // Submission APIs
     // =====================================================================================
     public void submitWrite(long addr, byte[] data) throws InterruptedException {
+        submitWrite(addr, data, null);
+    }
+
+    public void submitWrite(long addr, byte[] data, TransferSession session) throws InterruptedException {
         ensureAccepting();
         writesSubmitted = true;
-        outstanding.incrementAndGet();
-        tasks.put(new Task(Kind.WRITE, addr, data, 0, 0, null));
+        Task t = new Task(Kind.WRITE, addr, data, 0, 0, null);
+        t.session = session;
+        enqueue(TaskLanes.Lane.WRITE, t);
+    }
+
+    /**
+     * Small user-triggered write (e.g. one edited channel). Runs ahead of queued reads and
+     * unrelated bulk work and may cut in between frames of a running transfer, so keep it to a
+     * few records; it still waits for earlier queued writes to the same bytes. The future
+     * completes once the radio acknowledged it, or exceptionally if the write failed.
+     */
+    public CompletableFuture<Object> submitInteractiveWrite(long addr, byte[] data) throws InterruptedException {
+        ensureAccepting();
+        writesSubmitted = true;
+        CompletableFuture<Object> fut = new CompletableFuture<>();
+        enqueue(TaskLanes.Lane.INTERACTIVE, new Task(Kind.WRITE, addr, data, 0, 0, fut));
+        return fut;
     }
 
     public void submitWriteZoneActivity(long addr, byte[] data) throws InterruptedException {
         ensureAccepting();
         writesSubmitted = true;
-        outstanding.incrementAndGet();
-        tasks.put(new Task(Kind.ZONE_WRITE, addr, data, 0, 0, null));
+        enqueue(TaskLanes.Lane.WRITE, new Task(Kind.ZONE_WRITE, addr, data, 0, 0, null));
     }
     public void submitReadDecode(long addr, int recs, int recSize) throws InterruptedException {
-        ensureAccepting();
-        outstanding.incrementAndGet();
-        totalExpected += recs;
-        tasks.put(new Task(Kind.READ_DECODE, addr, null, recs, recSize, null));
+        submitPlan(new ReadPlanner().add(addr, recs * recSize, channelSink(recs, recSize)));
     }
 
-    public void submitPoison() throws InterruptedException {
-        tasks.put(new Task(Kind.POISON, 0L, null, -1, -1, null));
+    /**
+     * Queue a coalesced read: every span is read once and sliced back to its requests' sinks
+     * on the comms thread.
+     */
+    public void submitPlan(ReadPlanner plan) throws InterruptedException {
+        submitPlan(plan, null);
     }
 
-    public void submitZoneRead(int zoneIndex1Based) throws InterruptedException {
-        ensureAccepting();
-        long addr = ZoneIo.addressOfZone(zoneIndex1Based);
-        outstanding.incrementAndGet();
-        tasks.put(new Task(Kind.ZONE_READ, addr, null, 1, ZoneIo.DEFAULT_ZONE_RECORD_SIZE, null));
-        if (ChannelIo.DEBUG)
-            android.util.Log.d(TAG, "[zone] start read index=" + zoneIndex1Based + " addr=0x" + String.format("%08X", (int) addr));
+    public void submitPlan(ReadPlanner plan, TransferSession session) throws InterruptedException {
+        submitPlan(plan, TaskLanes.Lane.CHANNEL_READ, session);
     }
 
-    public void submitZoneChannels(int zoneIndex1Based) throws InterruptedException {
+    private void submitPlan(ReadPlanner plan, TaskLanes.Lane lane, TransferSession session) throws InterruptedException {
         ensureAccepting();
-        long addr = ZoneChannelsIo.addressOf(zoneIndex1Based);
-        outstanding.incrementAndGet();
-        zoneChanTotalExpected++;
-        tasks.put(new Task(Kind.ZONE_CHANNELS_READ, addr, null, 1, ZoneChannelsIo.RECORD_SIZE, null));
-        if (ChannelIo.DEBUG)
-            android.util.Log.d(TAG, "[zone-ch] start read index=" + zoneIndex1Based + " addr=0x" + String.format("%08X", (int) addr));
+        if (plan == null || plan.isEmpty()) return;
+        Task t = new Task(plan);
+        t.session = session;
+        enqueue(lane, t);
+    }
+
+    /**
+     * Sink decoding {@code recs} channel records of {@code recSize} bytes and delivering them to
+     * the channel UI; registers the records towards download progress.
+     */
+    public ReadPlanner.Sink channelSink(int recs, int recSize) {
+        return channelSink(recs, recSize, 0, 0);
     }
 
+    /**
+     * Same, for a read that skipped slots known to be empty: {@code emptyBefore} empty slots are
+     * delivered ahead of the {@code recs} records read and {@code emptyAfter} after them, so the
+     * UI still sees every slot in order.
+     */
+    public ReadPlanner.Sink channelSink(int recs, int recSize, int emptyBefore, int emptyAfter) {
+        totalExpected += emptyBefore + recs + emptyAfter;
+        return (addr, buf, off, len) -> dispatchChannels(buf, off, recs, recSize, emptyBefore, emptyAfter);
+    }
+
+    /**
+     * Queue a load of zones {@code 1..total}: the name table as one coalesced plan, then the
+     * membership blocks of the zones that have a name (empty slots cost no read). Zones reach
+     * ZoneActivity in index order with their channels attached.
+     */
+    public void submitZoneLoad(int total) throws InterruptedException {
+        new ZoneLoad(total, true).start();
+    }
+
+    /**
+     * Same load, but only fills {@link ZoneMembership} (marked loaded at the end) without
+     * delivering zones to the UI; for callers that just need the membership index.
+     */
+    public void submitZoneMembershipLoad(int total) throws InterruptedException {
+        new ZoneLoad(total, false).start();
+    }
+
+    /**
+     * Number of 'R' frames kept in flight by pipelined reads; 1 selects plain stop-and-wait.
+     * Setting a window also clears any fault-triggered fallback from previous transfers.
+     */
+    public void setReadWindow(int window) {
+        readWindow = Math.max(1, window);
+        readPipelineFaults = 0;
+    }
+
+    public int getReadWindow() {
+        return readWindow;
+    }
+
+    /**
+     * Number of 'W' frames streamed ahead of their ACKs; 1 selects plain stop-and-wait.
+     */
+    public void setWriteWindow(int window) {
+        writeWindow = Math.max(1, window);
+        writePipelineFaults = 0;
+    }
+
+    public int getWriteWindow() {
+        return writeWindow;
+    }
+
+    public int getReadFrameSize() {
+        return frameSizes.read;
+    }
+
+    public int getWriteFrameSize() {
+        return frameSizes.write;
+    }
 
+    /**
+     * Measured write throughput in bytes per second across write tasks since the last commit.
+     */
+    public double getWriteThroughputBps() {
+        long nanos = writeNanosTotal.get();
+        return nanos <= 0 ? 0.0 : writeBytesTotal.get() * 1e9 / nanos;
+    }
 
-    // Synchronous protocol commands (queued)
+    public void submitPoison() throws InterruptedException {
+        tasks.put(TaskLanes.Lane.FINAL, new Task(Kind.POISON, 0L, null, -1, -1, null));
+    }
+
+    // Synchronous protocol commands (queued). Port restarts wait for the running task; handshake
+    // and erase are interactive; exit and commit queue behind pending writes.
     public void enterPcMode() throws IOException, InterruptedException {
-        awaitSync(Kind.ENTER_PC_MODE);
+        awaitSync(Kind.ENTER_PC_MODE, TaskLanes.Lane.CONTROL);
     }
 
     public void handshake() throws IOException, InterruptedException {
-        awaitSync(Kind.HANDSHAKE);
+        awaitSync(Kind.HANDSHAKE, TaskLanes.Lane.INTERACTIVE);
     }
 
     public void exitPcMode() throws IOException, InterruptedException {
-        awaitSync(Kind.EXIT_PC_MODE);
+        awaitSync(Kind.EXIT_PC_MODE, TaskLanes.Lane.WRITE);
     }
 
 
+    /**
+     * Commit the writes queued so far. Refused with an IOException while a write is parked in a
+     * suspended session or has failed since the last commit, so a half-written upload is not
+     * made permanent; see {@link #describeIncompleteUpload()}.
+     */
     public void commitWriteSync() throws IOException, InterruptedException {
-        awaitSync(Kind.COMMIT_WRITE);
+        commitWriteSync(false);
+    }
+
+    /**
+     * As {@link #commitWriteSync()}; with {@code acceptIncomplete} the commit goes ahead anyway
+     * (the user confirmed) and suspended uploads are cancelled, since nothing can follow END.
+     */
+    public void commitWriteSync(boolean acceptIncomplete) throws IOException, InterruptedException {
+        CompletableFuture<Object> fut = new CompletableFuture<>();
+        Task t = new Task(Kind.COMMIT_WRITE, 0L, null, 0, 0, fut);
+        t.acceptIncomplete = acceptIncomplete;
+        enqueue(TaskLanes.Lane.WRITE, t);
+        awaitFuture(fut);
     }
 
     public boolean eraseBlock(long addr) throws IOException, InterruptedException {
         CompletableFuture<Object> fut = new CompletableFuture<>();
-        tasks.put(new Task(Kind.ERASE_BLOCK, addr, null, 0, 0, fut));
+        enqueue(TaskLanes.Lane.INTERACTIVE, new Task(Kind.ERASE_BLOCK, addr, null, 0, 0, fut));
         Object v = awaitFuture(fut);
         return v instanceof Boolean && (Boolean) v;
     }
@@ -226,6 +423,81 @@ public class CommsThread extends Thread {
         return firstError.get();
     }
 
+    /**
+     * Why a commit now would leave a partly written upload on the radio, or null if nothing
+     * written since the last commit is missing.
+     */
+    public String describeIncompleteUpload() {
+        synchronized (suspended) {
+            for (List<Task> l : suspended.values())
+                for (Task t : l)
+                    if (t.writes) return t.session.getLabel() + " is suspended at 0x"
+                            + String.format("%08X", t.session.getCheckpointAddress());
+        }
+        Throwable f = writeFailure.get();
+        return f != null ? "a write failed: " + f.getMessage() : null;
+    }
+
+    // =====================================================================================
+    // Transfer sessions
+    // =====================================================================================
+
+    /**
+     * New session to pass to the submit methods; see {@link TransferSession}.
+     */
+    public TransferSession beginSession(String label) {
+        return new TransferSession(label);
+    }
+
+    /**
+     * Re-queue a suspended session's parked tasks ahead of newer work in their lanes. Call after
+     * the link is back (e.g. enterPcMode, which restarts the port).
+     */
+    public void resume(TransferSession s) {
+        List<Task> parked;
+        synchronized (suspended) {
+            parked = suspended.remove(s.getId());
+        }
+        if (parked == null) return;
+        s.setState(TransferSession.State.ACTIVE, null);
+        Log.i(TAG, "[session] resuming " + s + " at 0x" + String.format("%08X", s.getCheckpointAddress()));
+        for (int i = parked.size() - 1; i >= 0; i--) {
+            Task t = parked.get(i);
+            outstanding.incrementAndGet();
+            tasks.putFirst(t.lane, t);
+        }
+    }
+
+    /**
+     * Resume every suspended session, oldest first.
+     */
+    public void resumeSuspended() {
+        List<TransferSession> all = new java.util.ArrayList<>();
+        synchronized (suspended) {
+            for (List<Task> l : suspended.values()) all.add(l.get(0).session);
+        }
+        for (TransferSession s : all) resume(s);
+    }
+
+    public boolean hasSuspendedSessions() {
+        synchronized (suspended) {
+            return !suspended.isEmpty();
+        }
+    }
+
+    // Called by TransferSession.cancel(): parked tasks are dropped right away
+    void dropSuspended(TransferSession s) {
+        List<Task> parked;
+        synchronized (suspended) {
+            parked = suspended.remove(s.getId());
+        }
+        if (parked == null) return;
+        for (Task t : parked) {
+            finishCancelled(t);
+            tasks.done(t);
+        }
+    }
+
     // =====================================================================================
     // Finish lifecycle
     // =====================================================================================
@@ -235,7 +507,7 @@ public class CommsThread extends Thread {
         if (drained && writesSubmitted) {
             // queue commit as a task
             CompletableFuture<Object> fut = new CompletableFuture<>();
-            tasks.put(new Task(Kind.COMMIT_WRITE, 0L, null, 0, 0, fut));
+            enqueue(TaskLanes.Lane.WRITE, new Task(Kind.COMMIT_WRITE, 0L, null, 0, 0, fut));
             try {
                 awaitFuture(fut);
             } catch (IOException ioe) {
@@ -244,7 +516,7 @@ public class CommsThread extends Thread {
         } else if (writesSubmitted && !drained) {
             firstError.compareAndSet(null, new IOException("Timeout waiting for writes to drain"));
         }
-        tasks.put(new Task(Kind.POISON, 0L, null, -1, -1, null));
+        tasks.put(TaskLanes.Lane.FINAL, new Task(Kind.POISON, 0L, null, -1, -1, null));
         joinWithTimeout(timeoutMs);
         propagateFirstError();
     }
@@ -260,6 +532,8 @@ public class CommsThread extends Thread {
             while (true) {
                 Task t = tasks.take();
                 if (t.kind == Kind.POISON) {
+                    CodeplugImage img = image;
+                    if (img != null) saveImage(img);
 
                     // Always signal end-of-stream on results queue
                     try {
@@ -270,65 +544,7 @@ public class CommsThread extends Thread {
                     break;
                 }
 
-                inFlight.incrementAndGet();
-                try {
-                    switch (t.kind) {
-                        case WRITE:
-                            doWrite(t.addr, t.data);
-                            completeIfFuture(t, Boolean.TRUE);
-                            break;
-                        case ZONE_WRITE:
-                            doZoneWrite(t.addr, t.data);
-                            completeIfFuture(t, Boolean.TRUE);
-                            break;
-                        case READ_DECODE:
-                            doReadDecode(t.addr, t.recs, t.recSize);
-                            completeIfFuture(t, null);
-                            break;
-                        case ENTER_PC_MODE:
-                            doEnterPcMode();
-                            completeIfFuture(t, Boolean.TRUE);
-                            break;
-                        case HANDSHAKE:
-                            doHandshake();
-                            completeIfFuture(t, Boolean.TRUE);
-                            break;
-                        case EXIT_PC_MODE:
-                            doExitPcMode();
-                            completeIfFuture(t, Boolean.TRUE);
-                            break;
-                        case COMMIT_WRITE:
-                            doCommitWrite();
-                            completeIfFuture(t, Boolean.TRUE);
-                            break;
-                        case ERASE_BLOCK:
-                            completeIfFuture(t, doEraseBlock(t.addr));
-                            break;
-                        case ZONE_READ:
-                            doZoneRead(t.addr, t.recSize);
-                            completeIfFuture(t, null);
-                            break;
-                        case ZONE_CHANNELS_READ:
-                            doZoneChannelsRead(t.addr, t.recSize);
-                            completeIfFuture(t, null);
-                            break;
-                        default:
-                            break;
-                    }
-                } catch (Throwable ex) {
-                    firstError.compareAndSet(null, ex);
-                    completeExceptionIfFuture(t, ex);
-                    break; // abort loop on first error
-                } finally {
-                    int nowInFlight = inFlight.decrementAndGet();
-                    int left = outstanding.decrementAndGet();
-                    if (left < 0) outstanding.set(0);
-                    if (nowInFlight == 0 && left == 0) {
-                        synchronized (drainLock) {
-                            drainLock.notifyAll();
-                        }
-                    }
-                }
+                runTask(t); // failures are recorded per task/session; the loop keeps serving
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -340,6 +556,172 @@ public class CommsThread extends Thread {
         }
     }
 
+    /**
+     * Runs one task with in-flight/outstanding bookkeeping. A read plan that yielded its turn
+     * is put back at the head of its lane and stays outstanding. An I/O failure in a session
+     * task suspends the session and parks the task for {@link #resume}; other failures fail
+     * that task's future and its session. Returns false if the task failed.
+     */
+    private boolean runTask(Task t) {
+        TransferSession s = t.session;
+        if (s != null && s.isCancelled()) {
+            finishCancelled(t);
+            tasks.done(t);
+            settle(t, true);
+            return true;
+        }
+        if (s != null && s.getState() == TransferSession.State.FAILED) {
+            completeExceptionIfFuture(t, s.getLastError());
+            s.taskFinished();
+            tasks.done(t);
+            settle(t, true);
+            return true;
+        }
+        if (s != null && s.getState() == TransferSession.State.SUSPENDED) {
+            park(t);
+            settle(t, true);
+            return true;
+        }
+        inFlight.incrementAndGet();
+        boolean done = true;
+        boolean parked = false;
+        try {
+            done = execute(t);
+            if (done && s != null) s.taskFinished();
+            return true;
+        } catch (Throwable ex) {
+            if (s != null && s.isCancelled()) {
+                finishCancelled(t);
+            } else if (s != null && (ex instanceof IOException || ex instanceof IllegalArgumentException)) {
+                Log.w(TAG, "[session] " + s.getLabel() + " suspended: " + ex.getMessage());
+                park(t);
+                parked = true;
+                s.setState(TransferSession.State.SUSPENDED, ex);
+            } else {
+                Log.w(TAG, "[task] " + t.kind + " failed: " + ex);
+                firstError.compareAndSet(null, ex);
+                if (t.writes) writeFailure.compareAndSet(null, ex);
+                completeExceptionIfFuture(t, ex);
+                if (s != null) {
+                    // Nothing was parked, so resume could not pick this up; the session's
+                    // remaining tasks are dropped and anyone waiting on it wakes
+                    s.setState(TransferSession.State.FAILED, ex);
+                    s.taskFinished();
+                }
+            }
+            return false;
+        } finally {
+            inFlight.decrementAndGet();
+            // A parked write keeps later writes and reads of its range waiting until it resumes
+            if (done && !parked) tasks.done(t);
+            settle(t, done);
+        }
+    }
+
+    // Outstanding bookkeeping once a task leaves the comms thread (or re-queue if it yielded)
+    private void settle(Task t, boolean done) {
+        if (!done) {
+            tasks.putFirst(t.lane, t);
+            return;
+        }
+        int left = outstanding.decrementAndGet();
+        if (left < 0) outstanding.set(0);
+        if (inFlight.get() == 0 && left <= 0) {
+            synchronized (drainLock) {
+                drainLock.notifyAll();
+            }
+        }
+    }
+
+    private void park(Task t) {
+        synchronized (suspended) {
+            List<Task> l = suspended.get(t.session.getId());
+            if (l == null) suspended.put(t.session.getId(), l = new java.util.ArrayList<>());
+            l.add(t);
+        }
+    }
+
+    private void finishCancelled(Task t) {
+        completeExceptionIfFuture(t, new java.util.concurrent.CancellationException(t.session.getLabel() + " cancelled"));
+        if (t.session.taskFinished() <= 0)
+            t.session.setState(TransferSession.State.CANCELLED, null);
+    }
+
+    private static boolean isCancelled(Task t) {
+        return t.session != null && t.session.isCancelled();
+    }
+
+    private static void checkCancelled(Task t) {
+        if (isCancelled(t))
+            throw new java.util.concurrent.CancellationException(t.session.getLabel() + " cancelled");
+    }
+
+    // Returns false when a read plan stopped early to let the other read lane have a turn
+    private boolean execute(Task t) throws IOException {
+        switch (t.kind) {
+            case WRITE:
+                doWrite(t);
+                completeIfFuture(t, Boolean.TRUE);
+                break;
+            case ZONE_WRITE:
+                doZoneWrite(t);
+                completeIfFuture(t, Boolean.TRUE);
+                break;
+            case READ_PLAN:
+                if (!doReadPlan(t)) return false;
+                completeIfFuture(t, null);
+                break;
+            case ENTER_PC_MODE:
+                doEnterPcMode();
+                completeIfFuture(t, Boolean.TRUE);
+                break;
+            case HANDSHAKE:
+                doHandshake();
+                completeIfFuture(t, Boolean.TRUE);
+                break;
+            case EXIT_PC_MODE:
+                doExitPcMode();
+                completeIfFuture(t, Boolean.TRUE);
+                break;
+            case COMMIT_WRITE:
+                doCommitWrite(t.acceptIncomplete);
+                completeIfFuture(t, Boolean.TRUE);
+                break;
+            case ERASE_BLOCK:
+                completeIfFuture(t, doEraseBlock(t.addr));
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    // True when an interactive task is waiting and we are not already running one
+    private boolean urgentWaiting() {
+        return !servingUrgent && tasks.hasUrgent();
+    }
+
+    /**
+     * Runs queued interactive tasks in place. Transfer loops call this only at points where no
+     * request is outstanding on the line, so the cut-in task sees a quiet link. A failed cut-in
+     * is reported through its future and {@link #getFirstError()}; the transfer it interrupted
+     * carries on after the line settles.
+     */
+    private void serviceUrgent() {
+        if (!urgentWaiting()) return;
+        servingUrgent = true;
+        try {
+            Task u;
+            while ((u = tasks.pollUrgent()) != null) {
+                if (runTask(u)) continue;
+                Log.w(TAG, "[urgent] " + u.kind + " @0x" + String.format("%08X", u.addr) + " failed mid-transfer");
+                drainInbound(PIPELINE_DRAIN_QUIET_MS);
+            }
+        } finally {
+            servingUrgent = false;
+        }
+    }
+
     // =====================================================================================
     // Internal helpers
     // =====================================================================================
@@ -355,12 +737,20 @@ public class CommsThread extends Thread {
         if (t.future != null) t.future.completeExceptionally(ex);
     }
 
-    private void awaitSync(Kind kind) throws IOException, InterruptedException {
+    private void awaitSync(Kind kind, TaskLanes.Lane lane) throws IOException, InterruptedException {
         CompletableFuture<Object> fut = new CompletableFuture<>();
-        tasks.put(new Task(kind, 0L, null, 0, 0, fut));
+        enqueue(lane, new Task(kind, 0L, null, 0, 0, fut));
         awaitFuture(fut);
     }
 
+    // Every queued task except POISON counts towards outstanding until it completes
+    private void enqueue(TaskLanes.Lane lane, Task t) {
+        t.lane = lane;
+        if (t.session != null) t.session.pendingTasks.incrementAndGet();
+        outstanding.incrementAndGet();
+        tasks.put(lane, t);
+    }
+
     private Object awaitFuture(CompletableFuture<Object> fut) throws IOException, InterruptedException {
         try {
             return fut.get();
@@ -405,8 +795,10 @@ public class CommsThread extends Thread {
     // Protocol implementations (moved from UART)
     // =====================================================================================
     private void doEnterPcMode() throws IOException {
-        AnytoneUart.getObj().restartPort();
-        AnytoneUart.getObj().writeBytes("PROGRAM".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        closeImage(); // the radio on the other end may have changed
+        connection++;
+        transport().restartPort();
+        transport().writeBytes("PROGRAM".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
         try {
             readExact(3, 4000);
             dispatchEnterPcMode(true, "OK");
@@ -414,11 +806,128 @@ public class CommsThread extends Thread {
             dispatchEnterPcMode(false, ioe.getMessage());
             throw ioe;
         }
+        negotiateFrameSizes();
+    }
+
+    /**
+     * Picks the largest 'R' payload the radio answers reliably, reusing the cached result for
+     * this USB vendor:product when present. The probe only reads (at the first channel bank);
+     * writes start at the smallest size and are sized by {@link #probeWriteSize} on the first
+     * real write, so negotiation never writes radio memory. A failed probe keeps the defaults.
+     */
+    private void negotiateFrameSizes() {
+        String key = transport().getDeviceKey();
+        FrameSizes known = FrameSizes.cached(key);
+        if (known != null) {
+            frameSizes = known;
+            resetSizeFaults();
+            return;
+        }
+        FrameSizes sizes = FrameSizes.defaults();
+        frameSizes = sizes;
+        try {
+            sizes.read = sizes.bestRead = probeReadSize(ChannelIo.BANKS[0].address);
+            sizes.probedAt = System.currentTimeMillis();
+            FrameSizes.remember(key, sizes);
+            Log.d(TAG, "[negotiate] " + key + " -> " + sizes);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "[negotiate] probe failed, keeping " + sizes + ": " + e.getMessage());
+            drainInbound(PIPELINE_DRAIN_QUIET_MS);
+        }
+        resetSizeFaults();
+    }
+
+    private int probeReadSize(long addr) throws IOException {
+        for (int size : FrameSizes.READ_CANDIDATES) {
+            try {
+                readFrame(addr, size);
+                if (codec.checksumOk()) return size;
+            } catch (IOException | IllegalArgumentException e) {
+                drainInbound(PIPELINE_DRAIN_QUIET_MS);
+            }
+        }
+        throw new IOException("no read frame size accepted");
+    }
+
+    /**
+     * Sizes 'W' frames with the task's own next bytes, largest candidate first: a frame counts
+     * once it is ACKed and reads back identical, and then it is simply part of the write. A
+     * rejected size can only have touched bytes the task rewrites next, so no other memory is
+     * ever written. The outcome is cached either way.
+     */
+    private void probeWriteSize(Task t, long baseAddr, byte[] buf) throws IOException {
+        FrameSizes sizes = frameSizes;
+        int off = t.resumeOffset;
+        for (int size : FrameSizes.WRITE_CANDIDATES) {
+            if (size <= sizes.write) break;
+            discardInbound();
+            sendWriteFrame(baseAddr + off, buf, off, size);
+            if (waitForAck(WRITE_ACK_TIMEOUT_MS) && readsBack(baseAddr + off, buf, off, size)) {
+                sizes.write = sizes.bestWrite = size;
+                t.resumeOffset = off + size;
+                if (t.session != null) t.session.checkpoint(baseAddr + off, size);
+                break;
+            }
+            drainInbound(PIPELINE_DRAIN_QUIET_MS);
+        }
+        sizes.writeProbed = true;
+        FrameSizes.remember(transport().getDeviceKey(), sizes);
+        Log.d(TAG, "[negotiate] write frame " + sizes.write);
+    }
+
+    private boolean readsBack(long addr, byte[] buf, int off, int len) {
+        try {
+            java.nio.ByteBuffer back = readFrame(addr, len);
+            if (!codec.checksumOk()) return false;
+            for (int i = 0; i < len; i++) if (back.get() != buf[off + i]) return false;
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void resetSizeFaults() {
+        readSizeFaults = 0;
+        writeSizeFaults = 0;
+        sessionSizeFaults = 0;
+    }
+
+    // PC mode is ending: a session without a single size fault earns a step back up
+    private void growFrameSizesIfClean() {
+        FrameSizes sizes = frameSizes;
+        if (sessionSizeFaults > 0 || !sizes.grow()) return;
+        Log.d(TAG, "[negotiate] clean session, frame sizes back up to " + sizes);
+        FrameSizes.remember(transport().getDeviceKey(), sizes);
+    }
+
+    // Step the read size down once checksum/ordering faults pile up; cached so reconnects start small
+    private void noteReadSizeFault() {
+        sessionSizeFaults++;
+        if (++readSizeFaults < SHRINK_AFTER_FAULTS) return;
+        readSizeFaults = 0;
+        FrameSizes sizes = frameSizes;
+        int smaller = FrameSizes.shrink(sizes.read, FrameSizes.READ_CANDIDATES);
+        if (smaller == sizes.read) return;
+        Log.w(TAG, "[negotiate] read frame " + sizes.read + " -> " + smaller + " after repeated faults");
+        sizes.read = smaller;
+        FrameSizes.remember(transport().getDeviceKey(), sizes);
+    }
+
+    private void noteWriteSizeFault() {
+        sessionSizeFaults++;
+        if (++writeSizeFaults < SHRINK_AFTER_FAULTS) return;
+        writeSizeFaults = 0;
+        FrameSizes sizes = frameSizes;
+        int smaller = FrameSizes.shrink(sizes.write, FrameSizes.WRITE_CANDIDATES);
+        if (smaller == sizes.write) return;
+        Log.w(TAG, "[negotiate] write frame " + sizes.write + " -> " + smaller + " after missing ACKs");
+        sizes.write = smaller;
+        FrameSizes.remember(transport().getDeviceKey(), sizes);
     }
 
     private void doHandshake() throws IOException {
-        AnytoneUart.getObj().flushInput();
-        AnytoneUart.getObj().writeBytes(new byte[]{0x02});
+        discardInbound();
+        transport().writeBytes(new byte[]{0x02});
         byte[] expect = new byte[]{
                 (byte) 0x49, (byte) 0x44, (byte) 0x38, (byte) 0x37,
                 (byte) 0x38, (byte) 0x55, (byte) 0x56, (byte) 0x00,
@@ -429,39 +938,65 @@ public class CommsThread extends Thread {
         if (!java.util.Arrays.equals(expect, got)) {
             throw new IOException("Handshake failed: unexpected banner");
         }
+        banner = got;
     }
 
     private void doExitPcMode() throws IOException {
-        AnytoneUart.getObj().writeBytes("END".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        CodeplugImage img = image;
+        if (img != null) img.discardStaged(); // no acknowledged commit for those writes
+        writeFailure.set(null);
+        growFrameSizesIfClean();
+        transport().writeBytes("END".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+    }
+
+    private void doCommitWrite(boolean acceptIncomplete) throws IOException {
+        String incomplete = describeIncompleteUpload();
+        if (incomplete != null && !acceptIncomplete) throw new IOException("Commit refused: " + incomplete);
+        if (writeBytesTotal.get() > 0) {
+            Log.d(TAG, String.format(java.util.Locale.ROOT, "[comms] transfer wrote %d bytes at %.0f B/s",
+                    writeBytesTotal.get(), getWriteThroughputBps()));
+        }
+        writeBytesTotal.set(0);
+        writeNanosTotal.set(0);
+        transport().writeBytes(new byte[]{0x45, 0x4E, 0x44}); // "END"
+        if (!waitForAck(1000)) throw new IOException("Commit not acknowledged by the radio");
+        writeFailure.set(null);
+        growFrameSizesIfClean();
+        if (incomplete != null) {
+            Log.w(TAG, "[commit] committed with " + incomplete);
+            dropSuspendedWrites();
+        }
+        CodeplugImage img = image;
+        if (img != null) {
+            img.commitStaged();
+            saveImage(img);
+        }
     }
 
-    private void doCommitWrite() throws IOException {
-        AnytoneUart.getObj().writeBytes(new byte[]{0x45, 0x4E, 0x44}); // "END"
-        waitForAck(1000);
+    // Parked writes can no longer follow a commit; their sessions end cancelled
+    private void dropSuspendedWrites() {
+        List<TransferSession> sessions = new java.util.ArrayList<>();
+        synchronized (suspended) {
+            for (List<Task> l : suspended.values())
+                for (Task t : l)
+                    if (t.writes && !sessions.contains(t.session)) sessions.add(t.session);
+        }
+        for (TransferSession s : sessions) s.cancel();
     }
 
     private boolean doEraseBlock(long addr) throws IOException {
-        int chunk = 64;
-        AnytoneUart.getObj().flushInput();
-        byte[] frame = new byte[AnytoneUart.FRAME_HEADER_LEN];
-        frame[0] = 'E';
-        frame[1] = (byte) ((addr >> 24) & 0xFF);
-        frame[2] = (byte) ((addr >> 16) & 0xFF);
-        frame[3] = (byte) ((addr >> 8) & 0xFF);
-        frame[4] = (byte) (addr & 0xFF);
-        frame[5] = (byte) (chunk & 0xFF);
-        int sum = 0;
-        for (int i = 1; i <= 5; i++) sum = (sum + (frame[i] & 0xFF)) & 0xFF;
-        frame[6] = (byte) (sum & 0xFF);
-        AnytoneUart.getObj().writeBytes(frame);
+        discardInbound();
+        CodeplugImage img = image;
+        if (img != null) img.invalidate(addr, ERASE_CHUNK);
+        transport().writeBytes(codec.encodeErase(addr, ERASE_CHUNK));
         return waitForAck(3000);
     }
 
     private boolean waitForAck(int timeoutMs) throws IOException {
-        // Consume a single byte from inbound queue with timeout
+        // Consume a single byte from the inbound ring with timeout
         try {
-            byte[] b = readExact(1, timeoutMs);
-            return b.length == 1 && b[0] == AnytoneUart.ACK;
+            readExactInto(ackByte, 0, 1, timeoutMs);
+            return ackByte[0] == AnytoneUart.ACK;
         } catch (IOException ioe) {
             return false;
         }
@@ -470,233 +1005,490 @@ public class CommsThread extends Thread {
     private byte[] readExact(int len, int timeoutMs) throws IOException {
         if (len <= 0) return new byte[0];
         byte[] out = new byte[len];
-        int off = 0;
-        long deadline = System.currentTimeMillis() + Math.max(0, timeoutMs);
-        while (off < len) {
-            // Drain pending chunk first
-            if (pendingChunk != null && pendingPos < pendingChunk.length) {
-                int n = Math.min(len - off, pendingChunk.length - pendingPos);
-                System.arraycopy(pendingChunk, pendingPos, out, off, n);
-                pendingPos += n;
-                off += n;
-                if (pendingPos >= pendingChunk.length) { pendingChunk = null; pendingPos = 0; }
-                continue;
-            }
-            long remain = deadline - System.currentTimeMillis();
-            if (remain <= 0) break;
-            try {
-                byte[] chunk = inboundQueue.poll(Math.min(100, remain), java.util.concurrent.TimeUnit.MILLISECONDS);
-                if (chunk == null) continue;
-                if (chunk.length == 0) continue;
-                pendingChunk = chunk;
-                pendingPos = 0;
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                break;
-            }
-        }
-        if (off < len) throw new IOException("Timeout reading " + len + " bytes; got " + off);
+        readExactInto(out, 0, len, timeoutMs);
         return out;
     }
 
-    private byte[] parseFrame(long addr, byte[] resp, int len) {
-        if (resp == null || resp.length == 0) throw new IllegalArgumentException("empty resp");
-        if ((resp[0] & 0xFF) != 0x57) {
-            throw new IllegalArgumentException("invalid frame first byte 0x" + Integer.toHexString(resp[0] & 0xFF));
-        }
-        if (resp.length < AnytoneUart.FRAME_HEADER_LEN)
-            throw new IllegalArgumentException("short frame");
-        framed = true;
-        int a0 = resp[1] & 0xFF;
-        int a1 = resp[2] & 0xFF;
-        int a2 = resp[3] & 0xFF;
-        int a3 = resp[4] & 0xFF;
-        frameAddress = (a0 << 24) | (a1 << 16) | (a2 << 8) | a3;
-        if (frameAddress != (int) addr) throw new IllegalArgumentException("address mismatch");
-        frameSize = resp[5] & 0xFF;
-        if (frameSize != len) throw new IllegalArgumentException("size mismatch");
-        int dataStart = 6;
-        int minNoAck = dataStart + frameSize + 1; // + checksum
-        if (resp.length < minNoAck) throw new IllegalArgumentException("missing data/checksum");
-        int dataEnd = dataStart + frameSize;
-        frameData = java.util.Arrays.copyOfRange(resp, dataStart, dataEnd);
-        frameChecksum = resp[dataEnd] & 0xFF;
-        frameAckPresent = (resp.length >= minNoAck + 1) && ((resp[minNoAck] & 0xFF) == AnytoneUart.ACK);
-        int sum = (a0 + a1 + a2 + a3 + (frameSize & 0xFF)) & 0xFF;
-        for (byte b : frameData) sum = (sum + (b & 0xFF)) & 0xFF;
-        frameCrc = sum;
-        frameChecksumOk = (frameCrc == frameChecksum);
-        return frameData;
+    private void readExactInto(byte[] out, int off, int len, int timeoutMs) throws IOException {
+        int got = 0;
+        long deadline = System.nanoTime() + Math.max(0, timeoutMs) * 1_000_000L;
+        while (got < len) {
+            got += inbound.poll(out, off + got, len - got);
+            if (got < len && !inbound.await(deadline)) break;
+        }
+        if (got < len) throw new IOException("Timeout reading " + len + " bytes; got " + got);
     }
 
-    public byte[] readMem(long addr, int len) throws IOException {
-        if (len < 0 || len > 255) throw new IllegalArgumentException("len inválido: " + len);
-        AnytoneUart.getObj().flushInput();
-        byte[] frame = new byte[AnytoneUart.FRAME_HEADER_LEN];
-        frame[0] = 'R';
-        frame[1] = (byte) ((addr >> 24) & 0xFF);
-        frame[2] = (byte) ((addr >> 16) & 0xFF);
-        frame[3] = (byte) ((addr >> 8) & 0xFF);
-        frame[4] = (byte) (addr & 0xFF);
-        frame[5] = (byte) (len & 0xFF);
-        int sum = (frame[1] & 0xFF) + (frame[2] & 0xFF) + (frame[3] & 0xFF) + (frame[4] & 0xFF) + (frame[5] & 0xFF);
-        frame[6] = (byte) (sum & 0xFF);
-        AnytoneUart.getObj().writeBytes(frame);
-        int expect = AnytoneUart.FRAME_HEADER_LEN + len + 1;
-        byte[] resp = readExact(expect, 4000);
-        if (ChannelIo.DEBUG) {
-            android.util.Log.d(TAG, String.format("[rx] addr=0x%08X len=%d expect=%d raw=%s", (int) addr, len, expect, bytesHex(resp, 64)));
+    // Reads the reply to an already-sent 'R' request into the codec and validates it in place
+    private java.nio.ByteBuffer receiveReply(long addr, int len) throws IOException {
+        int expect = FrameCodec.replyLength(len);
+        readExactInto(codec.replyBuffer(), 0, expect, 4000);
+        if (TRACE_FRAMES) {
+            android.util.Log.d(TAG, String.format("[rx] addr=0x%08X len=%d expect=%d raw=%s", (int) addr, len, expect,
+                    bytesHex(java.util.Arrays.copyOf(codec.replyBuffer(), expect), 64)));
         }
-        if (resp.length < expect)
-            throw new IOException("short read frame: got=" + resp.length + " exp>=" + expect);
-        return parseFrame(addr, resp, len);
+        return codec.decodeReply(addr, len);
     }
 
-    public void setZoneTotalExpected(int total) {
-        this.zoneTotalExpected = total;
-        zoneSoFar.set(0);
+    /**
+     * Stop-and-wait read of one frame; the returned view is only valid until the next frame.
+     */
+    private java.nio.ByteBuffer readFrame(long addr, int len) throws IOException {
+        discardInbound();
+        sendReadRequest(addr, len);
+        java.nio.ByteBuffer data = receiveReply(addr, len);
+        if (!codec.checksumOk()) noteReadSizeFault();
+        return data;
     }
 
-    private void doZoneWrite(long baseAddr, byte[] buf) throws IOException {
-        if (buf == null) return;
-        int off = 0;
-        while (off < buf.length) {
-            int n = Math.min(16, buf.length - off);
-            byte[] part = (n == buf.length) ? buf : java.util.Arrays.copyOfRange(buf, off, off + n);
-            long addr = baseAddr + off;
-            if (ChannelIo.DEBUG) {
-                Log.d(TAG, String.format("[comms] write frame addr=0x%08X len=%d", (int) addr, n));
+    public byte[] readMem(long addr, int len) throws IOException {
+        java.nio.ByteBuffer view = readFrame(addr, len);
+        byte[] out = new byte[len];
+        view.get(out);
+        return out;
+    }
+
+    private void sendReadRequest(long addr, int len) throws IOException {
+        transport().writeBytes(codec.encodeRead(addr, len));
+    }
+
+    /**
+     * Reads {@code len} bytes at {@code addr} into {@code dst}. Uses the pipelined engine while the
+     * read window is above one, then finishes whatever it could not verify with stop-and-wait
+     * {@link #readMem} frames cut at the same boundaries.
+     */
+    private void readRange(long addr, byte[] dst, int dstOff, int len) throws IOException {
+        int window = (readPipelineFaults >= MAX_PIPELINE_FAULTS) ? 1 : readWindow;
+        int off = (window > 1) ? readRangePipelined(addr, dst, dstOff, len, window) : 0;
+        while (off < len) {
+            serviceUrgent();
+            int want = Math.min(frameSizes.read, len - off);
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    java.nio.ByteBuffer part = readFrame(addr + off, want);
+                    if (!codec.checksumOk())
+                        throw new IOException(String.format("checksum mismatch @0x%08X", (int) (addr + off)));
+                    part.get(dst, dstOff + off, want);
+                    break;
+                } catch (IOException | IllegalArgumentException e) {
+                    if (attempt >= MAX_READ_RETRIES)
+                        throw (e instanceof IOException) ? (IOException) e : new IOException(e.getMessage(), e);
+                    Log.w(TAG, String.format("[read] retry @0x%08X: %s", (int) (addr + off), e.getMessage()));
+                    drainInbound(PIPELINE_DRAIN_QUIET_MS);
+                }
             }
-            boolean ack = writeFrame(addr, part);
-            if (!ack)
-                throw new IOException("no ACK for frame @0x" + String.format("%08X", (int) addr));
-            off += n;
-            ZoneActivity.getObj().progress(off, buf.length);
+            off += want;
+        }
+    }
 
+    /**
+     * Keeps up to {@code window} 'R' frames outstanding. The radio answers strictly in request
+     * order, so each reply is parsed against the oldest outstanding address; a checksum failure,
+     * address/size mismatch or timeout stops the pipeline, drains late replies off the line and
+     * returns how many bytes were verified so the caller can resume stop-and-wait from there.
+     */
+    private int readRangePipelined(long addr, byte[] dst, int dstOff, int len, int window) throws IOException {
+        discardInbound();
+        int frame = frameSizes.read;
+        int sentOff = 0;
+        int doneOff = 0;
+        int pending = 0;
+        try {
+            while (doneOff < len) {
+                // An interactive task stops new requests; it runs once the replies in flight are in
+                if (pending == 0) serviceUrgent();
+                while (pending < window && sentOff < len && !urgentWaiting()) {
+                    int n = Math.min(frame, len - sentOff);
+                    sendReadRequest(addr + sentOff, n);
+                    sentOff += n;
+                    pending++;
+                }
+                if (pending == 0) continue;
+                int want = Math.min(frame, len - doneOff);
+                long frameAddr = addr + doneOff;
+                java.nio.ByteBuffer part = receiveReply(frameAddr, want);
+                if (!codec.checksumOk())
+                    throw new IOException(String.format("checksum mismatch @0x%08X", (int) frameAddr));
+                part.get(dst, dstOff + doneOff, want);
+                doneOff += want;
+                pending--;
+            }
+            readPipelineFaults = 0;
+            readSizeFaults = 0;
+        } catch (IOException | IllegalArgumentException e) {
+            readPipelineFaults++;
+            noteReadSizeFault();
+            Log.w(TAG, String.format("[pipe] fault @0x%08X after %d/%d bytes (%s); falling back to stop-and-wait",
+                    (int) (addr + doneOff), doneOff, len, e.getMessage()));
+            drainInbound(PIPELINE_DRAIN_QUIET_MS);
         }
-        ZoneActivity.getObj().progress(buf.length, buf.length);
-        ChannelTransferActivity.getObj().enableCommitPending();
+        return doneOff;
     }
-    private void doWrite(long baseAddr, byte[] buf) throws IOException {
+
+    // Discard buffered and still-arriving reply bytes until the line has been quiet for quietMs
+    private void drainInbound(int quietMs) {
+        do {
+            discardInbound();
+        } while (inbound.await(System.nanoTime() + quietMs * 1_000_000L));
+    }
+
+    private void doZoneWrite(Task t) throws IOException {
+        byte[] buf = t.data;
         if (buf == null) return;
-        int off = 0;
-        while (off < buf.length) {
-            int n = Math.min(16, buf.length - off);
-            byte[] part = (n == buf.length) ? buf : java.util.Arrays.copyOfRange(buf, off, off + n);
-            long addr = baseAddr + off;
-            if (ChannelIo.DEBUG) {
-                Log.d(TAG, String.format("[comms] write frame addr=0x%08X len=%d", (int) addr, n));
+        writeRange(t, t.addr, buf, true);
+        ui.zoneProgress(buf.length, buf.length);
+        try {
+            ChannelTransferActivity.getObj().enableCommitPending();
+        } catch (Throwable ignored) {
+        }
+    }
+
+    private void doWrite(Task t) throws IOException {
+        if (t.data == null) return;
+        writeRange(t, t.addr, t.data, false);
+    }
+
+    /**
+     * Streams {@code buf} as 'W' frames of the negotiated size, keeping up to {@link #writeWindow}
+     * frames ahead of their ACKs. Every ACK byte retires the oldest pending frame; a timeout or
+     * stray byte drains the line and re-sends from the first unacknowledged frame (rewriting
+     * identical data is harmless). Persistent faults shrink the window to stop-and-wait for later
+     * transfers. Starts at {@code t.resumeOffset} and advances it with every ACK, so a suspended
+     * session task resumes at its first unacknowledged byte; cancellation is honoured once the
+     * frames in flight are acknowledged.
+     */
+    private void writeRange(Task t, long baseAddr, byte[] buf, boolean zoneProgress) throws IOException {
+        long t0 = System.nanoTime();
+        int begin = t.resumeOffset;
+        if (!frameSizes.writeProbed && buf.length - begin >= FrameSizes.WRITE_CANDIDATES[0])
+            probeWriteSize(t, baseAddr, buf);
+        int frame = frameSizes.write;
+        int start = t.resumeOffset;
+        int frames = (buf.length - start + frame - 1) / frame;
+        int window = (writePipelineFaults >= MAX_PIPELINE_FAULTS) ? 1 : writeWindow;
+        discardInbound();
+        int acked = 0;
+        int sent = 0;
+        int retries = 0;
+        while (acked < frames) {
+            // Same cut-in rule as reads: stop sending, collect the outstanding ACKs, then yield
+            if (sent == acked) {
+                checkCancelled(t);
+                serviceUrgent();
+            }
+            while (sent < frames && sent - acked < window && !urgentWaiting() && !isCancelled(t)) {
+                int off = start + sent * frame;
+                int n = Math.min(frame, buf.length - off);
+                if (TRACE_FRAMES) {
+                    Log.d(TAG, String.format("[comms] write frame addr=0x%08X len=%d", (int) (baseAddr + off), n));
+                }
+                sendWriteFrame(baseAddr + off, buf, off, n);
+                sent++;
             }
-            boolean ack = writeFrame(addr, part);
-            if (!ack)
+            if (sent == acked) continue;
+            if (waitForAck(WRITE_ACK_TIMEOUT_MS)) {
+                int off = start + acked * frame;
+                acked++;
+                retries = 0;
+                writeSizeFaults = 0;
+                t.resumeOffset = Math.min(buf.length, off + frame);
+                if (t.session != null) t.session.checkpoint(baseAddr + off, t.resumeOffset - off);
+                if (zoneProgress) ui.zoneProgress(t.resumeOffset, buf.length);
+                continue;
+            }
+            long addr = baseAddr + start + (long) acked * frame;
+            if (++retries > MAX_WRITE_RETRIES)
                 throw new IOException("no ACK for frame @0x" + String.format("%08X", (int) addr));
-            off += n;
+            if (window > 1) {
+                writePipelineFaults++;
+                if (writePipelineFaults >= MAX_PIPELINE_FAULTS) window = 1;
+            }
+            Log.w(TAG, String.format("[pipe] missing ACK @0x%08X (%d unacked); resending window=%d", (int) addr, sent - acked, window));
+            noteWriteSizeFault();
+            drainInbound(PIPELINE_DRAIN_QUIET_MS);
+            sent = acked;
+        }
+        long nanos = System.nanoTime() - t0;
+        CodeplugImage img = image();
+        if (img != null) {
+            img.stage(baseAddr, buf, 0, buf.length); // persisted once END is ACKed
+        }
+        int bytes = buf.length - begin;
+        writeBytesTotal.addAndGet(bytes);
+        writeNanosTotal.addAndGet(nanos);
+        if (ChannelIo.DEBUG) {
+            Log.d(TAG, String.format(java.util.Locale.ROOT, "[comms] wrote %d bytes @0x%08X in %.1f ms (%.0f B/s, window=%d)",
+                    bytes, (int) (baseAddr + begin), nanos / 1e6, nanos > 0 ? bytes * 1e9 / nanos : 0.0, window));
         }
     }
 
     public boolean writeFrame(long addr, byte[] buf) throws IOException {
         if (buf == null) buf = new byte[0];
-        int dataLen = buf.length;
-        if (dataLen > 0xFF)
-            throw new IllegalArgumentException("buffer demasiado grande: " + dataLen);
-        AnytoneUart.getObj().flushInput();
-        byte[] frame = new byte[AnytoneUart.FRAME_HEADER_LEN + dataLen + 1];
-        frame[0] = 'W';
-        frame[1] = (byte) ((addr >> 24) & 0xFF);
-        frame[2] = (byte) ((addr >> 16) & 0xFF);
-        frame[3] = (byte) ((addr >> 8) & 0xFF);
-        frame[4] = (byte) (addr & 0xFF);
-        frame[5] = (byte) (dataLen & 0xFF);
-        if (dataLen > 0) System.arraycopy(buf, 0, frame, 6, dataLen);
-        int sum = 0;
-        for (int i = 1; i < frame.length - 2; i++) {
-            sum = (sum + (frame[i] & 0xFF)) & 0xFF;
-        }
-        frame[frame.length - 2] = (byte) (sum & 0xFF);
-        frame[frame.length - 1] = AnytoneUart.ACK;
-        AnytoneUart.getObj().writeBytes(frame);
-        return waitForAck(5000);
-    }
-
-    private void doReadDecode(long addr, int recs, int recSize) throws IOException {
-        int bytes = recs * recSize;
-        byte[] slab = new byte[bytes];
-        int off = 0;
-        while (off < bytes) {
-            int want = Math.min(0xFF, bytes - off);
-            byte[] part = readMem(addr + off, want);
-            if (part.length != want) throw new IOException("short read: exp=" + want + " got=" + part.length);
-            System.arraycopy(part, 0, slab, off, want);
-            off += want;
+        if (buf.length > 0xFF)
+            throw new IllegalArgumentException("buffer demasiado grande: " + buf.length);
+        discardInbound();
+        sendWriteFrame(addr, buf, 0, buf.length);
+        return waitForAck(WRITE_ACK_TIMEOUT_MS);
+    }
+
+    private void sendWriteFrame(long addr, byte[] buf, int off, int dataLen) throws IOException {
+        transport().writeBytes(codec.encodeWrite(addr, buf, off, dataLen));
+    }
+
+    private boolean doReadPlan(Task t) throws IOException {
+        if (t.nextSpan == 0 && ChannelIo.DEBUG)
+            Log.d(TAG, "[plan] " + t.plan.requestCount() + " request(s) -> " + t.spans.size() + " span(s)");
+        List<ReadPlanner.Span> spans = t.spans;
+        CodeplugImage img = image();
+        int fromCache = 0;
+        while (t.nextSpan < spans.size()) {
+            ReadPlanner.Span span = spans.get(t.nextSpan);
+            // Sinks must not retain the buffer, so one scratch span buffer serves every plan
+            if (spanBuf.length < span.length()) spanBuf = new byte[span.length()];
+            if (img != null && sentinelsMatch(img, span.addr, span.length())) {
+                img.copyOut(span.addr, spanBuf, 0, span.length());
+                fromCache++;
+            } else {
+                readRange(span.addr, spanBuf, 0, span.length());
+                if (img != null) img.store(span.addr, spanBuf, 0, span.length());
+            }
+            span.dispatch(spanBuf);
+            t.nextSpan++;
+            if (t.session != null) t.session.checkpoint(span.addr, span.length());
+            if (t.nextSpan < spans.size()) {
+                checkCancelled(t);
+                serviceUrgent();
+                // One span per turn while the other read lane has work, so both loads advance
+                if (tasks.otherReadWaiting(t.lane)) return false;
+            }
         }
-        ChannelIo channelIo = ChannelIo.getObj();
-        for (int r = 0; r < recs; r++) {
-            int roff = r * recSize;
-            Channel ch = channelIo.decodeChannel(slab, roff, recSize);
-            // Try to notify Activity directly via getObj(); fallback to queue if unavailable
-            try {
-                ChannelTransferActivity act = ChannelTransferActivity.getObj();
-                int soFar = totalSoFar.incrementAndGet();
-                try { act.onChannelsDecoded(java.util.Collections.singletonList(ch), soFar, totalExpected); } catch (Throwable ignored) {}
-            } catch (Throwable notReady) {
-                try { results.put(new Result(java.util.Collections.singletonList(ch), null)); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        if (img != null) {
+            if (System.currentTimeMillis() - imageSavedAt >= IMAGE_SAVE_INTERVAL_MS) saveImage(img);
+            if (ChannelIo.DEBUG)
+                Log.d(TAG, "[image] " + fromCache + "/" + spans.size() + " span(s) served from cached image");
+        }
+        return true;
+    }
+
+    // =====================================================================================
+    // Codeplug image cache
+    // =====================================================================================
+
+    /**
+     * Enables or disables the persistent codeplug image and serving reads from it (off by
+     * default: a cached span is only confirmed by sampling a few blocks, and telling radios apart
+     * costs a read of the radio ID block). Disabled, reads and writes still fill an in-memory
+     * image for the current connection, which delta uploads and record merges use.
+     */
+    public void setImageCacheEnabled(boolean enabled) {
+        imageCacheEnabled = enabled;
+    }
+
+    public boolean isImageCacheEnabled() {
+        return imageCacheEnabled;
+    }
+
+    /**
+     * Forget everything cached for the connected radio, so the next download reads every span in
+     * full and rebuilds the image.
+     */
+    public void clearCodeplugImage() {
+        CodeplugImage img = image;
+        if (img == null) return;
+        img.clear();
+        img.save();
+    }
+
+    /**
+     * Counts entries into PC mode. Data read from the radio under an older value may belong to
+     * another radio; caches of radio tables compare this to know when to read them again.
+     */
+    public int getConnection() {
+        return connection;
+    }
+
+    /**
+     * Image of the connected radio as last read or written, or null when caching is unavailable.
+     */
+    public CodeplugImage getCodeplugImage() {
+        return image;
+    }
+
+    /**
+     * A fully cached span is trusted when a few sentinel blocks (first, middle, last) read back
+     * identical; short spans are simply re-read since sampling would not save anything.
+     */
+    private boolean sentinelsMatch(CodeplugImage img, long addr, int len) throws IOException {
+        if (!imageCacheEnabled || !img.covers(addr, len)) return false;
+        long firstBlock = addr / CodeplugImage.BLOCK;
+        long lastBlock = (addr + len - 1) / CodeplugImage.BLOCK;
+        if (lastBlock - firstBlock + 1 <= SENTINEL_BLOCKS) return false;
+        long[] picks = {firstBlock, (firstBlock + lastBlock) / 2, lastBlock};
+        for (long b : picks) {
+            long from = Math.max(addr, b * CodeplugImage.BLOCK);
+            long to = Math.min(addr + len, (b + 1) * CodeplugImage.BLOCK);
+            int n = (int) (to - from);
+            readRange(from, sentinelBuf, 0, n);
+            if (!img.matches(from, sentinelBuf, 0, n)) {
+                if (ChannelIo.DEBUG)
+                    Log.d(TAG, String.format("[image] sentinel @0x%08X differs; re-reading span", (int) from));
+                return false;
             }
         }
+        return true;
     }
 
+    /**
+     * Opens the image for the connected radio on first use, or again after the cache was switched
+     * on or off. The key combines the handshake banner (model/firmware) and the USB vendor:product;
+     * a persistent image adds a fingerprint of the radio ID block, which is what tells two radios
+     * of the same model apart, so that block is only read with the cache enabled.
+     */
+    private CodeplugImage image() {
+        boolean persistent = imageCacheEnabled;
+        if (image != null && image.isPersistent() != persistent) closeImage();
+        if (image != null || imageUnavailable) return image;
+        try {
+            byte[] b = banner;
+            String key = (b != null ? bytesHex(b, b.length) : "nobanner") + "|" + transport().getDeviceKey();
+            if (persistent) {
+                byte[] id = new byte[RADIO_ID_LEN];
+                readRange(RADIO_ID_ADDR, id, 0, RADIO_ID_LEN);
+                image = CodeplugImage.open(key + "|" + Long.toHexString(CodeplugImage.fingerprint(id, 0, id.length)));
+            } else {
+                image = CodeplugImage.session(key);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "[image] radio identity read failed; caching disabled for this session: " + e.getMessage());
+        }
+        imageUnavailable = image == null;
+        return image;
+    }
 
+    private void closeImage() {
+        CodeplugImage img = image;
+        if (img != null) {
+            img.discardStaged();
+            saveImage(img);
+        }
+        image = null;
+        imageUnavailable = false;
+    }
+
+    // Saving rewrites the whole file, so reads only do it every IMAGE_SAVE_INTERVAL_MS; commit,
+    // reconnect and shutdown always save
+    private void saveImage(CodeplugImage img) {
+        img.save();
+        imageSavedAt = System.currentTimeMillis();
+    }
+
+    // One bank per callback: the slab is copied once and wrapped in lazy views, so empty slots
+    // are never decoded and populated ones only as far as the UI reads them
+    private void dispatchChannels(byte[] slab, int off, int recs, int recSize, int emptyBefore, int emptyAfter) {
+        int slots = emptyBefore + recs + emptyAfter;
+        byte[] bank = new byte[slots * recSize]; // skipped slots stay zero, i.e. empty
+        System.arraycopy(slab, off, bank, emptyBefore * recSize, recs * recSize);
+        List<ChannelView> views = ChannelView.wrapBank(bank, 0, slots, recSize);
+        ui.channels(views, totalSoFar.addAndGet(slots), totalExpected);
+    }
+
+    // UiDispatcher's fallback, on its flush thread: no channel activity to take this batch
+    private void keepUndelivered(List<ChannelView> views) {
+        List<Channel> chans = new java.util.ArrayList<>(views.size());
+        for (ChannelView v : views) chans.add(v.toChannel());
+        results.add(new Result(chans, null)); // unbounded, never blocks
+    }
+
+    /**
+     * Channels decoded while no ChannelTransferActivity was open to take them, in read order.
+     * Returns null after {@code timeoutMs} without any, or at end of stream.
+     */
+    public List<Channel> pollUndeliveredChannels(long timeoutMs) throws InterruptedException {
+        Result r = results.poll(timeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS);
+        return r == null ? null : r.channels;
+    }
 
     private void dispatchEnterPcMode(boolean ok, String msg){
         try { ChannelTransferActivity.getObj().onEnterPcMode(ok, msg); } catch (Throwable ignored) {}
         try { MainActivity.getObj().onEnterPcMode(ok, msg); } catch (Throwable ignored) {}
     }
 
-    private void doZoneRead(long addr, int recSize) throws IOException {
-        byte[] raw = readMem(addr, recSize);
-        if (ChannelIo.DEBUG)
-            android.util.Log.d(TAG, String.format("[zone-rx] addr=0x%08X raw=%s", (int) addr, bytesHex(raw, 64)));
-        Zone z = ZoneIo.decodeZone(raw);
-        int zoneIndex = (int) (((addr - ZoneIo.DEFAULT_ZONE_BASE) / ZoneIo.DEFAULT_ZONE_RECORD_SIZE) + 1);
-        z.channelNumbers = ZoneChannelsIo.getChannels(zoneIndex);
-        int soFar = zoneSoFar.incrementAndGet();
-        try {
-            ZoneActivity act = ZoneActivity.getObj();
-            java.util.List<Zone> one = java.util.Collections.singletonList(z);
+    // Two-stage zone read. Sinks run on the comms thread, so no locking: names arrive first, the
+    // membership plan is chained from that sink, and zones are released in index order as soon as
+    // every zone before them is complete.
+    private final class ZoneLoad {
+        private final int total;
+        private final Zone[] zones;
+        private final boolean[] ready;
+        private final boolean toUi;
+        private int delivered;
+
+        ZoneLoad(int total, boolean toUi) {
+            this.total = Math.max(0, Math.min(total, ZoneIo.getTotalZones()));
+            this.zones = new Zone[this.total];
+            this.ready = new boolean[this.total];
+            this.toUi = toUi;
+        }
+
+        void start() throws InterruptedException {
+            if (total == 0) {
+                ZoneMembership.getObj().markLoaded();
+                return;
+            }
+            ReadPlanner plan = new ReadPlanner().add(ZoneIo.addressOfZone(1), total * ZoneIo.DEFAULT_ZONE_RECORD_SIZE,
+                    (addr, buf, off, len) -> onNames(buf, off));
+            if (ChannelIo.DEBUG) android.util.Log.d(TAG, "[zone] load " + total + " zones");
+            submitPlan(plan, TaskLanes.Lane.ZONE_READ, null);
+        }
+
+        private void onNames(byte[] buf, int off) throws IOException {
+            ReadPlanner members = new ReadPlanner();
+            ZoneMembership.getObj().clear();
+            int named = 0;
+            for (int i = 0; i < total; i++) {
+                int rec = off + i * ZoneIo.DEFAULT_ZONE_RECORD_SIZE;
+                zones[i] = ZoneIo.decodeZone(buf, rec);
+                if (ZoneIo.isNameSlotEmpty(buf, rec)) {
+                    ready[i] = true;
+                    continue;
+                }
+                int zoneIndex = i + 1;
+                named++;
+                members.add(ZoneChannelsIo.addressOf(zoneIndex), ZoneChannelsIo.RECORD_SIZE,
+                        (addr, b, o, len) -> onMembers(zoneIndex, b, o, len));
+            }
+            if (ChannelIo.DEBUG)
+                android.util.Log.d(TAG, "[zone] names read, " + named + " zones with a name");
+            deliverReady();
             try {
-                act.onZonesDecoded(one, soFar, zoneTotalExpected);
-            } catch (Throwable ignored) {
+                submitPlan(members, TaskLanes.Lane.ZONE_READ, null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted submitting zone membership read", e);
             }
-        } catch (Throwable ignoredOuter) {
         }
-    }
 
-    private void doZoneChannelsRead(long addr, int recSize) throws IOException {
-        int size = ZoneChannelsIo.RECORD_SIZE;
-        byte[] full = new byte[size];
-        int off = 0;
-        while (off < size) {
-            int want = Math.min(0xFF, size - off);
-            byte[] part = readMem(addr + off, want);
-            if (part.length != want)
-                throw new IOException("short zone channels read exp=" + want + " got=" + part.length);
-            System.arraycopy(part, 0, full, off, want);
-            off += want;
+        private void onMembers(int zoneIndex, byte[] buf, int off, int len) {
+            int[] chans = ZoneChannelsIo.decodeChannels(buf, off, len);
+            zones[zoneIndex - 1].channelNumbers = chans;
+            ZoneMembership.getObj().set(zoneIndex, chans);
+            ready[zoneIndex - 1] = true;
+            deliverReady();
         }
-        int zoneIndex = (int) (((addr - ZoneChannelsIo.BASE_ADDRESS) / ZoneChannelsIo.RECORD_STRIDE) + 1);
-        ZoneChannelsIo.decode(zoneIndex, full);
-        int soFar = zoneChanSoFar.incrementAndGet();
-        if (ChannelIo.DEBUG)
-            android.util.Log.d(TAG, String.format("[zone-ch-rx] zone=%d size=%d progress %d/%d", zoneIndex, size, soFar, zoneChanTotalExpected));
-        try {
-            com.app.annytunes.ui.ZoneActivity.getObj().onZoneChannelsDecoded(zoneIndex);
-        } catch (Throwable ignored) {
+
+        private void deliverReady() {
+            while (delivered < total && ready[delivered]) {
+                Zone z = zones[delivered++];
+                if (toUi) ui.zone(z, delivered, total);
+            }
+            if (delivered == total) ZoneMembership.getObj().markLoaded();
         }
     }
 
     // =====================================================================================
     // Types
     // =====================================================================================
-    private enum Kind {READ_DECODE, WRITE, POISON, ENTER_PC_MODE, HANDSHAKE, EXIT_PC_MODE, COMMIT_WRITE, ERASE_BLOCK, ZONE_READ, ZONE_CHANNELS_READ, ZONE_WRITE}
+    private enum Kind {READ_PLAN, WRITE, POISON, ENTER_PC_MODE, HANDSHAKE, EXIT_PC_MODE, COMMIT_WRITE, ERASE_BLOCK, ZONE_WRITE}
 
 
 }
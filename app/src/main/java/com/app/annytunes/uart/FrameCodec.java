@@ -0,0 +1,99 @@
+package com.app.annytunes.uart;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes 'R' / 'W' / 'E' request frames and validates 'W' replies in preallocated buffers.
+ * Layout: cmd, addr (4 bytes, big-endian), size, [payload], checksum (sum of addr..payload),
+ * plus a trailing ACK on 'W' requests and replies. A codec belongs to the comms thread: every
+ * returned array or view is overwritten by the next call of the same kind, and nothing is
+ * allocated per frame once each write length has been seen.
+ */
+final class FrameCodec {
+    static final int MAX_PAYLOAD = 0xFF;
+    static final int REPLY_OVERHEAD = AnytoneUart.FRAME_HEADER_LEN + 1; // header+checksum, then ACK
+
+    private final byte[] command = new byte[AnytoneUart.FRAME_HEADER_LEN];
+    private final byte[][] writeFrames = new byte[MAX_PAYLOAD + 1][]; // exact-length, felHR writes whole arrays
+    private final byte[] reply = new byte[MAX_PAYLOAD + REPLY_OVERHEAD];
+    private final ByteBuffer payload = ByteBuffer.wrap(reply).asReadOnlyBuffer();
+    private boolean checksumOk;
+
+    static int replyLength(int payloadLen) {
+        return payloadLen + REPLY_OVERHEAD;
+    }
+
+    byte[] encodeRead(long addr, int len) {
+        return encodeCommand('R', addr, len);
+    }
+
+    byte[] encodeErase(long addr, int len) {
+        return encodeCommand('E', addr, len);
+    }
+
+    private byte[] encodeCommand(char cmd, long addr, int len) {
+        checkLen(len);
+        command[0] = (byte) cmd;
+        putHeader(command, addr, len);
+        command[6] = (byte) sum(command, 1, 5);
+        return command;
+    }
+
+    byte[] encodeWrite(long addr, byte[] src, int off, int len) {
+        checkLen(len);
+        byte[] frame = writeFrames[len];
+        if (frame == null) frame = writeFrames[len] = new byte[AnytoneUart.FRAME_HEADER_LEN + len + 1];
+        frame[0] = 'W';
+        putHeader(frame, addr, len);
+        if (len > 0) System.arraycopy(src, off, frame, 6, len);
+        frame[frame.length - 2] = (byte) sum(frame, 1, 5 + len);
+        frame[frame.length - 1] = AnytoneUart.ACK;
+        return frame;
+    }
+
+    /**
+     * Buffer a reply of {@link #replyLength} bytes is read into before {@link #decodeReply}.
+     */
+    byte[] replyBuffer() {
+        return reply;
+    }
+
+    /**
+     * Validates the reply in place and returns a read-only view over its payload
+     * (position at the first data byte, limit after the last). Check {@link #checksumOk()}.
+     *
+     * @throws IllegalArgumentException on a wrong lead byte, address or size
+     */
+    ByteBuffer decodeReply(long addr, int len) {
+        if ((reply[0] & 0xFF) != 0x57)
+            throw new IllegalArgumentException("invalid frame first byte 0x" + Integer.toHexString(reply[0] & 0xFF));
+        int echoed = ((reply[1] & 0xFF) << 24) | ((reply[2] & 0xFF) << 16) | ((reply[3] & 0xFF) << 8) | (reply[4] & 0xFF);
+        if (echoed != (int) addr) throw new IllegalArgumentException("address mismatch");
+        if ((reply[5] & 0xFF) != len) throw new IllegalArgumentException("size mismatch");
+        checksumOk = sum(reply, 1, 5 + len) == (reply[6 + len] & 0xFF);
+        payload.limit(6 + len).position(6);
+        return payload;
+    }
+
+    boolean checksumOk() {
+        return checksumOk;
+    }
+
+    private static void putHeader(byte[] frame, long addr, int len) {
+        frame[1] = (byte) ((addr >> 24) & 0xFF);
+        frame[2] = (byte) ((addr >> 16) & 0xFF);
+        frame[3] = (byte) ((addr >> 8) & 0xFF);
+        frame[4] = (byte) (addr & 0xFF);
+        frame[5] = (byte) (len & 0xFF);
+    }
+
+    private static int sum(byte[] b, int from, int count) {
+        int s = 0;
+        for (int i = from; i < from + count; i++) s += b[i] & 0xFF;
+        return s & 0xFF;
+    }
+
+    private static void checkLen(int len) {
+        if (len < 0 || len > MAX_PAYLOAD) throw new IllegalArgumentException("len inválido: " + len);
+    }
+}
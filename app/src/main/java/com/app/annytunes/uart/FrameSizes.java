@@ -0,0 +1,164 @@
+package com.app.annytunes.uart;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Negotiated 'R' / 'W' payload sizes for one radio model.
+ * Results are cached per USB device key (AnytoneUart selector format, e.g. "28e9:0189") and
+ * persisted next to the codeplug images, so reconnecting the same model skips the probe even
+ * after a restart. Faults step the sizes down at runtime; each session that ends without a
+ * fault steps them one candidate back up towards what the probe found, and a result older than
+ * {@link #REPROBE_AFTER_MS} is probed again.
+ */
+final class FrameSizes {
+    // Largest first; the size byte in the frame header caps every payload at 0xFF
+    static final int[] READ_CANDIDATES = {0xFF, 0xC0, 0x80, 0x40, 0x10};
+    static final int[] WRITE_CANDIDATES = {0x80, 0x40, 0x20, 0x10};
+    static final int DEFAULT_READ = 0xFF;
+    static final int DEFAULT_WRITE = 0x10;
+    static final long REPROBE_AFTER_MS = 30L * 24 * 3600 * 1000;
+    private static final String TAG = "FrameSizes";
+    private static final String FILE_NAME = "frame-sizes.properties";
+    private static final ConcurrentHashMap<String, FrameSizes> CACHE = new ConcurrentHashMap<>();
+    private static File loadedFrom; // guarded by CACHE; the store CACHE was read from
+
+    volatile int read;
+    volatile int write;
+    volatile boolean writeProbed; // false until a real write confirmed (or ruled out) a larger size
+    volatile int bestRead;        // what the probes found; sizes grow back up to these
+    volatile int bestWrite;
+    volatile long probedAt;       // wall-clock ms of the read probe, 0 if unknown
+
+    FrameSizes(int read, int write) {
+        this.read = bestRead = read;
+        this.write = bestWrite = write;
+    }
+
+    static FrameSizes defaults() {
+        return new FrameSizes(DEFAULT_READ, DEFAULT_WRITE);
+    }
+
+    /**
+     * The sizes stored for {@code deviceKey}, or null when there are none or they are due for a
+     * fresh probe.
+     */
+    static FrameSizes cached(String deviceKey) {
+        if (deviceKey == null) return null;
+        load();
+        FrameSizes s = CACHE.get(deviceKey);
+        if (s == null || System.currentTimeMillis() - s.probedAt > REPROBE_AFTER_MS) return null;
+        return s;
+    }
+
+    static void remember(String deviceKey, FrameSizes sizes) {
+        if (deviceKey == null || sizes == null) return;
+        load();
+        CACHE.put(deviceKey, sizes);
+        save();
+    }
+
+    /**
+     * Step each size one candidate back up towards what the probe found, after a session that
+     * ran without a size fault. Returns true if anything changed.
+     */
+    boolean grow() {
+        int r = grow(read, bestRead, READ_CANDIDATES);
+        int w = grow(write, bestWrite, WRITE_CANDIDATES);
+        boolean changed = r != read || w != write;
+        read = r;
+        write = w;
+        return changed;
+    }
+
+    // Entries are "key=read,write,probed,bestRead,bestWrite,probedAt"; an entry from before the
+    // last three fields counts as never probed. Anything unparsable is dropped and re-probed. The
+    // cache follows the store directory: pointing CodeplugImage elsewhere reloads it.
+    private static void load() {
+        synchronized (CACHE) {
+            File f = file();
+            if (f == null || f.equals(loadedFrom)) return; // no store yet: retried once one is set
+            loadedFrom = f;
+            CACHE.clear();
+            if (!f.exists()) return;
+            Properties p = new Properties();
+            try (InputStream in = new FileInputStream(f)) {
+                p.load(in);
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring unreadable " + f + ": " + e.getMessage());
+                return;
+            }
+            for (String key : p.stringPropertyNames()) {
+                String[] v = p.getProperty(key).split(",");
+                try {
+                    FrameSizes s = new FrameSizes(Integer.parseInt(v[0]), Integer.parseInt(v[1]));
+                    s.writeProbed = v.length > 2 && Boolean.parseBoolean(v[2]);
+                    if (v.length > 5) {
+                        s.bestRead = Integer.parseInt(v[3]);
+                        s.bestWrite = Integer.parseInt(v[4]);
+                        s.probedAt = Long.parseLong(v[5]);
+                    }
+                    CACHE.put(key, s);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Dropping bad entry for " + key);
+                }
+            }
+        }
+    }
+
+    private static void save() {
+        synchronized (CACHE) {
+            File f = file();
+            if (f == null) return;
+            Properties p = new Properties();
+            for (Map.Entry<String, FrameSizes> e : CACHE.entrySet()) {
+                FrameSizes s = e.getValue();
+                p.setProperty(e.getKey(), s.read + "," + s.write + "," + s.writeProbed + ","
+                        + s.bestRead + "," + s.bestWrite + "," + s.probedAt);
+            }
+            File tmp = new File(f.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                p.store(out, "negotiated frame sizes per USB device");
+            } catch (IOException e) {
+                Log.w(TAG, "Save failed: " + e.getMessage());
+                tmp.delete();
+                return;
+            }
+            if (!tmp.renameTo(f)) tmp.delete();
+        }
+    }
+
+    private static File file() {
+        File dir = CodeplugImage.storeDir();
+        return dir == null ? null : new File(dir, FILE_NAME);
+    }
+
+    /**
+     * Next smaller candidate below {@code size}, or the smallest candidate if none is smaller.
+     */
+    static int shrink(int size, int[] candidates) {
+        for (int c : candidates) if (c < size) return c;
+        return candidates[candidates.length - 1];
+    }
+
+    // Next larger candidate above size that does not exceed best; size itself if there is none
+    static int grow(int size, int best, int[] candidates) {
+        for (int i = candidates.length - 1; i >= 0; i--)
+            if (candidates[i] > size && candidates[i] <= best) return candidates[i];
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameSizes{read=" + read + ", write=" + write + (writeProbed ? "" : " (unconfirmed)") + "}";
+    }
+}
@@ -0,0 +1,25 @@
+package com.app.annytunes.uart;
+
+import java.io.IOException;
+
+/**
+ * Byte pipe between CommsThread and a radio.
+ * Outbound frames go through {@link #writeBytes}; inbound bytes are pushed asynchronously into
+ * {@link CommsThread#enqueueIncoming(byte[])} by the implementation. Callers may reuse the array
+ * passed to writeBytes as soon as the call returns.
+ */
+public interface RadioTransport {
+    void writeBytes(byte[] b) throws IOException;
+
+    /**
+     * Re-open the link (e.g. before entering PC mode or after a USB glitch).
+     */
+    void restartPort() throws IOException;
+
+    /**
+     * Stable identity of the attached radio model in selector format ("vendor:product" hex).
+     */
+    String getDeviceKey();
+
+    boolean isOpen();
+}
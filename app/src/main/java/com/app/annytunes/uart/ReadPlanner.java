@@ -0,0 +1,115 @@
+package com.app.annytunes.uart;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Coalesces many small read requests into a few contiguous spans.
+ * Requests are sorted by address; a request joins the current span when the hole before it is
+ * at most {@code maxGap} bytes and the span stays within {@code maxSpan}. CommsThread reads each
+ * span once (cut into negotiated frame sizes) and hands every request its slice of the span
+ * buffer, in address order, so decoders see the same bytes they would have read themselves.
+ */
+public final class ReadPlanner {
+    public static final int DEFAULT_MAX_GAP = 0x40;    // hole worth reading through instead of a new frame
+    public static final int DEFAULT_MAX_SPAN = 0x2000; // bounds buffer size and progress granularity
+
+    private final int maxGap;
+    private final int maxSpan;
+    private final List<Request> requests = new ArrayList<>();
+
+    public ReadPlanner() {
+        this(DEFAULT_MAX_GAP, DEFAULT_MAX_SPAN);
+    }
+
+    public ReadPlanner(int maxGap, int maxSpan) {
+        this.maxGap = Math.max(0, maxGap);
+        this.maxSpan = Math.max(1, maxSpan);
+    }
+
+    public ReadPlanner add(long addr, int len, Sink sink) {
+        if (len <= 0) throw new IllegalArgumentException("len<=0");
+        if (len > maxSpan) throw new IllegalArgumentException("request larger than span limit: " + len);
+        requests.add(new Request(addr, len, sink, requests.size()));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+
+    public int requestCount() {
+        return requests.size();
+    }
+
+    /**
+     * Merged spans in ascending address order.
+     */
+    public List<Span> plan() {
+        List<Request> sorted = new ArrayList<>(requests);
+        Collections.sort(sorted, (a, b) -> a.addr != b.addr ? Long.compare(a.addr, b.addr) : Integer.compare(a.seq, b.seq));
+        List<Span> spans = new ArrayList<>();
+        Span cur = null;
+        for (Request r : sorted) {
+            long end = r.addr + r.len;
+            if (cur != null && r.addr - cur.end() <= maxGap && Math.max(end, cur.end()) - cur.addr <= maxSpan) {
+                cur.len = (int) (Math.max(end, cur.end()) - cur.addr);
+                cur.requests.add(r);
+                continue;
+            }
+            cur = new Span(r.addr, r.len);
+            cur.requests.add(r);
+            spans.add(cur);
+        }
+        return spans;
+    }
+
+    /**
+     * Receives one request's bytes as a slice of a span buffer; must not retain {@code buf}.
+     */
+    public interface Sink {
+        void accept(long addr, byte[] buf, int off, int len) throws IOException;
+    }
+
+    static final class Request {
+        final long addr;
+        final int len;
+        final Sink sink;
+        final int seq;
+
+        Request(long addr, int len, Sink sink, int seq) {
+            this.addr = addr;
+            this.len = len;
+            this.sink = sink;
+            this.seq = seq;
+        }
+    }
+
+    public static final class Span {
+        public final long addr;
+        int len;
+        final List<Request> requests = new ArrayList<>();
+
+        Span(long addr, int len) {
+            this.addr = addr;
+            this.len = len;
+        }
+
+        public int length() {
+            return len;
+        }
+
+        long end() {
+            return addr + len;
+        }
+
+        /**
+         * Fan a span buffer back out to the requests it covers.
+         */
+        void dispatch(byte[] buf) throws IOException {
+            for (Request r : requests) r.sink.accept(r.addr, buf, (int) (r.addr - addr), r.len);
+        }
+    }
+}
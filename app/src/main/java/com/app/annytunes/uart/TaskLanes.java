@@ -0,0 +1,158 @@
+package com.app.annytunes.uart;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Priority lanes for the comms thread, each FIFO. {@link #take} serves INTERACTIVE, then
+ * CONTROL, then the two bulk read lanes in alternation (so a zone load is not starved by a
+ * channel load or vice versa), then WRITE, and FINAL only once nothing else can run.
+ * INTERACTIVE tasks may additionally be pulled with {@link #pollUrgent} between frames of a
+ * running transfer; CONTROL tasks (port restarts) only ever run between tasks.
+ * <p>
+ * Memory order per address is kept across lanes: a task never starts while a write submitted
+ * before it and touching any of its bytes is still pending (queued, running or parked in a
+ * suspended session). So an interactive edit may jump queued reads and unrelated bulk writes,
+ * but not an earlier bulk write to the same record, and a read sees every write queued before
+ * it. Writes are pending from their first {@link #put} until {@link #done}.
+ */
+final class TaskLanes<T extends TaskLanes.Entry> {
+    enum Lane {INTERACTIVE, CONTROL, CHANNEL_READ, ZONE_READ, WRITE, FINAL}
+
+    /**
+     * What the lanes need to order a task: whether it writes, and the address ranges it reads
+     * or writes as {@code start, end} pairs (none for commands such as a handshake).
+     */
+    abstract static class Entry {
+        final boolean writes;
+        final long[] ranges;
+        long seq = -1; // submission order, assigned on the first put
+
+        Entry(boolean writes, long[] ranges) {
+            this.writes = writes;
+            this.ranges = ranges;
+        }
+
+        boolean overlaps(Entry o) {
+            for (int i = 0; i < ranges.length; i += 2)
+                for (int j = 0; j < o.ranges.length; j += 2)
+                    if (ranges[i] < o.ranges[j + 1] && o.ranges[j] < ranges[i + 1]) return true;
+            return false;
+        }
+    }
+
+    private static final Lane[] LANES = Lane.values();
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<T>[] queues = new ArrayDeque[LANES.length];
+    private final ArrayList<T> pendingWrites = new ArrayList<>(); // in submission order
+    private long nextSeq;
+    private volatile int urgent; // runnable INTERACTIVE tasks, readable without the lock from transfer loops
+    private boolean zoneTurn;
+
+    TaskLanes() {
+        for (int i = 0; i < queues.length; i++) queues[i] = new ArrayDeque<>();
+    }
+
+    synchronized void put(Lane lane, T t) {
+        if (t.seq < 0) {
+            t.seq = nextSeq++;
+            if (t.writes) pendingWrites.add(t);
+        }
+        queues[lane.ordinal()].addLast(t);
+        changed();
+    }
+
+    /**
+     * Re-queue a partly done task at the head of its lane (used when a read yields its turn or a
+     * parked task resumes). It keeps its place in memory order.
+     */
+    synchronized void putFirst(Lane lane, T t) {
+        if (t.seq < 0) {
+            t.seq = nextSeq++;
+            if (t.writes) pendingWrites.add(t);
+        }
+        queues[lane.ordinal()].addFirst(t);
+        changed();
+    }
+
+    /**
+     * The task has finished, failed or been cancelled; later tasks touching its range may run.
+     * Not called for a task parked in a suspended session.
+     */
+    synchronized void done(T t) {
+        if (t.writes && pendingWrites.remove(t)) changed();
+    }
+
+    synchronized T take() throws InterruptedException {
+        T t;
+        while ((t = poll()) == null) wait();
+        return t;
+    }
+
+    boolean hasUrgent() {
+        return urgent > 0;
+    }
+
+    synchronized T pollUrgent() {
+        for (Iterator<T> it = queues[Lane.INTERACTIVE.ordinal()].iterator(); it.hasNext(); ) {
+            T t = it.next();
+            if (blocked(t)) continue;
+            it.remove();
+            changed();
+            return t;
+        }
+        return null;
+    }
+
+    /**
+     * True when the read lane other than {@code lane} has work waiting.
+     */
+    synchronized boolean otherReadWaiting(Lane lane) {
+        if (lane == Lane.CHANNEL_READ) return runnableHead(Lane.ZONE_READ);
+        if (lane == Lane.ZONE_READ) return runnableHead(Lane.CHANNEL_READ);
+        return false;
+    }
+
+    private T poll() {
+        T t = pollUrgent();
+        if (t != null) return t;
+        if ((t = pollHead(Lane.CONTROL)) != null) return t;
+        boolean ch = runnableHead(Lane.CHANNEL_READ);
+        boolean zn = runnableHead(Lane.ZONE_READ);
+        if (ch || zn) {
+            boolean zone = zn && (!ch || zoneTurn);
+            zoneTurn = !zone;
+            return pollHead(zone ? Lane.ZONE_READ : Lane.CHANNEL_READ);
+        }
+        if ((t = pollHead(Lane.WRITE)) != null) return t;
+        // Tasks still queued here wait on a parked write; shutdown does not wait for them
+        return queues[Lane.FINAL.ordinal()].pollFirst();
+    }
+
+    private boolean runnableHead(Lane lane) {
+        T t = queues[lane.ordinal()].peekFirst();
+        return t != null && !blocked(t);
+    }
+
+    private T pollHead(Lane lane) {
+        return runnableHead(lane) ? queues[lane.ordinal()].pollFirst() : null;
+    }
+
+    // An earlier write that is still pending touches the task's bytes
+    private boolean blocked(T t) {
+        if (t.ranges.length == 0) return false;
+        for (T w : pendingWrites) {
+            if (w.seq >= t.seq) return false;
+            if (w.overlaps(t)) return true;
+        }
+        return false;
+    }
+
+    private void changed() {
+        int n = 0;
+        for (T t : queues[Lane.INTERACTIVE.ordinal()]) if (!blocked(t)) n++;
+        urgent = n;
+        notifyAll();
+    }
+}
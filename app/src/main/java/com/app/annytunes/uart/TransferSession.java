@@ -0,0 +1,247 @@
+package com.app.annytunes.uart;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle for one multi-task transfer (a channel download, an upload...). Tasks submitted with a
+ * session can be cancelled together; if one fails on the link the session is SUSPENDED with its
+ * remaining tasks parked inside CommsThread, and {@link CommsThread#resume} continues from the
+ * checkpoint (next span of a read plan, first unacknowledged frame of a write) instead of
+ * starting over. Any other failure (a bug, a decoder rejecting data) cannot be resumed: the
+ * session is FAILED and its remaining tasks are dropped.
+ * <p>
+ * The checkpoint is also written to {@code sessions/<id>.ckpt} under the codeplug image store
+ * and removed once the session completes or is cancelled. Parked tasks do not survive a
+ * restart, so a leftover file cannot be resumed; {@link #loadInterrupted} picks it up at startup
+ * so the user learns the radio may hold a partial upload. Read progress itself survives a
+ * restart through the image cache.
+ */
+public final class TransferSession {
+    public enum State {ACTIVE, SUSPENDED, CANCELLED, FAILED, DONE}
+
+    private static final String TAG = "TransferSession";
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+    private static final List<String> interrupted = new ArrayList<>();
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final String label;
+    private volatile State state = State.ACTIVE;
+    private volatile boolean cancelRequested;
+    private volatile Throwable lastError;
+    final AtomicInteger pendingTasks = new AtomicInteger();
+    // Checkpoint: bytes confirmed so far and the last address range confirmed
+    private long doneBytes;
+    private long lastAddr = -1;
+    private int lastLen;
+    private final List<Runnable> onDone = new ArrayList<>();
+
+    TransferSession(String label) {
+        this.label = label;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Throwable getLastError() {
+        return lastError;
+    }
+
+    public synchronized long getDoneBytes() {
+        return doneBytes;
+    }
+
+    /**
+     * Start address of the last range confirmed on the radio, or -1 if none yet.
+     */
+    public synchronized long getCheckpointAddress() {
+        return lastAddr;
+    }
+
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    public int getPendingTasks() {
+        return pendingTasks.get();
+    }
+
+    /**
+     * Keep the session from completing while a producer is still submitting tasks for it (a
+     * streaming upload can momentarily have none queued). Pair with {@link #release()}.
+     */
+    public void hold() {
+        pendingTasks.incrementAndGet();
+    }
+
+    public void release() {
+        taskFinished();
+    }
+
+    /**
+     * Block until at most {@code maxTasks} tasks of this session are queued, so a producer can
+     * stay a bounded distance ahead of the radio. Also waits while the session is suspended;
+     * returns early once it is cancelled, failed or done.
+     */
+    public synchronized void awaitBacklog(int maxTasks) throws InterruptedException {
+        while (!cancelRequested && state != State.DONE && state != State.CANCELLED && state != State.FAILED
+                && (state == State.SUSPENDED || pendingTasks.get() > maxTasks)) {
+            wait();
+        }
+    }
+
+    /**
+     * Stop the transfer: queued tasks are dropped and a running one stops at its next frame
+     * boundary. Data already written stays on the radio.
+     */
+    public void cancel() {
+        cancelRequested = true;
+        CommsThread.getObj().dropSuspended(this);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Run {@code r} once every task of the session has gone through (right away if it already
+     * has), on the thread that finished the last one. Never runs if the session is cancelled or
+     * fails, so it suits bookkeeping that must only follow a complete transfer.
+     */
+    public void whenDone(Runnable r) {
+        synchronized (onDone) {
+            if (state != State.DONE) {
+                onDone.add(r);
+                return;
+            }
+        }
+        r.run();
+    }
+
+    // One task of this session left the queue for good; completes the session on the last one
+    int taskFinished() {
+        int left = pendingTasks.decrementAndGet();
+        if (left == 0 && state == State.ACTIVE && !cancelRequested) setState(State.DONE, null);
+        synchronized (this) {
+            notifyAll();
+        }
+        return left;
+    }
+
+    synchronized void checkpoint(long addr, int len) {
+        doneBytes += len;
+        lastAddr = addr;
+        lastLen = len;
+    }
+
+    void setState(State s, Throwable err) {
+        List<Runnable> run = null;
+        synchronized (onDone) {
+            state = s;
+            if (s == State.DONE && !onDone.isEmpty()) {
+                run = new ArrayList<>(onDone);
+                onDone.clear();
+            }
+        }
+        if (err != null) lastError = err;
+        persist();
+        synchronized (this) {
+            notifyAll();
+        }
+        if (run != null) {
+            for (Runnable r : run) {
+                try {
+                    r.run();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, this + ": completion hook failed: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read and remove the checkpoints left by sessions that were still active or suspended when
+     * the app stopped. Call once at startup, after {@link CodeplugImage#setStoreDir} and before
+     * any session is created (ids restart at 1).
+     */
+    public static void loadInterrupted() {
+        File dir = CodeplugImage.storeDir();
+        File[] files = dir == null ? null : new File(dir, "sessions").listFiles((d, n) -> n.endsWith(".ckpt"));
+        if (files == null) return;
+        for (File f : files) {
+            Properties p = new Properties();
+            try (Reader r = new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8)) {
+                p.load(r);
+                String msg = p.getProperty("label", "transfer") + " was " + p.getProperty("state", "ACTIVE").toLowerCase(java.util.Locale.ROOT)
+                        + " at " + p.getProperty("lastAddr", "?") + " after " + p.getProperty("doneBytes", "0") + " bytes";
+                String err = p.getProperty("error");
+                synchronized (interrupted) {
+                    interrupted.add(err != null ? msg + " (" + err + ")" : msg);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Checkpoint load failed: " + f + ": " + e.getMessage());
+            }
+            if (!f.delete()) Log.w(TAG, "Could not remove " + f);
+        }
+    }
+
+    /**
+     * Descriptions of the transfers {@link #loadInterrupted} found; each is handed out once.
+     */
+    public static List<String> takeInterrupted() {
+        synchronized (interrupted) {
+            List<String> out = new ArrayList<>(interrupted);
+            interrupted.clear();
+            return out;
+        }
+    }
+
+    private void persist() {
+        File dir = CodeplugImage.storeDir();
+        if (dir == null) return;
+        File f = new File(new File(dir, "sessions"), id + ".ckpt");
+        if (state == State.DONE || state == State.CANCELLED) {
+            f.delete();
+            return;
+        }
+        f.getParentFile().mkdirs();
+        String body;
+        synchronized (this) {
+            body = "id=" + id + "\nlabel=" + label + "\nstate=" + state + "\ndoneBytes=" + doneBytes
+                    + String.format("\nlastAddr=0x%08X\nlastLen=%d\n", lastAddr, lastLen)
+                    + (lastError != null ? "error=" + lastError.getMessage() + "\n" : "");
+        }
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8)) {
+            w.write(body);
+        } catch (IOException e) {
+            Log.w(TAG, "Checkpoint save failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "session#" + id + " " + label + " " + state + " (" + getDoneBytes() + " bytes done)";
+    }
+}
@@ -0,0 +1,167 @@
+package com.app.annytunes.uart;
+
+import android.util.Log;
+
+import com.app.annytunes.uart.channels.ChannelView;
+import com.app.annytunes.uart.zones.Zone;
+import com.app.annytunes.ui.ChannelTransferActivity;
+import com.app.annytunes.ui.ZoneActivity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects decoded records and progress from the comms thread and hands them to the activities
+ * in batches, at most ~30 times a second (sooner once a batch fills up or a transfer completes).
+ * Progress is coalesced to the latest value. Producers only append under a short lock; the
+ * activity callbacks, and therefore every runOnUiThread post, happen on a private flush thread,
+ * so the comms thread never waits on the main looper. Whether the channel activity exists is
+ * decided at flush time; batches it cannot take go to the {@code undelivered} sink instead.
+ */
+final class UiDispatcher {
+    private static final String TAG = "UiDispatcher";
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+    private static final int MAX_BATCH = 512; // records per flush before flushing early
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "UiDispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Object lock = new Object();
+    private final Consumer<List<ChannelView>> undelivered;
+
+    // Pending state, guarded by lock
+    private ArrayList<ChannelView> views = new ArrayList<>();
+    private int chanSoFar, chanTotal;
+    private boolean chanPending;
+    private ArrayList<Zone> zones = new ArrayList<>();
+    private int zoneSoFar, zoneTotal;
+    private boolean zonesPending;
+    private int progSoFar, progTotal;
+    private boolean progPending;
+    private boolean scheduled;
+    private boolean scheduledUrgent;
+    private long scheduledGen; // a flush runs only if it is still the latest one scheduled
+    private long lastFlushNanos;
+
+    UiDispatcher(Consumer<List<ChannelView>> undelivered) {
+        this.undelivered = undelivered;
+    }
+
+    void channels(List<ChannelView> decoded, int soFar, int total) {
+        boolean urgent;
+        synchronized (lock) {
+            views.addAll(decoded);
+            chanSoFar = soFar;
+            chanTotal = total;
+            chanPending = true;
+            urgent = views.size() >= MAX_BATCH || (total > 0 && soFar >= total);
+        }
+        request(urgent);
+    }
+
+    void zone(Zone z, int soFar, int total) {
+        boolean urgent;
+        synchronized (lock) {
+            zones.add(z);
+            zoneSoFar = soFar;
+            zoneTotal = total;
+            zonesPending = true;
+            urgent = zones.size() >= MAX_BATCH || (total > 0 && soFar >= total);
+        }
+        request(urgent);
+    }
+
+    void zoneProgress(int soFar, int total) {
+        synchronized (lock) {
+            progSoFar = soFar;
+            progTotal = total;
+            progPending = true;
+        }
+        request(total > 0 && soFar >= total);
+    }
+
+    // One flush pending at a time; an urgent request only supersedes a delayed one
+    private void request(boolean urgent) {
+        long delay, gen;
+        synchronized (lock) {
+            if (scheduled && (scheduledUrgent || !urgent)) return;
+            scheduled = true;
+            scheduledUrgent = urgent;
+            gen = ++scheduledGen;
+            delay = urgent ? 0 : Math.max(0, lastFlushNanos + MIN_INTERVAL_NANOS - System.nanoTime());
+        }
+        flusher.schedule(() -> flush(gen), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private void flush(long gen) {
+        List<ChannelView> v = null;
+        List<Zone> z = null;
+        int cs, ct, zs, zt, ps, pt;
+        boolean prog;
+        synchronized (lock) {
+            if (gen != scheduledGen) return; // superseded by an urgent flush
+            scheduled = false;
+            lastFlushNanos = System.nanoTime();
+            if (chanPending) {
+                v = views;
+                views = new ArrayList<>();
+                chanPending = false;
+            }
+            if (zonesPending) {
+                z = zones;
+                zones = new ArrayList<>();
+                zonesPending = false;
+            }
+            prog = progPending;
+            progPending = false;
+            cs = chanSoFar;
+            ct = chanTotal;
+            zs = zoneSoFar;
+            zt = zoneTotal;
+            ps = progSoFar;
+            pt = progTotal;
+        }
+        if (v != null) {
+            ChannelTransferActivity a = channelActivity();
+            if (a == null) {
+                undelivered.accept(v);
+            } else {
+                try {
+                    a.onChannelViewsDecoded(v, cs, ct);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Channel delivery failed: " + e);
+                }
+            }
+        }
+        ZoneActivity za = (z != null || prog) ? zoneActivity() : null;
+        if (za == null) return; // zones still land in ZoneMembership; nothing to show them
+        try {
+            if (z != null) za.onZonesDecoded(z, zs, zt);
+            if (prog) za.progress(ps, pt);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Zone delivery failed: " + e);
+        }
+    }
+
+    private static ChannelTransferActivity channelActivity() {
+        try {
+            return ChannelTransferActivity.getObj();
+        } catch (IllegalStateException notOpen) {
+            return null;
+        }
+    }
+
+    private static ZoneActivity zoneActivity() {
+        try {
+            return ZoneActivity.getObj();
+        } catch (IllegalStateException notOpen) {
+            return null;
+        }
+    }
+}
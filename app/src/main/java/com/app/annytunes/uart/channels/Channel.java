@@ -1,69 +1,82 @@
 package com.app.annytunes.uart.channels;
 
 public class Channel {
+    public static final int CONTACT_UNRESOLVED = -1; // contactId: keep the contact the radio has
+
+    // channelType, as stored in the record's two type bits
+    public static final int TYPE_ANALOG = 0;
+    public static final int TYPE_DIGITAL = 1;
+    public static final int TYPE_A_D = 2; // mixed, transmits analog
+    public static final int TYPE_D_A = 3; // mixed, transmits digital
+    public static final int TYPE_UNKNOWN = -1; // type bits not decoded (see ChannelLayout)
+    /** CPS CSV label per channel type. */
+    public static final String[] TYPE_LABELS = {"A-Analog", "D-Digital", "A+D TX A", "D+A TX D"};
+    /** Short label per channel type for lists and the edit dialog. */
+    public static final String[] TYPE_NAMES = {"Analog", "Digital", "A+D", "D+A"};
+
     public String name;       // ASCII (model-dependent length, commonly 16)
     public long rxHz;         // RX frequency in Hz
     public long txHz;         // TX frequency in Hz
-    public boolean digital;   // true=DMR, false=Analog
+    public int channelType;   // TYPE_ANALOG, TYPE_DIGITAL, TYPE_A_D, TYPE_D_A or TYPE_UNKNOWN
     public int colorCode;     // DMR CC 0..15
     public int timeslot;      // 1 or 2 for DMR
-    public int contactId;     // DMR TG/priv id
+    public int contactId;     // DMR TG/priv id, or CONTACT_UNRESOLVED
     public String contactName;
     public int radioIdIndex;
     public double bandwidthKHz;
     public String admit;
     public int power;
     public boolean edited; // user edited marker
-    // CSV extended fields (added per full header); many are not yet parsed from radio memory
-    public String ctcssDecode;        // CTCSS/DCS Decode (MISSING: not parsed)
-    public String ctcssEncode;        // CTCSS/DCS Encode (MISSING: not parsed)
-    public String contactCallType;    // Contact Call Type (MISSING)
-    public String squelchMode;        // Squelch Mode (MISSING)
-    public String optionalSignal;     // Optional Signal (MISSING)
-    public String dtmfId;             // DTMF ID (MISSING)
-    public String twoToneId;          // 2Tone ID (MISSING)
-    public String fiveToneId;         // 5Tone ID (MISSING)
-    public String pttId;              // PTT ID (MISSING)
-    public String scanList;           // Scan List (MISSING)
-    public String receiveGroupList;   // Receive Group List (MISSING)
-    public boolean pttProhibit;       // PTT Prohibit (MISSING)
-    public boolean reverse;           // Reverse (MISSING)
-    public String idleTx;             // Idle TX (MISSING)
-    public String slotSuit;           // Slot Suit (MISSING)
-    public boolean aesDigitalEncryption; // AES Digital Encryption (MISSING)
-    public boolean digitalEncryption;    // Digital Encryption (MISSING)
-    public boolean callConfirmation;     // Call Confirmation (MISSING)
-    public boolean talkAround;           // Talk Around(Simplex) (MISSING)
-    public boolean workAlone;            // Work Alone (MISSING)
-    public String customCtcss;           // Custom CTCSS (MISSING)
-    public String twoToneDecode;         // 2TONE Decode (MISSING)
-    public boolean ranging;              // Ranging (MISSING)
-    public boolean throughMode;          // Through Mode (MISSING)
-    public boolean aprsRx;               // APRS RX (MISSING)
-    public String analogAprsPttMode;     // Analog APRS PTT Mode (MISSING)
-    public String digitalAprsPttMode;    // Digital APRS PTT Mode (MISSING)
-    public String aprsReportType;        // APRS Report Type (MISSING)
-    public String digitalAprsReportChannel; // Digital APRS Report Channel (MISSING)
-    public long correctFrequencyHz;      // Correct Frequency[Hz] (MISSING)
-    public boolean smsConfirmation;      // SMS Confirmation (MISSING)
-    public boolean excludeFromRoaming;   // Exclude channel from roaming (MISSING)
-    public String dmrMode;               // DMR MODE (MISSING)
-    public boolean dataAckDisable;       // DataACK Disable (MISSING)
-    public String r5ToneBot;             // R5ToneBot (MISSING)
-    public String r5ToneEot;             // R5ToneEot (MISSING)
-    public boolean autoScan;             // Auto Scan (MISSING)
-    public boolean anaAprsMute;          // Ana Aprs Mute (MISSING)
-    public boolean sendTalkerAlias;      // Send Talker Aias (MISSING)
-    public String anaAprsTxPath;         // AnaAprsTxPath (MISSING)
-    public boolean arc4;                 // ARC4 (MISSING)
-    public String exEmgKind;             // ex_emg_kind (MISSING)
-    public String idle_tx;               // idle_tx (alternative naming) (MISSING)
-    public boolean compand;              // Compand (MISSING)
-    public boolean disturEn;             // DisturEn (MISSING)
-    public String disturFreq;            // DisturFreq (MISSING)
-    public String rpgaMdc;               // Rpga_Mdc (MISSING)
-    public boolean dmrCrcIgnore;         // dmr_crc_ignore (MISSING)
-    public int txColorCode;              // TxCc (MISSING separate TX color code)
+    // CSV extended fields (added per full header); offsets marked ASSUMED in ChannelLayout
+    public String ctcssDecode;        // CTCSS/DCS Decode
+    public String ctcssEncode;        // CTCSS/DCS Encode
+    public String contactCallType;    // Contact Call Type
+    public String squelchMode;        // Squelch Mode
+    public String optionalSignal;     // Optional Signal
+    public String dtmfId;             // DTMF ID
+    public String twoToneId;          // 2Tone ID
+    public String fiveToneId;         // 5Tone ID
+    public String pttId;              // PTT ID
+    public String scanList;           // Scan List
+    public String receiveGroupList;   // Receive Group List
+    public boolean pttProhibit;       // PTT Prohibit
+    public boolean reverse;           // Reverse
+    public String idleTx;             // Idle TX
+    public String slotSuit;           // Slot Suit
+    public boolean aesDigitalEncryption; // AES Digital Encryption
+    public boolean digitalEncryption;    // Digital Encryption
+    public boolean callConfirmation;     // Call Confirmation
+    public boolean talkAround;           // Talk Around(Simplex)
+    public boolean workAlone;            // Work Alone
+    public String customCtcss;           // Custom CTCSS
+    public String twoToneDecode;         // 2TONE Decode
+    public boolean ranging;              // Ranging
+    public boolean throughMode;          // Through Mode
+    public boolean aprsRx;               // APRS RX
+    public String analogAprsPttMode;     // Analog APRS PTT Mode
+    public String digitalAprsPttMode;    // Digital APRS PTT Mode
+    public String aprsReportType;        // APRS Report Type
+    public String digitalAprsReportChannel; // Digital APRS Report Channel
+    public long correctFrequencyHz;      // Correct Frequency[Hz]
+    public boolean smsConfirmation;      // SMS Confirmation
+    public boolean excludeFromRoaming;   // Exclude channel from roaming
+    public String dmrMode;               // DMR MODE
+    public boolean dataAckDisable;       // DataACK Disable
+    public String r5ToneBot;             // R5ToneBot
+    public String r5ToneEot;             // R5ToneEot
+    public boolean autoScan;             // Auto Scan
+    public boolean anaAprsMute;          // Ana Aprs Mute
+    public boolean sendTalkerAlias;      // Send Talker Aias
+    public String anaAprsTxPath;         // AnaAprsTxPath
+    public boolean arc4;                 // ARC4
+    public String exEmgKind;             // ex_emg_kind
+    public String idle_tx;               // idle_tx (alternative naming)
+    public boolean compand;              // Compand
+    public boolean disturEn;             // DisturEn
+    public String disturFreq;            // DisturFreq
+    public String rpgaMdc;               // Rpga_Mdc
+    public boolean dmrCrcIgnore;         // dmr_crc_ignore
+    public int txColorCode;              // TxCc (separate TX color code)
 
     private static String fmtHz(long hz) {
         if (hz <= 0) return "-";
@@ -71,6 +84,14 @@ public class Channel {
         return String.format(java.util.Locale.ROOT, "%.5f MHz", mhz);
     }
 
+    /**
+     * Short label for a channel type; "?" when unknown, an out-of-range value shows as its number.
+     */
+    public static String typeName(int type) {
+        if (type == TYPE_UNKNOWN) return "?";
+        return type >= 0 && type < TYPE_NAMES.length ? TYPE_NAMES[type] : Integer.toString(type);
+    }
+
     private static String powerLabel(int p) {
         switch (p) {
             case 0:
@@ -88,9 +109,9 @@ public class Channel {
 
     @Override
     public String toString() {
-        String mode = digital ? "DMR" : "Analog";
-        String cc = digital ? Integer.toString(colorCode) : "-";
-        String ts = digital ? Integer.toString(timeslot) : "-";
+        String mode = typeName(channelType);
+        String cc = channelType != TYPE_ANALOG ? Integer.toString(colorCode) : "-";
+        String ts = channelType != TYPE_ANALOG ? Integer.toString(timeslot) : "-";
         String pow = powerLabel(power);
         String adm = (admit == null || admit.isBlank()) ? "-" : admit;
         String bw = (bandwidthKHz > 0) ? String.format(java.util.Locale.ROOT, "%.1f", bandwidthKHz) : "-";
@@ -0,0 +1,116 @@
+package com.app.annytunes.uart.channels;
+
+import android.util.Log;
+
+import com.app.annytunes.uart.CommsThread;
+import com.app.annytunes.uart.TransferSession;
+import com.app.annytunes.uart.zonelistchannels.ZoneMembership;
+import com.app.annytunes.uart.zones.ZoneIo;
+import com.app.annytunes.uart.zones.ZoneSync;
+
+import java.io.IOException;
+
+/**
+ * Packs the occupied channel slots into channels 1..N, keeping their relative order, and
+ * renumbers every zone membership to match. Moved records are copied whole, so settings the
+ * codec does not model move with them; the upload runs in delta mode, so only slots whose
+ * content changes are written (plus the vacated ones past N), and only the membership blocks
+ * of zones that held a moved or dangling channel are rewritten. The membership blocks go out
+ * in the same session, after the channels, and the zone index takes the new numbers only
+ * once that session is done.
+ * <p>
+ * Scan lists also name their members by channel number, but this app does not read them, so
+ * nothing is moved while any channel has a scan list assigned (the scan list byte is
+ * ASSUMED).
+ * <p>
+ * Needs the full channel list as downloaded (edits included) and the zone membership index; if
+ * zones have not been read yet their memberships are loaded first. Blocking; run it off the UI
+ * thread.
+ */
+public final class ChannelCompactor {
+    private static final String TAG = "ChannelCompactor";
+    private static final long ZONE_LOAD_TIMEOUT_MS = 60_000;
+
+    public static final class Result {
+        public final int channels;        // occupied slots, now 1..channels
+        public final int moved;           // channels whose number changed
+        public final int[] newNumber;     // old number -> new number, 0 for an empty slot
+        public final int[] zones;         // zones whose membership is rewritten (1-based)
+        public final ChannelViewList list; // the compacted list, empty slots at the end
+        public final TransferSession session; // null when nothing had to move; zones follow once it is done
+
+        Result(int channels, int moved, int[] newNumber, int[] zones, ChannelViewList list, TransferSession session) {
+            this.channels = channels;
+            this.moved = moved;
+            this.newNumber = newNumber;
+            this.zones = zones;
+            this.list = list;
+            this.session = session;
+        }
+    }
+
+    private ChannelCompactor() {
+    }
+
+    public static Result compact(ChannelViewList list) throws IOException {
+        ChannelIo io = ChannelIo.getObj();
+        int total = io.getTotalChannels();
+        if (list == null || list.size() < total)
+            throw new IOException("Read all channels before compacting");
+
+        // Current record of every slot; edited slots are encoded over the record as read
+        byte[] recs = new byte[total * ChannelIo.CH_OFFSET];
+        int[] newNumber = new int[total + 1];
+        int count = 0, moved = 0, scanUser = 0;
+        for (int i = 0; i < total; i++) {
+            int o = count * ChannelIo.CH_OFFSET;
+            Channel c = list.loaded(i);
+            ChannelView v = list.view(i);
+            if (c != null) {
+                byte[] rec = v != null ? io.encodeChannel(c, v.slab(), v.offset())
+                        : io.encodeChannel(c, ChannelIo.CH_OFFSET);
+                if (io.isEmptyRecord(rec, 0, ChannelIo.CH_OFFSET)) continue;
+                System.arraycopy(rec, 0, recs, o, ChannelIo.CH_OFFSET);
+            } else {
+                if (v == null || v.isEmpty()) continue;
+                System.arraycopy(v.slab(), v.offset(), recs, o, ChannelIo.CH_OFFSET);
+            }
+            if (scanUser == 0 && recs[o + ChannelLayout.SCAN_LIST_OFF] != 0) scanUser = i + 1;
+            newNumber[i + 1] = ++count;
+            if (count != i + 1) moved++;
+        }
+        if (moved == 0) {
+            Log.i(TAG, "Compact: " + count + " channel(s) already packed");
+            return new Result(count, 0, newNumber, new int[0], list, null);
+        }
+        if (scanUser != 0)
+            throw new IOException("Channel " + scanUser + " uses a scan list; scan lists are not renumbered, clear them before compacting");
+
+        // Zones must be known before anything is written, or their references would go stale
+        ZoneMembership index = ZoneMembership.getObj();
+        try {
+            if (!index.isLoaded()) CommsThread.getObj().submitZoneMembershipLoad(ZoneIo.getTotalZones());
+            if (!index.awaitLoaded(ZONE_LOAD_TIMEOUT_MS))
+                throw new IOException("Timed out reading zone memberships");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted reading zone memberships", e);
+        }
+
+        // New member lists are queued behind the channels; the index follows only if all of it lands
+        int[] zones = index.zonesRenumberedBy(newNumber);
+        int[][] members = new int[zones.length][];
+        for (int k = 0; k < zones.length; k++) members[k] = index.renumbered(zones[k], newNumber);
+        final int n = count;
+        TransferSession s = io.writeChannels(false, up -> {
+            for (int k = 0; k < n; k++) up.putRaw(recs, k * ChannelIo.CH_OFFSET);
+            ZoneSync.writeMemberships(zones, members, up::writeAfter);
+        });
+        s.whenDone(() -> index.renumber(newNumber));
+        Log.i(TAG, "Compact: " + count + " channel(s), " + moved + " moved, " + zones.length + " zone(s) to renumber");
+
+        ChannelViewList out = new ChannelViewList();
+        out.addViews(ChannelView.wrapBank(recs, 0, total, ChannelIo.CH_OFFSET));
+        return new Result(count, moved, newNumber, zones, out, s);
+    }
+}
@@ -3,7 +3,11 @@ package com.app.annytunes.uart.channels;
 import android.util.Log;
 
 import com.app.annytunes.uart.Bank;
+import com.app.annytunes.uart.CodeplugImage;
 import com.app.annytunes.uart.CommsThread;
+import com.app.annytunes.uart.ReadPlanner;
+import com.app.annytunes.uart.TransferSession;
+import com.app.annytunes.uart.contacts.TalkGroupIo;
 
 import java.io.IOException;
 import java.util.List;
@@ -50,6 +54,13 @@ public class ChannelIo {
     private static final String TAG = "ChannelIo";
     private static final Object TRANSFER_LOCK = new Object();
     private static ChannelIo instance;
+    // Channel-used bitmap, ASSUMED (needs confirmation with a CPS dump): bit (n-1)%8 of byte
+    // (n-1)/8 is set when channel n holds a channel; 4000 bits padded to 0x200 bytes. Bits past
+    // the last channel are left as the radio has them.
+    public static final long OCCUPANCY_ADDR = 0x024C1500L;
+    static final int OCCUPANCY_LEN = 0x200;
+    private byte[] occupancy;                  // last bitmap read or written, null if unknown
+    private volatile int[] skippedSlots = new int[0];
 
     // Change to no-arg constructor that pulls UART from AnytoneUart singleton
     public ChannelIo() {
@@ -81,158 +92,500 @@ public class ChannelIo {
         return total;
     }
 
-    public void writeAllChannels(List<Channel> chans) throws IOException {
-        synchronized (TRANSFER_LOCK) {
+    /**
+     * Also decode and write the channel settings whose record offsets are ASSUMED (see
+     * ChannelLayout). Off by default, so an upload replaces only the confirmed fields and
+     * leaves the rest of each record as the radio has it.
+     */
+    public void setAssumedFieldsEnabled(boolean on) {
+        ChannelLayout.setAssumedFields(on);
+    }
+
+    public TransferSession writeAllChannels(List<Channel> chans) throws IOException {
+        return writeAllChannels(chans, false);
+    }
+
+    /**
+     * Encodes every bank and uploads it. Records the radio image CommsThread keeps are encoded
+     * over their cached bytes, so settings the codec does not model are written back as read.
+     * Unless {@code fullRewrite} is set, banks present in the image are diffed record by record
+     * and only runs of changed records are written; banks the image does not cover are written
+     * whole.
+     */
+    public TransferSession writeAllChannels(List<Channel> chans, boolean fullRewrite) throws IOException {
+        if (chans == null || chans.isEmpty()) {
+            throw new IOException("Channel list is empty, nothing to write");
+        }
+        return writeBanks(chans.size(), chans::get, fullRewrite);
+    }
 
-            if (chans == null || chans.isEmpty()) {
-                throw new IOException("Channel list is empty, nothing to write");
+    private TransferSession writeBanks(int count, java.util.function.IntFunction<Channel> rowAt, boolean fullRewrite) throws IOException {
+        return writeChannels(fullRewrite, up -> {
+            for (int i = 0; i < count; i++) up.put(rowAt.apply(i));
+        });
+    }
+
+    /**
+     * Feeds an upload slot by slot; see {@link #writeChannels}.
+     */
+    public interface RecordSource {
+        void feed(BankUpload up) throws IOException;
+    }
+
+    /**
+     * Upload whatever {@code src} feeds, from channel 1 on; slots after the last one fed are
+     * cleared. Each bank is submitted as soon as its last slot arrives, so a source that parses
+     * as it goes overlaps with the transfer. Same image and delta rules as
+     * {@link #writeAllChannels(List, boolean)}.
+     */
+    public TransferSession writeChannels(boolean fullRewrite, RecordSource src) throws IOException {
+        synchronized (TRANSFER_LOCK) {
+            BankUpload up = new BankUpload(fullRewrite);
+            // Banks already sent may all be acknowledged before the next one is queued; the hold
+            // keeps the session from completing until every write is in
+            up.session.hold();
+            try {
+                src.feed(up);
+                up.finish();
+            } finally {
+                up.session.release();
             }
-            final int perChunk = 0xFF / CH_OFFSET;
-            int bankCount = getBankCount();
-            int globalIndex = 0;
-            CommsThread comms = CommsThread.getObj();
-            for (int bank = 0; bank < bankCount; bank++) {
-                Bank bk = getBank(bank);
-                long bankBase = bk.address;
-                int perBank = bk.channels;
-                for (int i = 0; i < perBank; i += perChunk) {
-                    int recsThis = Math.min(perChunk, perBank - i);
-                    int bytesThis = recsThis * CH_OFFSET;
-                    byte[] chunk = new byte[bytesThis];
-                    for (int r = 0; r < recsThis; r++) {
-                        Channel c = (globalIndex < chans.size()) ? chans.get(globalIndex) : new Channel();
-                        byte[] rec = encodeChannel(c, CH_OFFSET);
-                        System.arraycopy(rec, 0, chunk, r * CH_OFFSET, CH_OFFSET);
-                        globalIndex++;
-                    }
-                    long addr = bankBase + (long) i * CH_OFFSET;
-                    if (DEBUG)
-                        Log.d(TAG, String.format("TX chunk submit bank=%d addr=0x%08X recs=%d bytes=%d", bank, (int) addr, recsThis, bytesThis));
-                    try {
-                        comms.submitWrite(addr, chunk);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted while submitting write chunk", e);
-                    }
+            return up.session;
+        }
+    }
+
+    /**
+     * One channel upload in progress, filled in slot order. Records are merged over the cached
+     * radio bytes where the image has them (only the bits the channel sets are replaced).
+     */
+    public final class BankUpload {
+        private final CommsThread comms = CommsThread.getObj();
+        private final TransferSession session = comms.beginSession("channel upload");
+        private final CodeplugImage base = comms.getCodeplugImage();
+        private final CodeplugImage img; // delta source, null for a full rewrite
+        private final byte[] scratch = new byte[CH_OFFSET];
+        private final byte[] scratchWritten = new byte[CH_OFFSET];
+        private int bank = -1;
+        private Bank bk;
+        private byte[] chunk;
+        private boolean bankCached;
+        private int slot;     // next slot in the current bank
+        private int fed;      // slots fed so far
+        private int firstFed; // value of fed when the current bank started
+        private int written;
+        private int dropped;  // slots fed past the last bank
+        private final byte[] before; // channel-used bitmap as the radio has it, null if unknown
+        private final byte[] used;   // and as this upload leaves it
+        private final List<Long> afterAddr = new java.util.ArrayList<>(); // writeAfter() queue
+        private final List<byte[]> afterData = new java.util.ArrayList<>();
+
+        private BankUpload(boolean fullRewrite) {
+            img = fullRewrite ? null : base;
+            before = knownOccupancy(base);
+            used = before == null ? null : before.clone();
+            if (used != null) for (int ch = 1; ch <= getTotalChannels(); ch++) setOccupied(used, ch, false);
+        }
+
+        /**
+         * Number of slots fed so far.
+         */
+        public int size() {
+            return fed;
+        }
+
+        public void put(Channel c) throws IOException {
+            java.util.Arrays.fill(scratch, (byte) 0);
+            java.util.Arrays.fill(scratchWritten, (byte) 0);
+            ChannelLayout.encode(c == null ? new Channel() : c, scratch, 0, scratchWritten, 0);
+            putEncoded(scratch, 0, scratchWritten, 0);
+        }
+
+        /**
+         * Next slot from a record encoded over zeros, with the bits that encode wrote (see
+         * ChannelLayout.encode); every other bit of the slot keeps the radio's value. Slots
+         * beyond the last bank are dropped.
+         */
+        public void putEncoded(byte[] enc, int off, byte[] written, int writtenOff) throws IOException {
+            if (!ensureSlot()) return;
+            int o = slot * CH_OFFSET;
+            if (!bankCached && base != null && base.covers(bk.address + o, CH_OFFSET))
+                base.copyOut(bk.address + o, chunk, o, CH_OFFSET);
+            if (isEmptyRecord(chunk, o, CH_OFFSET)) {
+                System.arraycopy(enc, off, chunk, o, CH_OFFSET);
+            } else {
+                for (int i = 0; i < CH_OFFSET; i++) {
+                    int m = written[writtenOff + i];
+                    chunk[o + i] = (byte) ((chunk[o + i] & ~m) | (enc[off + i] & m));
                 }
             }
+            fed++;
+            if (++slot == bk.channels) submitBank();
+        }
+
+        /**
+         * Next slot from a complete record taken as-is (no merge over the cached bytes), for
+         * moving a record from another slot with its unmodelled settings intact.
+         */
+        public void putRaw(byte[] rec, int off) throws IOException {
+            if (!ensureSlot()) return;
+            System.arraycopy(rec, off, chunk, slot * CH_OFFSET, CH_OFFSET);
+            fed++;
+            if (++slot == bk.channels) submitBank();
+        }
+
+        /**
+         * Queue a write to another table in this upload's session, sent after every channel
+         * and bitmap write, so it only reaches the radio once the channels have.
+         */
+        public void writeAfter(long addr, byte[] data) {
+            afterAddr.add(addr);
+            afterData.add(data);
+        }
+
+        private boolean ensureSlot() {
+            if (chunk != null) return true;
+            if (bank + 1 >= getBankCount()) {
+                dropped++;
+                return false;
+            }
+            bk = getBank(++bank);
+            chunk = new byte[bk.channels * CH_OFFSET];
+            slot = 0;
+            firstFed = fed;
+            bankCached = base != null && base.covers(bk.address, chunk.length);
+            if (bankCached) base.copyOut(bk.address, chunk, 0, chunk.length);
+            return true;
+        }
+
+        // Clear the rest of the current bank and every later bank
+        private void finish() throws IOException {
+            int listed = fed;
+            if (listed == 0) throw new IOException("Channel list is empty, nothing to write");
+            if (dropped > 0) Log.w(TAG, "TX channels: " + dropped + " record(s) past the last bank dropped");
+            while (chunk != null || ensureSlot()) {
+                // Past the end of the list: an empty slot, whatever the radio held
+                java.util.Arrays.fill(chunk, slot * CH_OFFSET, chunk.length, (byte) 0);
+                submitBank(listed);
+            }
+            if (DEBUG) Log.d(TAG, "TX channels: " + written + "/" + getTotalChannels() + " record(s) written");
+            writeOccupancy();
+            for (int k = 0; k < afterData.size(); k++)
+                submitChunk(comms, session, afterAddr.get(k), afterData.get(k));
+        }
+
+        // Bitmap last, once every slot is known, and only if it changed. Without a copy of the
+        // old one the bits past the last channel are unknown, so it is left alone.
+        private void writeOccupancy() throws IOException {
+            if (used == null) {
+                Log.w(TAG, "TX channels: used bitmap not read yet, left unchanged");
+                return;
+            }
+            byte[] old = img != null ? knownOccupancy(img) : null;
+            synchronized (ChannelIo.this) {
+                // Slots edited since their bank was queued: the edit's record is written after
+                // the bank's, so its bit wins over this upload's
+                if (occupancy != null)
+                    for (int ch = 1; ch <= getTotalChannels(); ch++) setOccupied(used, ch, isOccupied(occupancy, ch));
+                occupancy = used.clone();
+            }
+            if (old != null && java.util.Arrays.equals(old, used)) return;
+            submitChunk(comms, session, OCCUPANCY_ADDR, used);
+        }
+
+        private void submitBank() throws IOException {
+            submitBank(Integer.MAX_VALUE);
+        }
+
+        private void submitBank(int listed) throws IOException {
+            markBank(used, bk, chunk);
+            synchronized (ChannelIo.this) {
+                if (occupancy != null) markBank(occupancy, bk, chunk);
+            }
+            int inList = (int) Math.min((long) bk.channels, Math.max(0L, (long) listed - firstFed));
+            byte[] radio = radioBank();
+            if (radio != null) {
+                written += submitBankDelta(comms, session, radio, bk, chunk, inList);
+            } else {
+                if (DEBUG)
+                    Log.d(TAG, String.format("TX bank submit bank=%d addr=0x%08X recs=%d bytes=%d", bank, (int) bk.address, bk.channels, chunk.length));
+                submitChunk(comms, session, bk.address, chunk);
+                written += bk.channels;
+            }
+            chunk = null;
+        }
+
+        // The current bank as the radio holds it: the image copy or, for a bank the last download
+        // only read in part, its used records from the image and empty slots where the bitmap has
+        // no bit. Null if unknown, in which case the bank is written whole.
+        private byte[] radioBank() {
+            if (img == null) return null;
+            byte[] radio = new byte[chunk.length];
+            if (img.covers(bk.address, chunk.length)) {
+                img.copyOut(bk.address, radio, 0, radio.length);
+                return radio;
+            }
+            if (before == null) return null;
+            for (int r = 0; r < bk.channels; r++) {
+                if (!isOccupied(before, bk.startChannel + r)) continue;
+                long a = bk.address + (long) r * CH_OFFSET;
+                if (!img.covers(a, CH_OFFSET)) return null;
+                img.copyOut(a, radio, r * CH_OFFSET, CH_OFFSET);
+            }
+            return radio;
+        }
+    }
+
+    // Bitmap from the image, else the last one read or written; null if neither is known
+    private byte[] knownOccupancy(CodeplugImage img) {
+        if (img != null && img.covers(OCCUPANCY_ADDR, OCCUPANCY_LEN)) {
+            byte[] map = new byte[OCCUPANCY_LEN];
+            img.copyOut(OCCUPANCY_ADDR, map, 0, OCCUPANCY_LEN);
+            return map;
+        }
+        synchronized (this) {
+            return occupancy == null ? null : occupancy.clone();
+        }
+    }
+
+    private void markBank(byte[] map, Bank bk, byte[] chunk) {
+        if (map == null) return;
+        for (int r = 0; r < bk.channels; r++)
+            setOccupied(map, bk.startChannel + r, !isEmptyRecord(chunk, r * CH_OFFSET, CH_OFFSET));
+    }
+
+    /**
+     * Diffs one encoded bank against what the radio holds and submits each run of adjacent changed
+     * records as a single write. Records are compared in canonical form (the cached record decoded
+     * and re-encoded) so bytes this codec does not model never count as a change. Slots past the
+     * end of the list ({@code listed} onwards) are only written if the radio holds a channel there.
+     * Returns the number of records submitted.
+     */
+    private int submitBankDelta(CommsThread comms, TransferSession session, byte[] radio, Bank bk, byte[] chunk, int listed) throws IOException {
+        int submitted = 0;
+        int runStart = -1;
+        for (int r = 0; r <= bk.channels; r++) {
+            boolean changed = r < bk.channels && recordChanged(chunk, radio, r * CH_OFFSET, r >= listed);
+            if (changed && runStart < 0) runStart = r;
+            if (!changed && runStart >= 0) {
+                int from = runStart * CH_OFFSET;
+                int len = (r - runStart) * CH_OFFSET;
+                if (DEBUG)
+                    Log.d(TAG, String.format("TX delta addr=0x%08X recs=%d", (int) (bk.address + from), r - runStart));
+                submitChunk(comms, session, bk.address + from, java.util.Arrays.copyOfRange(chunk, from, from + len));
+                submitted += r - runStart;
+                runStart = -1;
+            }
+        }
+        return submitted;
+    }
+
+    private boolean recordChanged(byte[] chunk, byte[] radio, int off, boolean padding) {
+        if (isEmptyRecord(radio, off, CH_OFFSET)) return !padding && !isEmptyRecord(chunk, off, CH_OFFSET);
+        byte[] canon = encodeChannel(decodeChannel(radio, off, CH_OFFSET), radio, off);
+        for (int i = 0; i < CH_OFFSET; i++)
+            if (canon[i] != chunk[off + i]) return true;
+        return false;
+    }
+
+    private void submitChunk(CommsThread comms, TransferSession session, long addr, byte[] chunk) throws IOException {
+        try {
+            comms.submitWrite(addr, chunk, session);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while submitting write chunk", e);
         }
     }
 
     public Channel decodeChannel(byte[] slab, int recOff, int recSize) {
         Channel c = new Channel();
+        decodeInto(slab, recOff, recSize, c);
+        return c;
+    }
+
+    // Overwrites every field ChannelLayout describes, i.e. everything but contactName (resolved
+    // from the talk-group index; a contact the index lacks is named by its ID, which the CSV
+    // import reads back as that ID) and the edited flag
+    void decodeInto(byte[] slab, int recOff, int recSize, Channel c) {
         if (slab == null || recOff < 0 || recSize < 64 || slab.length < recOff + recSize || isEmptyRecord(slab, recOff, recSize)) {
-            c.name = "";
-            c.rxHz = 0;
-            c.txHz = 0;
-            c.digital = false;
-            c.colorCode = 0;
-            c.timeslot = 0;
-            c.contactId = 0;
+            ChannelLayout.clear(c);
             c.contactName = "";
-            c.radioIdIndex = 0;
-            c.bandwidthKHz = 0.0;
-            c.admit = "";
-            c.power = 0;
-            return c;
-        }
-        long rxHz = bcd4_to_hz(slab, recOff);
-        long shift = bcd4_to_hz(slab, recOff + 0x04);
-        c.rxHz = rxHz;
-        boolean ts1 = (slab[recOff + 0x34] & 0x08) != 0;
-        c.timeslot = ts1 ? 1 : 2;
-        c.digital = true;
-        c.colorCode = slab[recOff + 0x11] & 0x0F;
-        c.contactId = (slab[recOff + 0x18] & 0xFF) | ((slab[recOff + 0x19] & 0xFF) << 8) | ((slab[recOff + 0x1A] & 0xFF) & 0xFF) << 16;
-        c.radioIdIndex = slab[recOff + 0x1F] & 0xFF;
-        c.power = slab[recOff + 0x20] & 0xFF;
-        c.bandwidthKHz = ((slab[recOff + 0x1E] & 0xFF) == 1) ? 25.0 : 12.5;
-        int admit = slab[recOff + 0x1D] & 0xFF;
-        switch (admit) {
-            case 1:
-                c.admit = "CC Free";
-                break;
-            case 2:
-                c.admit = "Channel Free";
-                break;
-            default:
-                c.admit = "Always";
-                break;
+            return;
         }
-        int nameEnd = recOff + 0x23;
-        while (nameEnd < recOff + recSize && slab[nameEnd] != 0) nameEnd++;
-        c.name = new String(slab, recOff + 0x23, Math.max(0, nameEnd - (recOff + 0x23)), java.nio.charset.StandardCharsets.ISO_8859_1).trim();
-        c.txHz = (shift > 0) ? (c.rxHz - shift) : c.rxHz;
-        c.contactName = "";
-        return c;
+        ChannelLayout.decode(slab, recOff, c);
+        String name = TalkGroupIo.index().nameOf(c.contactId);
+        c.contactName = name.isEmpty() && c.contactId != 0 ? Integer.toString(c.contactId) : name;
     }
 
-    // Re-added instance encodeChannel method (previously removed by refactor)
     public byte[] encodeChannel(Channel c, int recSize) {
         if (c == null) c = new Channel();
-        byte[] raw = new byte[recSize];
-        hz_to_bcd4(c.rxHz, raw, 0x00);
-        long shift = 0;
-        if (c.txHz != 0 && c.txHz != c.rxHz) {
-            long d = c.rxHz - c.txHz;
-            if (d > 0) shift = d;
-            else shift = 0;
-        }
-        hz_to_bcd4(shift, raw, 0x04);
-        raw[0x11] = (byte) (c.colorCode & 0x0F);
-        if (c.timeslot == 1) raw[0x34] |= 0x08;
-        else raw[0x34] &= ~0x08;
-        raw[0x18] = (byte) (c.contactId & 0xFF);
-        raw[0x19] = (byte) ((c.contactId >> 8) & 0xFF);
-        raw[0x1A] = (byte) ((c.contactId >> 16) & 0xFF);
-        raw[0x1F] = (byte) (c.radioIdIndex & 0xFF);
-        raw[0x1E] = (byte) ((c.bandwidthKHz >= 25.0) ? 1 : 0);
-        int admitVal;
-        String adm = (c.admit == null) ? "" : c.admit.trim();
-        if (adm.equalsIgnoreCase("CC Free")) admitVal = 1;
-        else if (adm.equalsIgnoreCase("Channel Free")) admitVal = 2;
-        else admitVal = 0;
-        raw[0x1D] = (byte) admitVal;
-        raw[0x20] = (byte) Math.max(0, Math.min(3, c.power));
-        byte[] name = (c.name == null ? new byte[0] : c.name.getBytes(java.nio.charset.StandardCharsets.ISO_8859_1));
-        int maxName = Math.max(0, recSize - 0x23);
-        int nlen = Math.min(name.length, Math.max(0, maxName - 1));
-        if (nlen > 0) System.arraycopy(name, 0, raw, 0x23, nlen);
-        if (maxName > 0) {
-            int termPos = 0x23 + nlen;
-            if (termPos < raw.length) raw[termPos] = 0;
-        }
+        byte[] raw = new byte[Math.max(recSize, CH_OFFSET)];
+        ChannelLayout.encode(c, raw, 0);
+        return recSize < CH_OFFSET ? java.util.Arrays.copyOf(raw, recSize) : raw;
+    }
+
+    /**
+     * Read-modify-write encode: starts from the record at {@code base[baseOff]} as last read from
+     * the radio and overlays the fields the codec models, so every other byte is written back
+     * unchanged. A null or empty base encodes from zeros like {@link #encodeChannel(Channel, int)}.
+     */
+    public byte[] encodeChannel(Channel c, byte[] base, int baseOff) {
+        byte[] raw = new byte[CH_OFFSET];
+        if (base != null && baseOff >= 0 && base.length >= baseOff + CH_OFFSET)
+            System.arraycopy(base, baseOff, raw, 0, CH_OFFSET);
+        overlay(c == null ? new Channel() : c, raw, 0);
         return raw;
     }
 
+    /**
+     * The record at {@code addr} from the radio image, or null when it is not cached.
+     */
+    public byte[] cachedRecord(long addr) {
+        CodeplugImage img = CommsThread.getObj().getCodeplugImage();
+        if (img == null || addr < 0 || !img.covers(addr, CH_OFFSET)) return null;
+        byte[] rec = new byte[CH_OFFSET];
+        img.copyOut(addr, rec, 0, CH_OFFSET);
+        return rec;
+    }
+
+    // Encode c over the base record already in buf; an empty slot (all 0x00/0xFF) starts from zeros
+    private void overlay(Channel c, byte[] buf, int off) {
+        if (isEmptyRecord(buf, off, CH_OFFSET)) java.util.Arrays.fill(buf, off, off + CH_OFFSET, (byte) 0);
+        ChannelLayout.encode(c, buf, off);
+    }
+
 
-    // Submit read tasks for all banks without blocking; results delivered via CommsThread observer
-    public void readAllChannelsAsync() throws IOException {
+    /**
+     * Download every channel slot without blocking. The radio's channel-used bitmap is read first
+     * and only the slots it marks are fetched, as coalesced runs (empty banks are never read, so
+     * the download ends at the last used bank); the skipped slots are still delivered, as empty
+     * records, and listed by {@link #getSkippedSlots}. A bitmap with no bit or every bit set
+     * cannot be trusted and falls back to reading every bank.
+     */
+    public TransferSession readAllChannelsAsync() throws IOException {
         synchronized (TRANSFER_LOCK) {
             CommsThread comms = CommsThread.getObj();
-            final int perChunk = 0xFF / CH_OFFSET;
-            int bankCount = getBankCount();
-            for (int bank = 0; bank < bankCount; bank++) {
+            TransferSession session = comms.beginSession("channel download");
+            skippedSlots = new int[0];
+            ReadPlanner probe = new ReadPlanner().add(OCCUPANCY_ADDR, OCCUPANCY_LEN,
+                    (addr, buf, off, len) -> onOccupancy(comms, session, buf, off));
+            submitRead(comms, probe, session);
+            return session;
+        }
+    }
+
+    // Runs on the comms thread: plan the channel reads from the bitmap just read
+    private void onOccupancy(CommsThread comms, TransferSession session, byte[] buf, int off) throws IOException {
+        // Contact names resolve when a channel is decoded, which the UI does lazily, so the
+        // contact list only has to be in before channels are opened or exported
+        TalkGroupIo.ensureLoaded(session);
+        int total = getTotalChannels();
+        byte[] map = java.util.Arrays.copyOfRange(buf, off, off + OCCUPANCY_LEN);
+        int used = 0;
+        for (int ch = 1; ch <= total; ch++) if (isOccupied(map, ch)) used++;
+        ReadPlanner plan = new ReadPlanner();
+        if (used == 0 || used == total) {
+            Log.i(TAG, "RX channels: used bitmap has " + used + "/" + total + " bits set; reading every bank");
+            synchronized (this) {
+                occupancy = used == 0 ? null : map;
+            }
+            for (int bank = 0; bank < getBankCount(); bank++) {
                 Bank bk = getBank(bank);
-                long bankBase = bk.address;
-                int perBank = bk.channels;
-                for (int i = 0; i < perBank; i += perChunk) {
-                    int recsThis = Math.min(perChunk, perBank - i);
-                    long addrChunk = bankBase + (long) i * CH_OFFSET;
-                    try {
-                        comms.submitReadDecode(addrChunk, recsThis, CH_OFFSET);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Interrupted submitting read task", e);
-                    }
+                plan.add(bk.address, bk.channels * CH_OFFSET, comms.channelSink(bk.channels, CH_OFFSET));
+            }
+            submitRead(comms, plan, session);
+            return;
+        }
+        synchronized (this) {
+            occupancy = map;
+        }
+
+        // One request per run of used slots inside a bank; skipped slots ride along with the
+        // next run (or the last one) so every slot reaches the UI in order
+        int[] skipped = new int[total - used];
+        int nSkipped = 0, pending = 0;
+        int lastCh = 0, last = lastUsed(map, total);
+        for (int bank = 0; bank < getBankCount(); bank++) {
+            Bank bk = getBank(bank);
+            for (int r = 0; r < bk.channels; ) {
+                int ch = bk.startChannel + r;
+                if (!isOccupied(map, ch)) {
+                    skipped[nSkipped++] = ch;
+                    pending++;
+                    r++;
+                    continue;
                 }
+                int run = 1;
+                while (r + run < bk.channels && isOccupied(map, ch + run)) run++;
+                lastCh = ch + run - 1;
+                int after = lastCh == last ? total - lastCh : 0;
+                plan.add(bk.address + (long) r * CH_OFFSET, run * CH_OFFSET,
+                        comms.channelSink(run, CH_OFFSET, pending, after));
+                pending = 0;
+                r += run;
             }
-            // Removed comms.submitPoison(); do not poison thread after reads.
+        }
+        skippedSlots = java.util.Arrays.copyOf(skipped, nSkipped);
+        Log.i(TAG, "RX channels: " + used + " used slot(s) to read, " + nSkipped + " empty slot(s) skipped, last used #" + lastCh);
+        submitRead(comms, plan, session);
+    }
+
+    private static int lastUsed(byte[] map, int total) {
+        for (int ch = total; ch >= 1; ch--) if (isOccupied(map, ch)) return ch;
+        return 0;
+    }
+
+    private static boolean isOccupied(byte[] map, int ch) {
+        return (map[(ch - 1) >>> 3] & (1 << ((ch - 1) & 7))) != 0;
+    }
+
+    private static void setOccupied(byte[] map, int ch, boolean used) {
+        if (used) map[(ch - 1) >>> 3] |= (byte) (1 << ((ch - 1) & 7));
+        else map[(ch - 1) >>> 3] &= (byte) ~(1 << ((ch - 1) & 7));
+    }
+
+    private void submitRead(CommsThread comms, ReadPlanner plan, TransferSession session) throws IOException {
+        try {
+            comms.submitPlan(plan, session);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted submitting read task", e);
+        }
+    }
+
+    /**
+     * Channel numbers the last download did not fetch because the used bitmap marked them empty,
+     * ascending. Empty when every slot was read.
+     */
+    public int[] getSkippedSlots() {
+        return skippedSlots.clone();
+    }
+
+    /**
+     * Keep the used bit of {@code channel} in step with a single record just written (an edited
+     * slot that was empty, or one cleared), so the next download fetches what the radio holds.
+     * No-op while the bitmap is unknown or the bit is already right. The bitmap is queued on the
+     * write lane behind any upload already queued, and an upload still being fed folds the bit
+     * into the bitmap it writes last, so neither overwrites the other with an older map.
+     */
+    public void updateOccupancy(int channel, byte[] rec) throws IOException {
+        boolean full = !isEmptyRecord(rec, 0, CH_OFFSET);
+        byte[] map;
+        synchronized (this) {
+            if (occupancy == null || channel < 1 || channel > getTotalChannels() || isOccupied(occupancy, channel) == full)
+                return;
+            setOccupied(occupancy, channel, full);
+            map = occupancy.clone();
+        }
+        try {
+            CommsThread.getObj().submitWrite(OCCUPANCY_ADDR, map);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted submitting channel bitmap", e);
         }
     }
 
-    // make bcd4_to_hz, hz_to_bcd4, isEmptyRecord private instance helpers
-    private long bcd4_to_hz(byte[] raw, int off) {
+    // BCD frequency helpers are shared with ChannelView and ChannelLayout
+    static long bcd4_to_hz(byte[] raw, int off) {
         long v = 0;
         for (int i = 0; i < 4; i++) {
             int b = raw[off + i] & 0xFF, hi = (b >> 4) & 0xF, lo = b & 0xF;
@@ -243,7 +596,7 @@ public class ChannelIo {
         return v * 10L;
     }
 
-    private void hz_to_bcd4(long hz, byte[] raw, int off) {
+    static void hz_to_bcd4(long hz, byte[] raw, int off) {
         long v = hz / 10;
         int[] digs = new int[8];
         for (int i = 7; i >= 0; i--) {
@@ -255,7 +608,7 @@ public class ChannelIo {
     }
 
     // single isEmptyRecord definition
-    private boolean isEmptyRecord(byte[] slab, int recOff, int recSize) {
+    boolean isEmptyRecord(byte[] slab, int recOff, int recSize) {
         boolean allZero = true, allFF = true;
         for (int i = 0; i < recSize; i++) {
             byte v = slab[recOff + i];
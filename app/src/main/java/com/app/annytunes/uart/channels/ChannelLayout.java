@@ -0,0 +1,595 @@
+package com.app.annytunes.uart.channels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * The 64-byte channel record as one table of fields; ChannelIo decodes and encodes by walking
+ * {@link #FIELDS}, so a field is added or moved in exactly one place. Each entry names the CSV
+ * column it carries.
+ * <p>
+ * {@link #FIELDS} holds the offsets confirmed against a CPS dump: RX 0x00, TX offset 0x04,
+ * CC 0x11, contact 0x18..0x1A, admit 0x1D, bandwidth 0x1E, radio ID 0x1F, power 0x20,
+ * name 0x23 (16 bytes) and the timeslot bit 0x34.3. TX is stored as an offset below RX, as
+ * the older codec wrote it. Everything in {@link #ASSUMED} is ASSUMED (needs confirmation
+ * with a CPS dump) and is only decoded and encoded once {@link #setAssumedFields} turns it
+ * on; until then uploads leave those bits as the radio has them and downloads report the
+ * settings as unset (channel type {@link Channel#TYPE_UNKNOWN}):
+ * <pre>
+ * 0x08  bits 0-1 channel type (0 analog, 1 digital, 2 A+D, 3 D+A), bits 6-7 offset direction
+ * 0x09  PTT prohibit, reverse, talk around, work alone, call confirm, SMS confirm,
+ *       data ACK disable, exclude from roaming (bit 0..7)
+ * 0x0A  AES, encryption, ranging, through mode, APRS RX, auto scan, analog APRS mute,
+ *       talker alias (bit 0..7)
+ * 0x0B  ARC4, compand, disturb enable, CRC ignore (bit 0..3), contact call type (4-5),
+ *       squelch mode (6-7)
+ * 0x0C  RX tone, 0x0E TX tone (16-bit LE: 0 off, CTCSS Hz x10, or 0x8000 | 0x4000 if
+ *       inverted | DCS code read as octal)
+ * 0x10  TX color code (low nibble)
+ * 0x12  custom CTCSS, Hz x10 (16-bit LE)
+ * 0x14  scan list, 0x15 receive group list (1-based, 0 = none)
+ * 0x16  optional signal (0-1), PTT ID (2-3), analog APRS PTT mode (4-5), digital APRS PTT (6)
+ * 0x17  APRS report type (0-1), digital APRS report channel - 1 (2-4), DMR mode (5-6),
+ *       idle TX (7)
+ * 0x1B  DTMF ID, 0x1C 2Tone ID, 0x21 5Tone ID, 0x22 2Tone decode (1-based, 0 = off)
+ * 0x33  R5Tone BOT, 0x35 R5Tone EOT (1-based, 0 = off)
+ * 0x36  analog APRS TX path, 0x37 ex_emg_kind, 0x38 idle_tx, 0x39 disturb freq, 0x3A Rpga_Mdc
+ * 0x3B  correct frequency in Hz (16-bit LE, signed)
+ * 0x3D  slot suit (bit 0)
+ * </pre>
+ * Labels follow the CPS CSV export; a value the table has no label for decodes as its number
+ * and a number encodes as itself, so unknown settings survive a round trip.
+ */
+final class ChannelLayout {
+    static final int RECORD_SIZE = 64;
+    static final int NAME_OFF = 0x23;
+    static final int SCAN_LIST_OFF = 0x14; // ASSUMED, like the rest of its table
+    static final int NAME_LEN = 16;
+
+    private ChannelLayout() {
+    }
+
+    static final Field[] FIELDS = {
+            new RxFrequency(),
+            new TxFrequency(),
+            new Bits("Transmit Power", 0x20, 0, 8, null, (c, v) -> c.power = v, c -> c.power < 0 ? -1 : Math.min(3, c.power)),
+            new Bits("Band Width", 0x1E, 0, 8, c -> c.bandwidthKHz = 0.0, (c, v) -> c.bandwidthKHz = v == 1 ? 25.0 : 12.5,
+                    c -> c.bandwidthKHz <= 0 ? -1 : c.bandwidthKHz >= 25.0 ? 1 : 0),
+            new Bits("Contact", 0x18, 0, 24, null, (c, v) -> c.contactId = v, c -> c.contactId),
+            new Bits("Radio ID", 0x1F, 0, 8, null, (c, v) -> c.radioIdIndex = v, c -> c.radioIdIndex),
+            new Enum("Busy Lock/TX Permit", 0x1D, 0, 8, new String[]{"Always", "CC Free", "Channel Free"},
+                    c -> c.admit, (c, v) -> c.admit = v),
+            new Bits("RX Color Code", 0x11, 0, 4, null, (c, v) -> c.colorCode = v, c -> c.colorCode),
+            new Bits("Slot", 0x34, 3, 1, c -> c.timeslot = 0, (c, v) -> c.timeslot = v != 0 ? 1 : 2,
+                    c -> c.timeslot == 1 ? 1 : c.timeslot == 2 ? 0 : -1),
+            new Name(),
+    };
+
+    static final Field[] ASSUMED = {
+            new Bits("Channel Type", 0x08, 0, 2, null, (c, v) -> c.channelType = v, c -> c.channelType),
+            new Tone("CTCSS/DCS Decode", 0x0C, c -> c.ctcssDecode, (c, v) -> c.ctcssDecode = v),
+            new Tone("CTCSS/DCS Encode", 0x0E, c -> c.ctcssEncode, (c, v) -> c.ctcssEncode = v),
+            new Enum("Contact Call Type", 0x0B, 4, 2, new String[]{"Group Call", "Private Call", "All Call"},
+                    c -> c.contactCallType, (c, v) -> c.contactCallType = v),
+            new Enum("Squelch Mode", 0x0B, 6, 2, new String[]{"Carrier", "CTCSS/DCS"},
+                    c -> c.squelchMode, (c, v) -> c.squelchMode = v),
+            new Enum("Optional Signal", 0x16, 0, 2, new String[]{"Off", "DTMF", "2Tone", "5Tone"},
+                    c -> c.optionalSignal, (c, v) -> c.optionalSignal = v),
+            new Ref("DTMF ID", 0x1B, c -> c.dtmfId, (c, v) -> c.dtmfId = v),
+            new Ref("2Tone ID", 0x1C, c -> c.twoToneId, (c, v) -> c.twoToneId = v),
+            new Ref("5Tone ID", 0x21, c -> c.fiveToneId, (c, v) -> c.fiveToneId = v),
+            new Enum("PTT ID", 0x16, 2, 2, new String[]{"Off", "Start", "End", "Start & End"},
+                    c -> c.pttId, (c, v) -> c.pttId = v),
+            new Ref("Scan List", SCAN_LIST_OFF, c -> c.scanList, (c, v) -> c.scanList = v),
+            new Ref("Receive Group List", 0x15, c -> c.receiveGroupList, (c, v) -> c.receiveGroupList = v),
+            new Flag("PTT Prohibit", 0x09, 0, c -> c.pttProhibit, (c, v) -> c.pttProhibit = v),
+            new Flag("Reverse", 0x09, 1, c -> c.reverse, (c, v) -> c.reverse = v),
+            new Enum("Idle TX", 0x17, 7, 1, new String[]{"Off", "On"}, c -> c.idleTx, (c, v) -> c.idleTx = v),
+            new Enum("Slot Suit", 0x3D, 0, 1, new String[]{"Off", "On"}, c -> c.slotSuit, (c, v) -> c.slotSuit = v),
+            new Flag("AES Digital Encryption", 0x0A, 0, c -> c.aesDigitalEncryption, (c, v) -> c.aesDigitalEncryption = v),
+            new Flag("Digital Encryption", 0x0A, 1, c -> c.digitalEncryption, (c, v) -> c.digitalEncryption = v),
+            new Flag("Call Confirmation", 0x09, 4, c -> c.callConfirmation, (c, v) -> c.callConfirmation = v),
+            new Flag("Talk Around(Simplex)", 0x09, 2, c -> c.talkAround, (c, v) -> c.talkAround = v),
+            new Flag("Work Alone", 0x09, 3, c -> c.workAlone, (c, v) -> c.workAlone = v),
+            new CustomCtcss(),
+            new Ref("2TONE Decode", 0x22, c -> c.twoToneDecode, (c, v) -> c.twoToneDecode = v),
+            new Flag("Ranging", 0x0A, 2, c -> c.ranging, (c, v) -> c.ranging = v),
+            new Flag("Through Mode", 0x0A, 3, c -> c.throughMode, (c, v) -> c.throughMode = v),
+            new Flag("APRS RX", 0x0A, 4, c -> c.aprsRx, (c, v) -> c.aprsRx = v),
+            new Enum("Analog APRS PTT Mode", 0x16, 4, 2, new String[]{"Off", "Start", "End"},
+                    c -> c.analogAprsPttMode, (c, v) -> c.analogAprsPttMode = v),
+            new Enum("Digital APRS PTT Mode", 0x16, 6, 1, new String[]{"Off", "On"},
+                    c -> c.digitalAprsPttMode, (c, v) -> c.digitalAprsPttMode = v),
+            new Enum("APRS Report Type", 0x17, 0, 2, new String[]{"Off", "Analog", "Digital"},
+                    c -> c.aprsReportType, (c, v) -> c.aprsReportType = v),
+            new Enum("Digital APRS Report Channel", 0x17, 2, 3, new String[]{"1", "2", "3", "4", "5", "6", "7", "8"},
+                    c -> c.digitalAprsReportChannel, (c, v) -> c.digitalAprsReportChannel = v),
+            new Bits("Correct Frequency[Hz]", 0x3B, 0, 16, null,
+                    (c, v) -> c.correctFrequencyHz = (short) v, c -> (int) c.correctFrequencyHz & 0xFFFF),
+            new Flag("SMS Confirmation", 0x09, 5, c -> c.smsConfirmation, (c, v) -> c.smsConfirmation = v),
+            new Flag("Exclude channel from roaming", 0x09, 7, c -> c.excludeFromRoaming, (c, v) -> c.excludeFromRoaming = v),
+            new Enum("DMR MODE", 0x17, 5, 2, new String[]{"Simplex", "Repeater", "Double Slot"},
+                    c -> c.dmrMode, (c, v) -> c.dmrMode = v),
+            new Flag("DataACK Disable", 0x09, 6, c -> c.dataAckDisable, (c, v) -> c.dataAckDisable = v),
+            new Ref("R5ToneBot", 0x33, c -> c.r5ToneBot, (c, v) -> c.r5ToneBot = v),
+            new Ref("R5ToneEot", 0x35, c -> c.r5ToneEot, (c, v) -> c.r5ToneEot = v),
+            new Flag("Auto Scan", 0x0A, 5, c -> c.autoScan, (c, v) -> c.autoScan = v),
+            new Flag("Ana Aprs Mute", 0x0A, 6, c -> c.anaAprsMute, (c, v) -> c.anaAprsMute = v),
+            new Flag("Send Talker Aias", 0x0A, 7, c -> c.sendTalkerAlias, (c, v) -> c.sendTalkerAlias = v),
+            new Enum("AnaAprsTxPath", 0x36, 0, 8, null, c -> c.anaAprsTxPath, (c, v) -> c.anaAprsTxPath = v),
+            new Flag("ARC4", 0x0B, 0, c -> c.arc4, (c, v) -> c.arc4 = v),
+            new Enum("ex_emg_kind", 0x37, 0, 8, null, c -> c.exEmgKind, (c, v) -> c.exEmgKind = v),
+            new Enum("idle_tx", 0x38, 0, 8, null, c -> c.idle_tx, (c, v) -> c.idle_tx = v),
+            new Flag("Compand", 0x0B, 1, c -> c.compand, (c, v) -> c.compand = v),
+            new Flag("DisturEn", 0x0B, 2, c -> c.disturEn, (c, v) -> c.disturEn = v),
+            new Enum("DisturFreq", 0x39, 0, 8, null, c -> c.disturFreq, (c, v) -> c.disturFreq = v),
+            new Enum("Rpga_Mdc", 0x3A, 0, 8, null, c -> c.rpgaMdc, (c, v) -> c.rpgaMdc = v),
+            new Flag("dmr_crc_ignore", 0x0B, 3, c -> c.dmrCrcIgnore, (c, v) -> c.dmrCrcIgnore = v),
+            new Bits("TxCc", 0x10, 0, 4, null, (c, v) -> c.txColorCode = v, c -> c.txColorCode),
+    };
+
+    private static volatile boolean assumed;
+
+    /**
+     * Include the {@link #ASSUMED} fields in decoding and encoding; off by default.
+     */
+    static void setAssumedFields(boolean on) {
+        assumed = on;
+    }
+
+    static boolean assumedFields() {
+        return assumed;
+    }
+
+    /**
+     * Decode every active field of the record at {@code off} into {@code c}; the assumed ones
+     * are cleared while they are off.
+     */
+    static void decode(byte[] rec, int off, Channel c) {
+        for (Field f : FIELDS) f.decode(rec, off, c);
+        boolean on = assumed;
+        for (Field f : ASSUMED) {
+            if (on) f.decode(rec, off, c);
+            else f.clear(c);
+        }
+        if (!on) c.channelType = Channel.TYPE_UNKNOWN;
+    }
+
+    static void encode(Channel c, byte[] rec, int off) {
+        encode(c, rec, off, null, 0);
+    }
+
+    /**
+     * Encode every active field {@code c} sets into the record at {@code off}, and when
+     * {@code written} is not null mark the bits written there. A field only replaces its own
+     * bits, and one the channel leaves unset (null or blank text, a negative number,
+     * {@link Channel#CONTACT_UNRESOLVED}, no TX frequency) is skipped, so those bits keep
+     * whatever {@code rec} held; booleans have no unset value. A channel without an RX
+     * frequency is an empty slot and the whole record becomes zeros.
+     */
+    static void encode(Channel c, byte[] rec, int off, byte[] written, int wOff) {
+        if (c.rxHz <= 0) {
+            java.util.Arrays.fill(rec, off, off + RECORD_SIZE, (byte) 0);
+            if (written != null) java.util.Arrays.fill(written, wOff, wOff + RECORD_SIZE, (byte) 0xFF);
+            return;
+        }
+        for (Field f : FIELDS) encode(f, c, rec, off, written, wOff);
+        if (assumed) for (Field f : ASSUMED) encode(f, c, rec, off, written, wOff);
+    }
+
+    private static void encode(Field f, Channel c, byte[] rec, int off, byte[] written, int wOff) {
+        if (f.encode(c, rec, off) && written != null) f.mark(written, wOff);
+    }
+
+    /**
+     * Reset every field to its empty-slot value.
+     */
+    static void clear(Channel c) {
+        for (Field f : FIELDS) f.clear(c);
+        for (Field f : ASSUMED) f.clear(c);
+    }
+
+    // =====================================================================================
+    // Bit access: fields are little-endian bit ranges starting at bit `shift` of byte `off`
+    // =====================================================================================
+    static int get(byte[] r, int o, int off, int shift, int width) {
+        int bytes = (shift + width + 7) >>> 3;
+        long v = 0;
+        for (int i = 0; i < bytes; i++) v |= (long) (r[o + off + i] & 0xFF) << (8 * i);
+        return (int) ((v >>> shift) & ((1L << width) - 1));
+    }
+
+    static void put(byte[] r, int o, int off, int shift, int width, int value) {
+        int bytes = (shift + width + 7) >>> 3;
+        long mask = ((1L << width) - 1) << shift;
+        long v = 0;
+        for (int i = 0; i < bytes; i++) v |= (long) (r[o + off + i] & 0xFF) << (8 * i);
+        v = (v & ~mask) | (((long) value << shift) & mask);
+        for (int i = 0; i < bytes; i++) r[o + off + i] = (byte) (v >>> (8 * i));
+    }
+
+    // =====================================================================================
+    // Field kinds
+    // =====================================================================================
+    abstract static class Field {
+        final String column;
+        final int off, shift, width;
+
+        Field(String column, int off, int shift, int width) {
+            this.column = column;
+            this.off = off;
+            this.shift = shift;
+            this.width = width;
+        }
+
+        abstract void decode(byte[] r, int o, Channel c);
+
+        // Writes the field and returns true, or returns false leaving r alone when c has it unset
+        abstract boolean encode(Channel c, byte[] r, int o);
+
+        abstract void clear(Channel c);
+
+        // Sets the bits this field owns in the record-sized mask at m[o]
+        void mark(byte[] m, int o) {
+            put(m, o, off, shift, width, -1);
+        }
+    }
+
+    // Unsigned integer bit range mapped straight onto an int-like Channel field
+    static class Bits extends Field {
+        private final java.util.function.Consumer<Channel> clear;
+        private final ObjIntConsumer<Channel> set;
+        private final ToIntFunction<Channel> get;
+
+        Bits(String column, int off, int shift, int width, java.util.function.Consumer<Channel> clear,
+             ObjIntConsumer<Channel> set, ToIntFunction<Channel> get) {
+            super(column, off, shift, width);
+            this.clear = clear;
+            this.set = set;
+            this.get = get;
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            set.accept(c, get(r, o, off, shift, width));
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            int v = get.applyAsInt(c);
+            if (v < 0) return false;
+            put(r, o, off, shift, width, v);
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            if (clear != null) clear.accept(c);
+            else set.accept(c, 0);
+        }
+    }
+
+    static final class Flag extends Field {
+        private final Predicate<Channel> get;
+        private final BiConsumer<Channel, Boolean> set;
+
+        Flag(String column, int off, int bit, Predicate<Channel> get, BiConsumer<Channel, Boolean> set) {
+            super(column, off, bit, 1);
+            this.get = get;
+            this.set = set;
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            set.accept(c, (r[o + off] & (1 << shift)) != 0);
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            put(r, o, off, shift, 1, get.test(c) ? 1 : 0);
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            set.accept(c, false);
+        }
+    }
+
+    // Bit range shown as a label (index into labels); no labels = plain number as text
+    static class Enum extends Field {
+        private final String[] labels;
+        private final Function<Channel, String> get;
+        private final BiConsumer<Channel, String> set;
+
+        Enum(String column, int off, int shift, int width, String[] labels,
+             Function<Channel, String> get, BiConsumer<Channel, String> set) {
+            super(column, off, shift, width);
+            this.labels = labels == null ? new String[0] : labels;
+            this.get = get;
+            this.set = set;
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            int v = get(r, o, off, shift, width);
+            set.accept(c, v < labels.length ? labels[v] : number(v));
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            String s = get.apply(c);
+            if (unset(s)) return false;
+            put(r, o, off, shift, width, rawOf(s));
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            set.accept(c, null);
+        }
+
+        private int rawOf(String s) {
+            s = s.trim();
+            for (int i = 0; i < labels.length; i++) if (labels[i].equalsIgnoreCase(s)) return i;
+            return parseIntOr(s, 0);
+        }
+    }
+
+    // One-based reference to another list (scan list, DTMF ID...); 0 = none, which is also what
+    // the older codec left in these bytes
+    static final class Ref extends Field {
+        private final Function<Channel, String> get;
+        private final BiConsumer<Channel, String> set;
+
+        Ref(String column, int off, Function<Channel, String> get, BiConsumer<Channel, String> set) {
+            super(column, off, 0, 8);
+            this.get = get;
+            this.set = set;
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            int v = r[o + off] & 0xFF;
+            set.accept(c, v == 0 ? "Off" : number(v));
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            String s = get.apply(c);
+            if (unset(s)) return false;
+            int n = parseIntOr(s, 0);
+            r[o + off] = (byte) (n >= 1 && n <= 0xFF ? n : 0);
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            set.accept(c, null);
+        }
+    }
+
+    // "Off", "88.5" (CTCSS) or "D023N"/"D023I" (DCS), as in the CPS export
+    static final class Tone extends Field {
+        private final Function<Channel, String> get;
+        private final BiConsumer<Channel, String> set;
+
+        Tone(String column, int off, Function<Channel, String> get, BiConsumer<Channel, String> set) {
+            super(column, off, 0, 16);
+            this.get = get;
+            this.set = set;
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            set.accept(c, format(get(r, o, off, 0, 16)));
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            String s = get.apply(c);
+            if (unset(s)) return false;
+            put(r, o, off, 0, 16, parse(s));
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            set.accept(c, null);
+        }
+
+        static String format(int v) {
+            if (v == 0) return "Off";
+            if ((v & 0x8000) != 0) {
+                int k = (v & 0x1FF) | ((v & 0x4000) != 0 ? 0x200 : 0);
+                String s = DCS_LABELS[k];
+                if (s == null)
+                    DCS_LABELS[k] = s = String.format(Locale.ROOT, "D%03o%c", v & 0x1FF, (v & 0x4000) != 0 ? 'I' : 'N');
+                return s;
+            }
+            return tenths(v);
+        }
+
+        static int parse(String s) {
+            if (s == null) return 0;
+            s = s.trim().toUpperCase(Locale.ROOT);
+            if (s.isEmpty() || s.equals("OFF")) return 0;
+            try {
+                if (s.startsWith("D")) {
+                    boolean inv = s.endsWith("I");
+                    String digits = s.substring(1).replaceAll("[NI]$", "");
+                    return 0x8000 | (inv ? 0x4000 : 0) | (Integer.parseInt(digits, 8) & 0x1FF);
+                }
+                return (int) Math.round(Double.parseDouble(s) * 10) & 0x3FFF;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+
+    static final class CustomCtcss extends Field {
+        CustomCtcss() {
+            super("Custom CTCSS", 0x12, 0, 16);
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            int v = get(r, o, off, 0, 16);
+            c.customCtcss = tenths(v);
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            if (unset(c.customCtcss)) return false;
+            int v = 0;
+            try {
+                v = (int) Math.round(Double.parseDouble(c.customCtcss.trim()) * 10);
+            } catch (NumberFormatException ignored) {
+            }
+            put(r, o, off, 0, 16, v);
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            c.customCtcss = null;
+        }
+    }
+
+    static final class RxFrequency extends Field {
+        RxFrequency() {
+            super("Receive Frequency", 0x00, 0, 32);
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            c.rxHz = ChannelIo.bcd4_to_hz(r, o + off);
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            ChannelIo.hz_to_bcd4(c.rxHz, r, o + off);
+            return true;
+        }
+
+        @Override
+        void clear(Channel c) {
+            c.rxHz = 0;
+        }
+    }
+
+    // TX is stored as an offset below RX. The ASSUMED direction bits (0x08 bits 6-7: 1 plus,
+    // 2 minus, 0 with an offset read as minus) are only used with the assumed fields on;
+    // without them a TX above RX cannot be stored and is written as simplex, as the older
+    // codec did, and the direction bits are left alone
+    static final class TxFrequency extends Field {
+        private static final int DIR_OFF = 0x08, DIR_SHIFT = 6;
+
+        TxFrequency() {
+            super("Transmit Frequency", 0x04, 0, 32);
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            long shift = ChannelIo.bcd4_to_hz(r, o + off);
+            int dir = assumed ? get(r, o, DIR_OFF, DIR_SHIFT, 2) : 0;
+            c.txHz = dir == 1 ? c.rxHz + shift : (shift > 0 ? c.rxHz - shift : c.rxHz);
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            if (c.txHz <= 0) return false;
+            long d = c.rxHz - c.txHz;
+            if (!assumed) {
+                ChannelIo.hz_to_bcd4(Math.max(0, d), r, o + off);
+                return true;
+            }
+            ChannelIo.hz_to_bcd4(Math.abs(d), r, o + off);
+            put(r, o, DIR_OFF, DIR_SHIFT, 2, d == 0 ? 0 : (d < 0 ? 1 : 2));
+            return true;
+        }
+
+        @Override
+        void mark(byte[] m, int o) {
+            super.mark(m, o);
+            if (assumed) put(m, o, DIR_OFF, DIR_SHIFT, 2, -1);
+        }
+
+        @Override
+        void clear(Channel c) {
+            c.txHz = 0;
+        }
+    }
+
+    static final class Name extends Field {
+        Name() {
+            super("Channel Name", NAME_OFF, 0, 8 * NAME_LEN);
+        }
+
+        @Override
+        void decode(byte[] r, int o, Channel c) {
+            int end = o + off;
+            while (end < o + off + NAME_LEN && r[end] != 0) end++;
+            c.name = new String(r, o + off, end - (o + off), StandardCharsets.ISO_8859_1).trim();
+        }
+
+        @Override
+        boolean encode(Channel c, byte[] r, int o) {
+            if (c.name == null) return false;
+            java.util.Arrays.fill(r, o + off, o + off + NAME_LEN, (byte) 0);
+            byte[] b = c.name.getBytes(StandardCharsets.ISO_8859_1);
+            System.arraycopy(b, 0, r, o + off, Math.min(NAME_LEN, b.length));
+            return true;
+        }
+
+        @Override
+        void mark(byte[] m, int o) {
+            java.util.Arrays.fill(m, o + off, o + off + NAME_LEN, (byte) 0xFF);
+        }
+
+        @Override
+        void clear(Channel c) {
+            c.name = "";
+        }
+    }
+
+    // Decoded labels are cached so decoding a bank into a scratch Channel allocates next to
+    // nothing; lazily filled, a racing fill just stores an equal string
+    private static final String[] NUMBERS = new String[256];
+    private static final String[] TENTHS = new String[4096];
+    private static final String[] DCS_LABELS = new String[1024];
+
+    static String number(int v) {
+        if (v < 0 || v >= NUMBERS.length) return Integer.toString(v);
+        String s = NUMBERS[v];
+        if (s == null) NUMBERS[v] = s = Integer.toString(v);
+        return s;
+    }
+
+    // "88.5" for 885
+    static String tenths(int v) {
+        if (v < 0 || v >= TENTHS.length) return String.format(Locale.ROOT, "%d.%d", v / 10, v % 10);
+        String s = TENTHS[v];
+        if (s == null) TENTHS[v] = s = String.format(Locale.ROOT, "%d.%d", v / 10, v % 10);
+        return s;
+    }
+
+    // Text settings: null or blank leaves the radio's value
+    private static boolean unset(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    private static int parseIntOr(String s, int dflt) {
+        if (s == null) return dflt;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return dflt;
+        }
+    }
+}
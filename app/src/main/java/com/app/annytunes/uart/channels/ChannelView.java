@@ -0,0 +1,154 @@
+package com.app.annytunes.uart.channels;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of one 64-byte channel record inside a bank slab. Fields are decoded the first
+ * time they are read and cached; empty slots are classified up front by {@link #wrapBank} with a
+ * word-wise scan, so a list of mostly empty slots costs one object per slot and no decoding.
+ * The slab is shared by every view of a bank and must not be modified afterwards.
+ */
+public final class ChannelView {
+    private static final int D_NAME = 1;
+    private static final int D_RX = 1 << 1;
+    private static final int D_TX = 1 << 2;
+
+    private final byte[] slab;
+    private final int off;
+    private final boolean empty;
+    private int decoded;
+    private String name;
+    private long rxHz;
+    private long txHz;
+
+    private ChannelView(byte[] slab, int off, boolean empty) {
+        this.slab = slab;
+        this.off = off;
+        this.empty = empty;
+    }
+
+    /**
+     * Views for {@code recs} consecutive records of {@code recSize} bytes starting at {@code off}.
+     */
+    public static List<ChannelView> wrapBank(byte[] slab, int off, int recs, int recSize) {
+        ByteBuffer bb = ByteBuffer.wrap(slab);
+        List<ChannelView> out = new ArrayList<>(recs);
+        for (int r = 0; r < recs; r++) {
+            int ro = off + r * recSize;
+            out.add(new ChannelView(slab, ro, isEmptySlot(bb, ro, recSize)));
+        }
+        return out;
+    }
+
+    /**
+     * Same verdict as ChannelIo's per-byte check (all 0x00, all 0xFF, or no name and no RX
+     * frequency), but compares the record eight bytes at a time.
+     */
+    static boolean isEmptySlot(ByteBuffer bb, int off, int recSize) {
+        long or = 0, and = -1L;
+        int words = recSize >>> 3;
+        for (int i = 0; i < words; i++) {
+            long v = bb.getLong(off + (i << 3));
+            or |= v;
+            and &= v;
+        }
+        if (or == 0 || and == -1L) return true;
+        return bb.get(off + 0x23) == 0 && ChannelIo.bcd4_to_hz(bb.array(), off) == 0L;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public String name() {
+        if ((decoded & D_NAME) == 0) {
+            if (empty) {
+                name = "";
+            } else {
+                int start = off + 0x23;
+                int end = start;
+                while (end < start + ChannelLayout.NAME_LEN && slab[end] != 0) end++;
+                name = new String(slab, start, end - start, java.nio.charset.StandardCharsets.ISO_8859_1).trim();
+            }
+            decoded |= D_NAME;
+        }
+        return name;
+    }
+
+    public long rxHz() {
+        if ((decoded & D_RX) == 0) {
+            rxHz = empty ? 0 : ChannelIo.bcd4_to_hz(slab, off);
+            decoded |= D_RX;
+        }
+        return rxHz;
+    }
+
+    public long txHz() {
+        if ((decoded & D_TX) == 0) {
+            long shift = empty ? 0 : ChannelIo.bcd4_to_hz(slab, off + 0x04);
+            txHz = (shift > 0) ? rxHz() - shift : rxHz();
+            decoded |= D_TX;
+        }
+        return txHz;
+    }
+
+    // Single-byte fields are cheap enough to read straight from the slab every time
+
+    /**
+     * One of the {@code Channel.TYPE_*} values; analog for an empty slot, unknown while the
+     * assumed ChannelLayout fields are off.
+     */
+    public int channelType() {
+        if (empty) return Channel.TYPE_ANALOG;
+        return ChannelLayout.assumedFields() ? slab[off + 0x08] & 0x03 : Channel.TYPE_UNKNOWN; // see ChannelLayout
+    }
+
+    public int colorCode() {
+        return empty ? 0 : slab[off + 0x11] & 0x0F;
+    }
+
+    public int timeslot() {
+        if (empty) return 0;
+        return (slab[off + 0x34] & 0x08) != 0 ? 1 : 2;
+    }
+
+    public int contactId() {
+        if (empty) return 0;
+        return (slab[off + 0x18] & 0xFF) | ((slab[off + 0x19] & 0xFF) << 8) | ((slab[off + 0x1A] & 0xFF) << 16);
+    }
+
+    /**
+     * Name of the channel's contact from the loaded talk-group list, "" if unknown.
+     */
+    public String contactName() {
+        return empty ? "" : com.app.annytunes.uart.contacts.TalkGroupIo.index().nameOf(contactId());
+    }
+
+    public int radioIdIndex() {
+        return empty ? 0 : slab[off + 0x1F] & 0xFF;
+    }
+
+    public int power() {
+        return empty ? 0 : slab[off + 0x20] & 0xFF;
+    }
+
+    /**
+     * Raw record bytes, for callers that encode or export without a Channel.
+     */
+    public byte[] slab() {
+        return slab;
+    }
+
+    public int offset() {
+        return off;
+    }
+
+    /**
+     * Full decode into a new, mutable Channel.
+     */
+    public Channel toChannel() {
+        return ChannelIo.getObj().decodeChannel(slab, off, ChannelIo.CH_OFFSET);
+    }
+}
@@ -0,0 +1,85 @@
+package com.app.annytunes.uart.channels;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List of channels backed by {@link ChannelView}s: a slot becomes a full, editable Channel only
+ * when {@link #get} is first called for it, and stays that object afterwards so edits stick.
+ * Cheap per-slot queries ({@link #nameAt}, {@link #isEdited}) never force a decode.
+ */
+public final class ChannelViewList extends AbstractList<Channel> {
+    private final ArrayList<ChannelView> views = new ArrayList<>();
+    private final ArrayList<Channel> channels = new ArrayList<>();
+
+    public void addViews(List<ChannelView> vs) {
+        views.addAll(vs);
+        for (int i = 0; i < vs.size(); i++) channels.add(null);
+    }
+
+    @Override
+    public boolean add(Channel c) {
+        views.add(null);
+        channels.add(c);
+        return true;
+    }
+
+    @Override
+    public Channel get(int index) {
+        Channel c = channels.get(index);
+        if (c == null) {
+            c = views.get(index).toChannel();
+            channels.set(index, c);
+        }
+        return c;
+    }
+
+    @Override
+    public int size() {
+        return channels.size();
+    }
+
+    @Override
+    public void clear() {
+        views.clear();
+        channels.clear();
+    }
+
+    /**
+     * The raw view behind a slot, or null for slots added as Channels.
+     */
+    public ChannelView view(int index) {
+        return views.get(index);
+    }
+
+    // Decoded Channel for a slot, or null if it has only ever been a view
+    Channel loaded(int index) {
+        return channels.get(index);
+    }
+
+    public String nameAt(int index) {
+        Channel c = channels.get(index);
+        if (c != null) return c.name == null ? "" : c.name;
+        return views.get(index).name();
+    }
+
+    public boolean isEdited(int index) {
+        Channel c = channels.get(index);
+        return c != null && c.edited;
+    }
+
+    /**
+     * Copy that shares the (immutable) views but none of the decoded Channels, i.e. the slots as
+     * they were read from the radio.
+     */
+    public ChannelViewList snapshot() {
+        ChannelViewList s = new ChannelViewList();
+        for (int i = 0; i < views.size(); i++) {
+            ChannelView v = views.get(i);
+            s.views.add(v);
+            s.channels.add(v == null ? channels.get(i) : null);
+        }
+        return s;
+    }
+}
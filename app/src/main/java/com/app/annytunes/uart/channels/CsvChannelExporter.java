@@ -0,0 +1,246 @@
+package com.app.annytunes.uart.channels;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * CSV channel export that encodes straight into one reusable UTF-8 byte buffer and hands it to
+ * the stream in {@link #BUF_SIZE} chunks. Frequencies and numbers are formatted with integer
+ * arithmetic, and slots that were never opened for editing are decoded from their bank slab into
+ * one scratch Channel, so exporting a full radio creates no per-row objects beyond the
+ * occasional decoded string. Same output as {@link CsvChannelUtil#row}. Not thread-safe.
+ */
+public final class CsvChannelExporter {
+    static final int BUF_SIZE = 32 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[BUF_SIZE];
+    private final char[] digits = new char[20];
+    private final Channel scratch = new Channel();
+    private int len;
+    private char highSurrogate;
+
+    public CsvChannelExporter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Header plus every slot of {@code list}, numbered from 1 when {@code numbered}; flushed but
+     * not closed.
+     */
+    public static void write(ChannelViewList list, OutputStream os, boolean numbered) throws IOException {
+        CsvChannelExporter x = new CsvChannelExporter(os);
+        x.header();
+        for (int i = 0; i < list.size(); i++) x.row(list, i, numbered ? i + 1 : -1);
+        x.flush();
+    }
+
+    public static void write(List<Channel> list, OutputStream os, boolean numbered) throws IOException {
+        CsvChannelExporter x = new CsvChannelExporter(os);
+        x.header();
+        int idx = 1;
+        for (Channel c : list) x.row(c, numbered ? idx++ : -1);
+        x.flush();
+    }
+
+    public void header() throws IOException {
+        String h = CsvChannelUtil.header();
+        for (int i = 0; i < h.length(); i++) put(h.charAt(i));
+        put('\n');
+    }
+
+    /**
+     * Slot {@code i} of {@code list}: the Channel if the slot was opened (and possibly edited),
+     * otherwise decoded from the raw record without materializing the slot.
+     */
+    public void row(ChannelViewList list, int i, int index) throws IOException {
+        Channel c = list.loaded(i);
+        ChannelView v = c == null ? list.view(i) : null;
+        if (v == null) {
+            row(c, index);
+            return;
+        }
+        ChannelIo.getObj().decodeInto(v.slab(), v.offset(), ChannelIo.CH_OFFSET, scratch);
+        row(scratch, index);
+    }
+
+    /**
+     * One row, {@code index} in the "No." column (blank if not positive), then a newline.
+     */
+    public void row(Channel c, int index) throws IOException {
+        cells(c == null ? new Channel() : c, index);
+        put('\n');
+    }
+
+    // Column order must match CsvChannelUtil's FULL_HEADER and parseRow
+    void cells(Channel c, int index) throws IOException {
+        if (index > 0) num(index);
+        else text("");
+        text(c.name);
+        freq(c.rxHz);
+        freq(c.txHz);
+        text(CsvChannelUtil.typeLabel(c.channelType));
+        text(CsvChannelUtil.powerLabel(c.power));
+        bandwidth(c.bandwidthKHz);
+        text(c.ctcssDecode);
+        text(c.ctcssEncode);
+        text(c.contactName);
+        text(c.contactCallType);
+        num(c.radioIdIndex);
+        text(c.admit);
+        text(c.squelchMode);
+        text(c.optionalSignal);
+        text(c.dtmfId);
+        text(c.twoToneId);
+        text(c.fiveToneId);
+        text(c.pttId);
+        num(c.colorCode);
+        num(c.timeslot);
+        text(c.scanList);
+        text(c.receiveGroupList);
+        bool(c.pttProhibit);
+        bool(c.reverse);
+        text(c.idleTx);
+        text(c.slotSuit);
+        bool(c.aesDigitalEncryption);
+        bool(c.digitalEncryption);
+        bool(c.callConfirmation);
+        bool(c.talkAround);
+        bool(c.workAlone);
+        text(c.customCtcss);
+        text(c.twoToneDecode);
+        bool(c.ranging);
+        bool(c.throughMode);
+        bool(c.aprsRx);
+        text(c.analogAprsPttMode);
+        text(c.digitalAprsPttMode);
+        text(c.aprsReportType);
+        text(c.digitalAprsReportChannel);
+        num(c.correctFrequencyHz);
+        bool(c.smsConfirmation);
+        bool(c.excludeFromRoaming);
+        text(c.dmrMode);
+        bool(c.dataAckDisable);
+        text(c.r5ToneBot);
+        text(c.r5ToneEot);
+        bool(c.autoScan);
+        bool(c.anaAprsMute);
+        bool(c.sendTalkerAlias);
+        text(c.anaAprsTxPath);
+        bool(c.arc4);
+        text(c.exEmgKind);
+        text(c.idle_tx);
+        bool(c.compand);
+        bool(c.disturEn);
+        text(c.disturFreq);
+        text(c.rpgaMdc);
+        bool(c.dmrCrcIgnore);
+        num(c.txColorCode);
+        len--; // trailing comma
+    }
+
+    public void flush() throws IOException {
+        if (len > 0) out.write(buf, 0, len);
+        len = 0;
+        out.flush();
+    }
+
+    // ===== Cells (each one quoted and followed by a comma) =====
+
+    private void text(String s) throws IOException {
+        put('"');
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+                if (ch == '"') put('"');
+                put(ch);
+            }
+        }
+        put('"');
+        put(',');
+    }
+
+    private void bool(boolean b) throws IOException {
+        text(b ? "Yes" : "No");
+    }
+
+    private void num(long v) throws IOException {
+        put('"');
+        digits(v);
+        put('"');
+        put(',');
+    }
+
+    // MHz with 5 decimals, as String.format("%.5f") would print it
+    private void freq(long hz) throws IOException {
+        if (hz <= 0) {
+            text("");
+            return;
+        }
+        if (hz % 10 == 5) { // exact tie: leave the rounding to the double formatter
+            text(String.format(java.util.Locale.ROOT, "%.5f", hz / 1_000_000.0));
+            return;
+        }
+        long v = (hz + 5) / 10;
+        put('"');
+        digits(v / 100_000);
+        put('.');
+        int frac = (int) (v % 100_000);
+        for (int d = 10_000; d > 0; d /= 10) put((char) ('0' + frac / d % 10));
+        put('"');
+        put(',');
+    }
+
+    private void bandwidth(double bw) throws IOException {
+        if (Math.abs(bw - 12.5) < 0.01) text("12.5K");
+        else if (Math.abs(bw - 25.0) < 0.01) text("25K");
+        else text(CsvChannelUtil.fmtBandwidth(bw));
+    }
+
+    private void digits(long v) throws IOException {
+        if (v < 0) put('-');
+        int n = 0;
+        do {
+            digits[n++] = (char) ('0' + Math.abs(v % 10));
+            v /= 10;
+        } while (v != 0);
+        while (n > 0) put(digits[--n]);
+    }
+
+    // ===== UTF-8 output =====
+
+    private void put(char ch) throws IOException {
+        if (len > BUF_SIZE - 4) {
+            out.write(buf, 0, len);
+            len = 0;
+        }
+        if (highSurrogate != 0 && !Character.isLowSurrogate(ch)) {
+            highSurrogate = 0;
+            buf[len++] = '?'; // unpaired, replaced as the JDK encoder does
+        }
+        if (ch < 0x80) {
+            buf[len++] = (byte) ch;
+        } else if (ch < 0x800) {
+            buf[len++] = (byte) (0xC0 | ch >> 6);
+            buf[len++] = (byte) (0x80 | ch & 0x3F);
+        } else if (Character.isHighSurrogate(ch)) {
+            highSurrogate = ch;
+        } else if (Character.isLowSurrogate(ch)) {
+            if (highSurrogate == 0) {
+                buf[len++] = '?';
+                return;
+            }
+            int cp = Character.toCodePoint(highSurrogate, ch);
+            highSurrogate = 0;
+            buf[len++] = (byte) (0xF0 | cp >> 18);
+            buf[len++] = (byte) (0x80 | cp >> 12 & 0x3F);
+            buf[len++] = (byte) (0x80 | cp >> 6 & 0x3F);
+            buf[len++] = (byte) (0x80 | cp & 0x3F);
+        } else {
+            buf[len++] = (byte) (0xE0 | ch >> 12);
+            buf[len++] = (byte) (0x80 | ch >> 6 & 0x3F);
+            buf[len++] = (byte) (0x80 | ch & 0x3F);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.app.annytunes.uart.channels;
+
+import com.app.annytunes.uart.TransferSession;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streaming CSV channel import straight into a radio upload. The calling thread tokenizes the
+ * input from one reusable char buffer into chunks of {@link #CHUNK_ROWS} rows (cell text copied
+ * once, unescaped, into the chunk); a small worker pool parses and encodes chunks to 64-byte
+ * records; the calling thread then feeds the records to {@link ChannelIo#writeChannels} in file
+ * order, so the first bank is on the wire while later rows are still being read. At most a few
+ * chunks exist at a time, whatever the file size.
+ * <p>
+ * Same columns and rules as {@link CsvChannelUtil#read}: the first row is the header, blank
+ * lines are skipped, missing trailing columns are empty, extra ones are ignored. An empty
+ * cell leaves that setting as the radio has it.
+ */
+public final class CsvChannelImporter {
+    static final int COLUMNS = 61;
+    static final int CHUNK_ROWS = 256;
+
+    public static final class Result {
+        public final int rows;
+        public final int unresolvedContacts; // rows whose contact kept the radio's value
+        public final TransferSession session;
+
+        Result(int rows, int unresolvedContacts, TransferSession session) {
+            this.rows = rows;
+            this.unresolvedContacts = unresolvedContacts;
+            this.session = session;
+        }
+    }
+
+    private CsvChannelImporter() {
+    }
+
+    /**
+     * Parse {@code in} and upload it as the channel list (channel 1 = first data row). Blocking;
+     * returns once every bank is queued. See {@link ChannelIo#writeAllChannels}
+     * for {@code fullRewrite}.
+     */
+    public static Result upload(Reader in, boolean fullRewrite) throws IOException {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "csv-import");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Pump pump = new Pump(in, pool, threads * 2);
+            TransferSession s = ChannelIo.getObj().writeChannels(fullRewrite, pump::run);
+            return new Result(pump.rows, pump.unresolvedContacts, s);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Rows of cell spans over one text buffer, plus the encoded records once a worker is done
+    private static final class Chunk {
+        char[] text = new char[CHUNK_ROWS * 64];
+        int textLen;
+        final int[] cells = new int[CHUNK_ROWS * COLUMNS * 2]; // start, end per cell
+        int rows;
+        final byte[] out = new byte[CHUNK_ROWS * ChannelIo.CH_OFFSET];
+        final byte[] written = new byte[CHUNK_ROWS * ChannelIo.CH_OFFSET];
+        final boolean[] unresolved = new boolean[CHUNK_ROWS]; // a contact name not in the list
+
+        void reset() {
+            textLen = 0;
+            rows = 0;
+        }
+
+        void append(char c) {
+            if (textLen == text.length) text = java.util.Arrays.copyOf(text, textLen * 2);
+            text[textLen++] = c;
+        }
+
+        // Parse and encode every row; runs on a worker
+        Chunk encode() {
+            String[] parts = new String[COLUMNS];
+            Channel c = new Channel();
+            for (int r = 0; r < rows; r++) {
+                int base = r * COLUMNS * 2;
+                for (int k = 0; k < COLUMNS; k++) {
+                    int s = cells[base + 2 * k], e = cells[base + 2 * k + 1];
+                    parts[k] = e > s ? new String(text, s, e - s) : "";
+                }
+                CsvChannelUtil.parseRow(parts, c);
+                int o = r * ChannelIo.CH_OFFSET;
+                java.util.Arrays.fill(out, o, o + ChannelIo.CH_OFFSET, (byte) 0);
+                java.util.Arrays.fill(written, o, o + ChannelIo.CH_OFFSET, (byte) 0);
+                ChannelLayout.encode(c, out, o, written, o);
+                unresolved[r] = c.contactId == Channel.CONTACT_UNRESOLVED && !c.contactName.trim().isEmpty();
+            }
+            return this;
+        }
+    }
+
+    private static final class Pump {
+        private final Reader in;
+        private final ExecutorService pool;
+        private final int depth;
+        private final char[] buf = new char[1 << 15];
+        private final ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        private final ArrayDeque<Chunk> free = new ArrayDeque<>();
+        int rows;
+        int unresolvedContacts;
+
+        // Tokenizer state
+        private Chunk cur;
+        private boolean header = true;
+        private boolean inQuotes, quoteSeen, afterCr;
+        private int col, cellStart, rowTextStart;
+        private boolean rowHasText;
+
+        Pump(Reader in, ExecutorService pool, int depth) {
+            this.in = in;
+            this.pool = pool;
+            this.depth = depth;
+        }
+
+        void run(ChannelIo.BankUpload up) throws IOException {
+            cur = take();
+            boolean first = true;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                int i = 0;
+                if (first && buf[0] == '\uFEFF') i = 1; // UTF-8 BOM
+                first = false;
+                for (; i < n; i++) accept(buf[i], up);
+            }
+            if (col > 0 || cur.textLen > rowTextStart || rowHasText) accept('\n', up); // last line without a terminator
+            if (cur.rows > 0) dispatch(up);
+            while (!inFlight.isEmpty()) drainOne(up);
+        }
+
+        private void accept(char ch, ChannelIo.BankUpload up) throws IOException {
+            // Line breaks end the row even inside quotes, like the line-based CsvChannelUtil.read
+            if (ch == '\n' || ch == '\r') {
+                if (ch == '\n' && afterCr) {
+                    afterCr = false;
+                    return;
+                }
+                afterCr = ch == '\r';
+                inQuotes = quoteSeen = false;
+                endCell();
+                endRow(up);
+                return;
+            }
+            afterCr = false;
+            if (inQuotes) {
+                if (quoteSeen) {
+                    quoteSeen = false;
+                    if (ch == '"') {
+                        cur.append('"');
+                        return;
+                    }
+                    inQuotes = false; // closing quote; fall through to handle ch normally
+                } else if (ch == '"') {
+                    quoteSeen = true;
+                    return;
+                } else {
+                    cur.append(ch);
+                    if (ch > ' ') rowHasText = true;
+                    return;
+                }
+            }
+            if (ch == '"') {
+                inQuotes = true;
+                rowHasText = true;
+            } else if (ch == ',') {
+                endCell();
+                rowHasText = true;
+            } else {
+                cur.append(ch);
+                if (ch > ' ') rowHasText = true;
+            }
+        }
+
+        private void endCell() {
+            if (col < COLUMNS) {
+                int at = (cur.rows * COLUMNS + col) * 2;
+                cur.cells[at] = cellStart;
+                cur.cells[at + 1] = cur.textLen;
+            } else {
+                cur.textLen = cellStart; // ignored column
+            }
+            col++;
+            cellStart = cur.textLen;
+        }
+
+        private void endRow(ChannelIo.BankUpload up) throws IOException {
+            boolean keep = rowHasText && !header;
+            if (rowHasText) header = false;
+            if (keep) {
+                for (int k = col; k < COLUMNS; k++) {
+                    int at = (cur.rows * COLUMNS + k) * 2;
+                    cur.cells[at] = cur.cells[at + 1] = 0;
+                }
+                cur.rows++;
+                rows++;
+            } else {
+                cur.textLen = rowTextStart;
+            }
+            col = 0;
+            rowHasText = false;
+            if (cur.rows == CHUNK_ROWS) dispatch(up);
+            rowTextStart = cellStart = cur.textLen;
+        }
+
+        private void dispatch(ChannelIo.BankUpload up) throws IOException {
+            Chunk c = cur;
+            inFlight.addLast(pool.submit(c::encode));
+            while (inFlight.size() >= depth) drainOne(up);
+            cur = take();
+        }
+
+        private Chunk take() {
+            Chunk c = free.pollFirst();
+            if (c == null) c = new Chunk();
+            c.reset();
+            return c;
+        }
+
+        // Oldest chunk first, so records reach the upload in file order
+        private void drainOne(ChannelIo.BankUpload up) throws IOException {
+            Chunk c;
+            try {
+                c = inFlight.pollFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted importing CSV", e);
+            } catch (ExecutionException e) {
+                throw new IOException("CSV row parse failed: " + e.getCause(), e.getCause());
+            }
+            for (int r = 0; r < c.rows; r++) {
+                up.putEncoded(c.out, r * ChannelIo.CH_OFFSET, c.written, r * ChannelIo.CH_OFFSET);
+                if (c.unresolved[r]) unresolvedContacts++;
+            }
+            free.addLast(c);
+        }
+    }
+}
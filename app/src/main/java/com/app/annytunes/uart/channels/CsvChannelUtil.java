@@ -1,26 +1,29 @@
 package com.app.annytunes.uart.channels;
 
+import android.util.Log;
+
+import com.app.annytunes.uart.contacts.TalkGroupIndex;
+import com.app.annytunes.uart.contacts.TalkGroupIo;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 public class CsvChannelUtil {
+    private static final String TAG = "CsvChannelUtil";
+    private static final java.util.Set<String> warnedContacts = java.util.concurrent.ConcurrentHashMap.newKeySet();
     private static final String FULL_HEADER = "\"No.\",\"Channel Name\",\"Receive Frequency\",\"Transmit Frequency\",\"Channel Type\",\"Transmit Power\",\"Band Width\",\"CTCSS/DCS Decode\",\"CTCSS/DCS Encode\",\"Contact\",\"Contact Call Type\",\"Radio ID\",\"Busy Lock/TX Permit\",\"Squelch Mode\",\"Optional Signal\",\"DTMF ID\",\"2Tone ID\",\"5Tone ID\",\"PTT ID\",\"RX Color Code\",\"Slot\",\"Scan List\",\"Receive Group List\",\"PTT Prohibit\",\"Reverse\",\"Idle TX\",\"Slot Suit\",\"AES Digital Encryption\",\"Digital Encryption\",\"Call Confirmation\",\"Talk Around(Simplex)\",\"Work Alone\",\"Custom CTCSS\",\"2TONE Decode\",\"Ranging\",\"Through Mode\",\"APRS RX\",\"Analog APRS PTT Mode\",\"Digital APRS PTT Mode\",\"APRS Report Type\",\"Digital APRS Report Channel\",\"Correct Frequency[Hz]\",\"SMS Confirmation\",\"Exclude channel from roaming\",\"DMR MODE\",\"DataACK Disable\",\"R5ToneBot\",\"R5ToneEot\",\"Auto Scan\",\"Ana Aprs Mute\",\"Send Talker Aias\",\"AnaAprsTxPath\",\"ARC4\",\"ex_emg_kind\",\"idle_tx\",\"Compand\",\"DisturEn\",\"DisturFreq\",\"Rpga_Mdc\",\"dmr_crc_ignore\",\"TxCc\"";
 
     public static void write(List<Channel> list, File f) throws IOException {
         if (list == null) list = List.of();
-        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
-            pw.println(FULL_HEADER);
-            int idx = 1;
-            for (Channel c : list) pw.println(row(c, idx++));
+        try (FileOutputStream os = new FileOutputStream(f)) {
+            CsvChannelExporter.write(list, os, true);
         }
     }
 
@@ -28,88 +31,104 @@ public class CsvChannelUtil {
         List<Channel> out = new ArrayList<>();
         if (f == null || !f.exists()) return out;
         try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
-            String line;
+            String[] parts;
             boolean first = true;
-            while ((line = br.readLine()) != null) {
+            while ((parts = nextRow(br)) != null) {
                 if (first) {
                     first = false;
                     continue;
                 }
-                if (line.trim().isEmpty()) continue;
-                String[] parts = splitCsv(line);
-                if (parts.length < 61) { // pad missing columns
-                    String[] padded = new String[61];
-                    System.arraycopy(parts, 0, padded, 0, parts.length);
-                    for (int i = parts.length; i < 61; i++) padded[i] = "";
-                    parts = padded;
-                }
                 Channel c = new Channel();
-                c.name = unesc(parts[1]);
-                c.rxHz = parseFreq(parts[2]);
-                c.txHz = parseFreq(parts[3]);
-                c.digital = parseDigital(parts, 4);
-                c.power = parsePower(parts, 5);
-                c.bandwidthKHz = parseBandwidth(parts[6]);
-                c.ctcssDecode = unesc(parts[7]);
-                c.ctcssEncode = unesc(parts[8]);
-                c.contactName = unesc(parts[9]);
-                c.contactCallType = unesc(parts[10]);
-                c.radioIdIndex = parseIntSafe(parts, 11);
-                c.admit = unesc(parts[12]);
-                c.squelchMode = unesc(parts[13]);
-                c.optionalSignal = unesc(parts[14]);
-                c.dtmfId = unesc(parts[15]);
-                c.twoToneId = unesc(parts[16]);
-                c.fiveToneId = unesc(parts[17]);
-                c.pttId = unesc(parts[18]);
-                c.colorCode = parseIntSafe(parts, 19);
-                c.timeslot = parseIntSafe(parts, 20);
-                c.scanList = unesc(parts[21]);
-                c.receiveGroupList = unesc(parts[22]);
-                c.pttProhibit = parseBool(parts[23]);
-                c.reverse = parseBool(parts[24]);
-                c.idleTx = unesc(parts[25]);
-                c.slotSuit = unesc(parts[26]);
-                c.aesDigitalEncryption = parseBool(parts[27]);
-                c.digitalEncryption = parseBool(parts[28]);
-                c.callConfirmation = parseBool(parts[29]);
-                c.talkAround = parseBool(parts[30]);
-                c.workAlone = parseBool(parts[31]);
-                c.customCtcss = unesc(parts[32]);
-                c.twoToneDecode = unesc(parts[33]);
-                c.ranging = parseBool(parts[34]);
-                c.throughMode = parseBool(parts[35]);
-                c.aprsRx = parseBool(parts[36]);
-                c.analogAprsPttMode = unesc(parts[37]);
-                c.digitalAprsPttMode = unesc(parts[38]);
-                c.aprsReportType = unesc(parts[39]);
-                c.digitalAprsReportChannel = unesc(parts[40]);
-                c.correctFrequencyHz = parseLongSafe(parts, 41);
-                c.smsConfirmation = parseBool(parts[42]);
-                c.excludeFromRoaming = parseBool(parts[43]);
-                c.dmrMode = unesc(parts[44]);
-                c.dataAckDisable = parseBool(parts[45]);
-                c.r5ToneBot = unesc(parts[46]);
-                c.r5ToneEot = unesc(parts[47]);
-                c.autoScan = parseBool(parts[48]);
-                c.anaAprsMute = parseBool(parts[49]);
-                c.sendTalkerAlias = parseBool(parts[50]);
-                c.anaAprsTxPath = unesc(parts[51]);
-                c.arc4 = parseBool(parts[52]);
-                c.exEmgKind = unesc(parts[53]);
-                c.idle_tx = unesc(parts[54]);
-                c.compand = parseBool(parts[55]);
-                c.disturEn = parseBool(parts[56]);
-                c.disturFreq = unesc(parts[57]);
-                c.rpgaMdc = unesc(parts[58]);
-                c.dmrCrcIgnore = parseBool(parts[59]);
-                c.txColorCode = parseIntSafe(parts, 60);
+                parseRow(parts, c);
                 out.add(c);
             }
         }
         return out;
     }
 
+    // Next non-blank line split into at least 61 columns, or null at end of input
+    private static String[] nextRow(BufferedReader br) throws IOException {
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.trim().isEmpty()) continue;
+            String[] parts = splitCsv(line);
+            if (parts.length < 61) { // pad missing columns
+                String[] padded = new String[61];
+                System.arraycopy(parts, 0, padded, 0, parts.length);
+                for (int i = parts.length; i < 61; i++) padded[i] = "";
+                parts = padded;
+            }
+            return parts;
+        }
+        return null;
+    }
+
+    // An empty cell leaves the setting unset (null, -1, 0 Hz, CONTACT_UNRESOLVED), so an upload
+    // keeps the radio's value for it; see ChannelLayout.encode
+    static void parseRow(String[] parts, Channel c) {
+        c.name = blankToNull(unesc(parts[1]));
+        c.rxHz = parseFreq(parts[2]);
+        c.txHz = parseFreq(parts[3]);
+        c.channelType = parseChannelType(parts, 4);
+        c.power = parsePower(parts, 5);
+        c.bandwidthKHz = parseBandwidth(parts[6]);
+        c.ctcssDecode = unesc(parts[7]);
+        c.ctcssEncode = unesc(parts[8]);
+        c.contactName = unesc(parts[9]);
+        c.contactId = contactIdFor(c.contactName);
+        c.contactCallType = unesc(parts[10]);
+        c.radioIdIndex = parseIntOrUnset(parts, 11);
+        c.admit = unesc(parts[12]);
+        c.squelchMode = unesc(parts[13]);
+        c.optionalSignal = unesc(parts[14]);
+        c.dtmfId = unesc(parts[15]);
+        c.twoToneId = unesc(parts[16]);
+        c.fiveToneId = unesc(parts[17]);
+        c.pttId = unesc(parts[18]);
+        c.colorCode = parseIntOrUnset(parts, 19);
+        c.timeslot = parseIntOrUnset(parts, 20);
+        c.scanList = unesc(parts[21]);
+        c.receiveGroupList = unesc(parts[22]);
+        c.pttProhibit = parseBool(parts[23]);
+        c.reverse = parseBool(parts[24]);
+        c.idleTx = unesc(parts[25]);
+        c.slotSuit = unesc(parts[26]);
+        c.aesDigitalEncryption = parseBool(parts[27]);
+        c.digitalEncryption = parseBool(parts[28]);
+        c.callConfirmation = parseBool(parts[29]);
+        c.talkAround = parseBool(parts[30]);
+        c.workAlone = parseBool(parts[31]);
+        c.customCtcss = unesc(parts[32]);
+        c.twoToneDecode = unesc(parts[33]);
+        c.ranging = parseBool(parts[34]);
+        c.throughMode = parseBool(parts[35]);
+        c.aprsRx = parseBool(parts[36]);
+        c.analogAprsPttMode = unesc(parts[37]);
+        c.digitalAprsPttMode = unesc(parts[38]);
+        c.aprsReportType = unesc(parts[39]);
+        c.digitalAprsReportChannel = unesc(parts[40]);
+        c.correctFrequencyHz = parseLongSafe(parts, 41);
+        c.smsConfirmation = parseBool(parts[42]);
+        c.excludeFromRoaming = parseBool(parts[43]);
+        c.dmrMode = unesc(parts[44]);
+        c.dataAckDisable = parseBool(parts[45]);
+        c.r5ToneBot = unesc(parts[46]);
+        c.r5ToneEot = unesc(parts[47]);
+        c.autoScan = parseBool(parts[48]);
+        c.anaAprsMute = parseBool(parts[49]);
+        c.sendTalkerAlias = parseBool(parts[50]);
+        c.anaAprsTxPath = unesc(parts[51]);
+        c.arc4 = parseBool(parts[52]);
+        c.exEmgKind = unesc(parts[53]);
+        c.idle_tx = unesc(parts[54]);
+        c.compand = parseBool(parts[55]);
+        c.disturEn = parseBool(parts[56]);
+        c.disturFreq = unesc(parts[57]);
+        c.rpgaMdc = unesc(parts[58]);
+        c.dmrCrcIgnore = parseBool(parts[59]);
+        c.txColorCode = parseIntOrUnset(parts, 60);
+    }
+
     public static String header() {
         return FULL_HEADER;
     }
@@ -119,78 +138,34 @@ public class CsvChannelUtil {
     }
 
     public static String row(Channel c, int index) {
-        if (c == null) c = new Channel();
-        StringBuilder sb = new StringBuilder();
-        java.util.function.Consumer<String> q = (v) -> {
-            sb.append('"').append(v == null ? "" : v.replace("\"", "\"\"")).append('"').append(',');
-        };
-        java.util.function.Consumer<Boolean> qb = (b) -> q.accept(boolLabel(b));
-        java.util.function.Consumer<Long> ql = (l) -> q.accept(fmtFreq(l));
-        java.util.function.Consumer<Integer> qi = (i) -> q.accept(Integer.toString(i));
-        java.util.function.Consumer<Double> qd = (d) -> q.accept(fmtBandwidth(d));
-        q.accept(index > 0 ? Integer.toString(index) : "");
-        q.accept(safe(c.name));
-        ql.accept(c.rxHz);
-        ql.accept(c.txHz);
-        q.accept(c.digital ? "Digital" : "Analog");
-        q.accept(powerLabel(c.power));
-        qd.accept(c.bandwidthKHz);
-        q.accept(safe(c.ctcssDecode));
-        q.accept(safe(c.ctcssEncode));
-        q.accept(safe(c.contactName));
-        q.accept(safe(c.contactCallType));
-        qi.accept(c.radioIdIndex);
-        q.accept(safe(c.admit));
-        q.accept(safe(c.squelchMode));
-        q.accept(safe(c.optionalSignal));
-        q.accept(safe(c.dtmfId));
-        q.accept(safe(c.twoToneId));
-        q.accept(safe(c.fiveToneId));
-        q.accept(safe(c.pttId));
-        qi.accept(c.colorCode);
-        qi.accept(c.timeslot);
-        q.accept(safe(c.scanList));
-        q.accept(safe(c.receiveGroupList));
-        qb.accept(c.pttProhibit);
-        qb.accept(c.reverse);
-        q.accept(safe(c.idleTx));
-        q.accept(safe(c.slotSuit));
-        qb.accept(c.aesDigitalEncryption);
-        qb.accept(c.digitalEncryption);
-        qb.accept(c.callConfirmation);
-        qb.accept(c.talkAround);
-        qb.accept(c.workAlone);
-        q.accept(safe(c.customCtcss));
-        q.accept(safe(c.twoToneDecode));
-        qb.accept(c.ranging);
-        qb.accept(c.throughMode);
-        qb.accept(c.aprsRx);
-        q.accept(safe(c.analogAprsPttMode));
-        q.accept(safe(c.digitalAprsPttMode));
-        q.accept(safe(c.aprsReportType));
-        q.accept(safe(c.digitalAprsReportChannel));
-        q.accept(Long.toString(c.correctFrequencyHz));
-        qb.accept(c.smsConfirmation);
-        qb.accept(c.excludeFromRoaming);
-        q.accept(safe(c.dmrMode));
-        qb.accept(c.dataAckDisable);
-        q.accept(safe(c.r5ToneBot));
-        q.accept(safe(c.r5ToneEot));
-        qb.accept(c.autoScan);
-        qb.accept(c.anaAprsMute);
-        qb.accept(c.sendTalkerAlias);
-        q.accept(safe(c.anaAprsTxPath));
-        qb.accept(c.arc4);
-        q.accept(safe(c.exEmgKind));
-        q.accept(safe(c.idle_tx));
-        qb.accept(c.compand);
-        qb.accept(c.disturEn);
-        q.accept(safe(c.disturFreq));
-        q.accept(safe(c.rpgaMdc));
-        qb.accept(c.dmrCrcIgnore);
-        qi.accept(c.txColorCode);
-        if (sb.length() > 0 && sb.charAt(sb.length() - 1) == ',') sb.setLength(sb.length() - 1);
-        return sb.toString();
+        java.io.ByteArrayOutputStream bo = new java.io.ByteArrayOutputStream(512);
+        try {
+            CsvChannelExporter x = new CsvChannelExporter(bo);
+            x.cells(c == null ? new Channel() : c, index);
+            x.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream
+        }
+        return new String(bo.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // Contact column holds the contact's name; a bare number is taken as the DMR ID itself. An
+    // empty cell, or a name the talk-group index cannot resolve (list not read yet, or no such
+    // contact), is CONTACT_UNRESOLVED, so the upload keeps the radio's contact instead of
+    // clearing it
+    private static int contactIdFor(String name) {
+        String s = name == null ? "" : name.trim();
+        if (s.isEmpty()) return Channel.CONTACT_UNRESOLVED;
+        TalkGroupIndex index = TalkGroupIo.index();
+        int id = index.idOf(s);
+        if (id != 0) return id;
+        boolean numeric = s.length() <= 8;
+        for (int i = 0; numeric && i < s.length(); i++) numeric = Character.isDigit(s.charAt(i));
+        if (numeric) return Integer.parseInt(s);
+        if (warnedContacts.add(s))
+            Log.w(TAG, "Contact \"" + s + "\" " + (index.size() == 0 ? "unresolved, talk-group list not read yet" : "not in the talk-group list")
+                    + "; keeping the radio's contact");
+        return Channel.CONTACT_UNRESOLVED;
     }
 
     private static long parseLongSafe(String[] p, int idx) {
@@ -201,14 +176,20 @@ public class CsvChannelUtil {
         }
     }
 
-    private static int parseIntSafe(String[] p, int idx) {
+    // -1 (unset) for an empty or unreadable cell
+    private static int parseIntOrUnset(String[] p, int idx) {
         try {
-            return Integer.parseInt(stripQuotes(p[idx]));
+            return Integer.parseInt(stripQuotes(p[idx]).trim());
         } catch (Exception e) {
-            return 0;
+            return -1;
         }
     }
 
+    private static String blankToNull(String s) {
+        return s == null || s.trim().isEmpty() ? null : s;
+    }
+
+
     private static double parseDoubleSafe(String[] p, int idx) {
         try {
             return Double.parseDouble(stripQuotes(p[idx]));
@@ -217,19 +198,24 @@ public class CsvChannelUtil {
         }
     }
 
-    private static boolean parseDigital(String[] p, int idx) {
+    // CPS labels ("D-Digital", "A+D TX A"...), the bare "Digital"/"Analog" older exports wrote,
+    // or the raw type number
+    private static int parseChannelType(String[] p, int idx) {
         try {
-            String v = stripQuotes(p[idx]).toLowerCase(java.util.Locale.ROOT);
-            return v.startsWith("digi");
+            String v = stripQuotes(p[idx]).trim();
+            for (int t = 0; t < Channel.TYPE_LABELS.length; t++)
+                if (Channel.TYPE_LABELS[t].equalsIgnoreCase(v) || Channel.TYPE_NAMES[t].equalsIgnoreCase(v)) return t;
+            if (v.toLowerCase(java.util.Locale.ROOT).startsWith("digi")) return Channel.TYPE_DIGITAL;
+            int n = Integer.parseInt(v);
+            return n >= 0 && n <= Channel.TYPE_D_A ? n : Channel.TYPE_UNKNOWN;
         } catch (Exception e) {
-            return false;
+            return Channel.TYPE_UNKNOWN;
         }
     }
 
-    private static String fmtFreq(long hz) {
-        if (hz <= 0) return "";
-        double mhz = hz / 1_000_000.0;
-        return String.format(java.util.Locale.ROOT, "%.5f", mhz);
+    static String typeLabel(int type) {
+        if (type == Channel.TYPE_UNKNOWN) return "";
+        return type >= 0 && type < Channel.TYPE_LABELS.length ? Channel.TYPE_LABELS[type] : Integer.toString(type);
     }
 
     private static long parseFreq(String s) {
@@ -248,7 +234,7 @@ public class CsvChannelUtil {
         }
     }
 
-    private static String powerLabel(int p) {
+    static String powerLabel(int p) {
         switch (p) {
             case 0:
                 return "Low";
@@ -281,11 +267,11 @@ public class CsvChannelUtil {
                     return Integer.parseInt(v);
             }
         } catch (Exception e) {
-            return 0;
+            return -1;
         }
     }
 
-    private static String fmtBandwidth(double bw) {
+    static String fmtBandwidth(double bw) {
         if (bw <= 0) return "";
         if (Math.abs(bw - 12.5) < 0.01) return "12.5K";
         if (Math.abs(bw - 25.0) < 0.01) return "25K";
@@ -302,20 +288,12 @@ public class CsvChannelUtil {
         }
     }
 
-    private static String boolLabel(boolean b) {
-        return b ? "Yes" : "No";
-    }
-
     private static boolean parseBool(String s) {
         if (s == null) return false;
         s = stripQuotes(s).trim().toLowerCase(java.util.Locale.ROOT);
         return s.equals("1") || s.equals("true") || s.equals("yes") || s.equals("y");
     }
 
-    private static String safe(String s) {
-        return s == null ? "" : s;
-    }
-
     private static String stripQuotes(String s) {
         return s == null ? "" : (s.startsWith("\"") && s.endsWith("\"")) ? s.substring(1, s.length() - 1).replace("\"\"", "\"") : s;
     }
@@ -0,0 +1,32 @@
+package com.app.annytunes.uart.contacts;
+
+/**
+ * One entry of the radio's talk-group contact list (the contacts channels point at), as opposed
+ * to the digital contact database of callers. See TalkGroupIo for the record layout.
+ */
+public class TalkGroup {
+    public static final int CALL_PRIVATE = 0;
+    public static final int CALL_GROUP = 1;
+    public static final int CALL_ALL = 2;
+
+    public int id;          // DMR TG / private ID
+    public String name;
+    public int callType;    // CALL_*
+    public int callAlert;   // 0 none, 1 ring, 2 online alert
+
+    public TalkGroup() {
+        this.name = "";
+        this.callType = CALL_GROUP;
+    }
+
+    public TalkGroup(int id, String name, int callType) {
+        this.id = id;
+        this.name = (name == null ? "" : name.trim());
+        this.callType = callType;
+    }
+
+    @Override
+    public String toString() {
+        return "TalkGroup{id=" + id + ", name='" + name + "', callType=" + callType + "}";
+    }
+}
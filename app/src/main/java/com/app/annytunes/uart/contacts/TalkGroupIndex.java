@@ -0,0 +1,110 @@
+package com.app.annytunes.uart.contacts;
+
+/**
+ * Immutable contact ID to name map (and name back to ID) built once per contact table read.
+ * Both directions are open-addressing tables over primitive arrays with linear probing, sized
+ * to at most half full, so a lookup is a hash and a probe or two with no boxing. ID 0 is not a
+ * valid contact and marks a free slot.
+ */
+public final class TalkGroupIndex {
+    public static final TalkGroupIndex EMPTY = new Builder().build();
+
+    private final int[] ids;      // slot -> contact ID, 0 = free
+    private final String[] names; // slot -> name
+    private final int[] byName;   // name-hash bucket -> slot + 1, 0 = free
+    private final int mask;
+    private final int size;
+
+    private TalkGroupIndex(int[] ids, String[] names, int[] byName, int size) {
+        this.ids = ids;
+        this.names = names;
+        this.byName = byName;
+        this.mask = ids.length - 1;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Name of contact {@code id}, or "" if the table has no such contact.
+     */
+    public String nameOf(int id) {
+        if (id == 0) return "";
+        for (int i = mix(id) & mask; ; i = (i + 1) & mask) {
+            int k = ids[i];
+            if (k == id) return names[i];
+            if (k == 0) return "";
+        }
+    }
+
+    /**
+     * ID of the first contact named {@code name} (trimmed, case-sensitive), or 0.
+     */
+    public int idOf(String name) {
+        if (name == null || size == 0) return 0;
+        name = name.trim();
+        if (name.isEmpty()) return 0;
+        for (int i = mix(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int s = byName[i];
+            if (s == 0) return 0;
+            if (names[s - 1].equals(name)) return ids[s - 1];
+        }
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static final class Builder {
+        private int[] ids = new int[64];
+        private String[] names = new String[64];
+        private int n;
+
+        /**
+         * Add a contact; later duplicates of an ID or name are ignored on lookup.
+         */
+        public Builder put(int id, String name) {
+            if (id == 0) return this;
+            if (n == ids.length) {
+                ids = java.util.Arrays.copyOf(ids, n * 2);
+                names = java.util.Arrays.copyOf(names, n * 2);
+            }
+            ids[n] = id;
+            names[n++] = name == null ? "" : name.trim();
+            return this;
+        }
+
+        public TalkGroupIndex build() {
+            int cap = Integer.highestOneBit(Math.max(4, n * 2 - 1)) << 1;
+            int m = cap - 1;
+            int[] slotIds = new int[cap];
+            String[] slotNames = new String[cap];
+            int[] byName = new int[cap];
+            int size = 0;
+            for (int j = 0; j < n; j++) {
+                int id = ids[j];
+                int i = mix(id) & m;
+                while (slotIds[i] != 0 && slotIds[i] != id) i = (i + 1) & m;
+                if (slotIds[i] == id) continue; // first one wins
+                slotIds[i] = id;
+                slotNames[i] = names[j];
+                size++;
+                if (names[j].isEmpty()) continue;
+                int b = mix(names[j].hashCode()) & m;
+                boolean dup = false;
+                while (byName[b] != 0) {
+                    if (slotNames[byName[b] - 1].equals(names[j])) {
+                        dup = true;
+                        break;
+                    }
+                    b = (b + 1) & m;
+                }
+                if (!dup) byName[b] = i + 1;
+            }
+            return new TalkGroupIndex(slotIds, slotNames, byName, size);
+        }
+    }
+}
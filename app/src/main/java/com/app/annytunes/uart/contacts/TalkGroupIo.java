@@ -0,0 +1,160 @@
+package com.app.annytunes.uart.contacts;
+
+import android.util.Log;
+
+import com.app.annytunes.uart.CommsThread;
+import com.app.annytunes.uart.ReadPlanner;
+import com.app.annytunes.uart.TransferSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Talk-group contact list reader. Record layout ASSUMED (needs confirmation with a CPS dump):
+ * 0x00        Call type (0 private, 1 group, 2 all call)
+ * 0x01..0x10  Name (16 bytes, NUL padded, ISO-8859-1)
+ * 0x23..0x26  DMR ID, 8 BCD digits, most significant first
+ * 0x27        Call alert
+ * A record that is all 0xFF or has no valid ID is an empty slot. The radio's separate
+ * contact-used bitmap is not maintained here.
+ * <p>
+ * The table is read in blocks and stops at the first block with no contacts (the CPS packs
+ * the list from the start), then published as a {@link TalkGroupIndex} that channel decoding
+ * and CSV import/export use to map between a channel's contact ID and the contact's name.
+ * The list is read once per connection ({@link #ensureLoaded}) and is not written back.
+ */
+public final class TalkGroupIo {
+    private static final String TAG = "TalkGroupIo";
+    public static final long BASE = 0x02680000L;
+    public static final int RECORD_SIZE = 100;
+    public static final int MAX_CONTACTS = 10000;
+    private static final int NAME_OFF = 0x01;
+    private static final int NAME_LEN = 16;
+    private static final int ID_OFF = 0x23;
+    private static final int ALERT_OFF = 0x27;
+    // 81 records = 8100 bytes, one read span
+    static final int BLOCK_RECORDS = ReadPlanner.DEFAULT_MAX_SPAN / RECORD_SIZE;
+
+    private static volatile TalkGroupIndex index = TalkGroupIndex.EMPTY;
+    private static int loadedFor = -1; // CommsThread connection the index was read under
+    private static Loader loading;     // read in flight, if any
+
+    private TalkGroupIo() {
+    }
+
+    /**
+     * Index from the last completed read; empty until then.
+     */
+    public static TalkGroupIndex index() {
+        return index;
+    }
+
+    public static long addressOf(int contactIndex0) {
+        return BASE + (long) contactIndex0 * RECORD_SIZE;
+    }
+
+    /**
+     * Decode the record at {@code off}, or null for an empty slot.
+     */
+    public static TalkGroup decode(byte[] buf, int off) {
+        int id = getBcd8(buf, off + ID_OFF);
+        if (id <= 0) return null;
+        TalkGroup t = new TalkGroup();
+        t.id = id;
+        t.callType = buf[off] & 0xFF;
+        t.callAlert = buf[off + ALERT_OFF] & 0xFF;
+        int end = off + NAME_OFF;
+        while (end < off + NAME_OFF + NAME_LEN && buf[end] != 0) end++;
+        t.name = new String(buf, off + NAME_OFF, end - (off + NAME_OFF), StandardCharsets.ISO_8859_1).trim();
+        return t;
+    }
+
+    // DMR ID from 8 BCD digits in 4 bytes, most significant digit first; -1 if any nibble is
+    // not a decimal digit (e.g. erased 0xFF)
+    private static int getBcd8(byte[] in, int off) {
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = in[off + i] & 0xFF;
+            int hi = b >>> 4, lo = b & 0x0F;
+            if (hi > 9 || lo > 9) return -1;
+            v = v * 100 + hi * 10 + lo;
+        }
+        return v;
+    }
+
+    /**
+     * Queue a read of the contact list under {@code session} (may be null). Blocks are chained:
+     * each one is requested once the previous one turned out to hold contacts, and the index is
+     * published when the list ends.
+     */
+    public static synchronized void readAllAsync(TransferSession session) throws IOException {
+        loading = new Loader(session, CommsThread.getObj().getConnection());
+        loading.submit(0);
+    }
+
+    /**
+     * As {@link #readAllAsync}, unless the list was already read since the radio was last put in
+     * PC mode or a read of it is still under way. A read whose session was cancelled or failed
+     * before the list ended is started again.
+     */
+    public static synchronized void ensureLoaded(TransferSession session) throws IOException {
+        int conn = CommsThread.getObj().getConnection();
+        if (loadedFor == conn) return;
+        Loader l = loading;
+        if (l != null && l.conn == conn && l.session != null) {
+            TransferSession.State st = l.session.getState();
+            if (st == TransferSession.State.ACTIVE || st == TransferSession.State.SUSPENDED) return;
+        }
+        readAllAsync(session);
+    }
+
+    private static synchronized void published(Loader l, TalkGroupIndex built) {
+        index = built;
+        if (loading == l) {
+            loadedFor = l.conn;
+            loading = null;
+        }
+    }
+
+    // Chained block reads; sink callbacks run on the comms thread
+    private static final class Loader {
+        private final TransferSession session;
+        private final int conn;
+        private final TalkGroupIndex.Builder builder = new TalkGroupIndex.Builder();
+
+        Loader(TransferSession session, int conn) {
+            this.session = session;
+            this.conn = conn;
+        }
+
+        void submit(int block) throws IOException {
+            int first = block * BLOCK_RECORDS;
+            int recs = Math.min(BLOCK_RECORDS, MAX_CONTACTS - first);
+            ReadPlanner plan = new ReadPlanner().add(addressOf(first), recs * RECORD_SIZE,
+                    (addr, buf, off, len) -> onBlock(block, buf, off, recs));
+            try {
+                CommsThread.getObj().submitPlan(plan, session);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted submitting contact read", e);
+            }
+        }
+
+        private void onBlock(int block, byte[] buf, int off, int recs) throws IOException {
+            int found = 0;
+            for (int r = 0; r < recs; r++) {
+                TalkGroup t = decode(buf, off + r * RECORD_SIZE);
+                if (t == null) continue;
+                builder.put(t.id, t.name);
+                found++;
+            }
+            if (found > 0 && (block + 1) * BLOCK_RECORDS < MAX_CONTACTS) {
+                submit(block + 1);
+                return;
+            }
+            TalkGroupIndex built = builder.build();
+            published(this, built);
+            Log.i(TAG, "Talk-group contacts: " + built.size() + " loaded from " + (block + 1) + " block(s)");
+        }
+    }
+}
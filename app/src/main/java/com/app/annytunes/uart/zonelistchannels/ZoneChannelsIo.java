@@ -2,8 +2,6 @@ package com.app.annytunes.uart.zonelistchannels;
 
 import com.app.annytunes.uart.channels.ChannelIo;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * Decode/encode zone channel membership records.
  */
@@ -11,23 +9,12 @@ public class ZoneChannelsIo {
     public static final int RECORD_STRIDE = 0x200; // each zone channel block spaced 512 bytes
     public static final int RECORD_SIZE = 512;     // full zone channel block size
     public static final long BASE_ADDRESS = 0x01000000L; // channel membership base separate from ZoneIo.DEFAULT_ZONE_BASE
-    private static final ConcurrentHashMap<Integer, int[]> CHANNELS_CACHE = new ConcurrentHashMap<>();
 
     public static long addressOf(int zoneIndex1Based) {
         if (zoneIndex1Based < 1) throw new IllegalArgumentException("zoneIndex<1");
         return BASE_ADDRESS + (long) (zoneIndex1Based - 1) * RECORD_STRIDE;
     }
 
-    public static void putChannels(int zoneIndex, int[] channels) {
-        if (zoneIndex > 0)
-            CHANNELS_CACHE.put(zoneIndex, channels == null ? new int[0] : channels.clone());
-    }
-
-    public static int[] getChannels(int zoneIndex) {
-        int[] v = CHANNELS_CACHE.get(zoneIndex);
-        return v == null ? new int[0] : v.clone();
-    }
-
     // New decode: record does NOT contain zone index; entire record is 16-bit LE channel numbers until 0x0000/0xFFFF terminator
     public static ZoneChannels decode(int zoneIndex, byte[] raw) {
         ZoneChannels z = new ZoneChannels();
@@ -36,19 +23,26 @@ public class ZoneChannelsIo {
             z.channelNumbers = new int[0];
             return z;
         }
+        z.channelNumbers = decodeChannels(raw, 0, raw.length);
+        ZoneMembership.getObj().set(zoneIndex, z.channelNumbers);
+        return z;
+    }
+
+    /**
+     * Channel numbers (1-based) of the membership block at {@code off}, up to the 0xFFFF
+     * terminator; entries outside the radio's channel range are dropped.
+     */
+    public static int[] decodeChannels(byte[] buf, int off, int len) {
         int maxCh = safeTotalChannels();
-        java.util.ArrayList<Integer> list = new java.util.ArrayList<>();
-        for (int off = 0; off + 1 < raw.length; off += 2) {
-            int lo = raw[off] & 0xFF;
-            int hi = raw[off + 1] & 0xFF;
-            int v = (hi << 8) | lo;
+        int[] out = new int[len / 2];
+        int n = 0;
+        for (int p = off; p + 1 < off + len; p += 2) {
+            int v = (buf[p] & 0xFF) | ((buf[p + 1] & 0xFF) << 8);
             if (v == 0xFFFF) break; // terminator
             int chNum = v + 1;    // apply +1 offset for display/use
-            if (chNum >= 1 && chNum <= maxCh) list.add(chNum);
+            if (chNum >= 1 && chNum <= maxCh) out[n++] = chNum;
         }
-        z.channelNumbers = list.stream().mapToInt(Integer::intValue).toArray();
-        putChannels(zoneIndex, z.channelNumbers);
-        return z;
+        return java.util.Arrays.copyOf(out, n);
     }
 
     // Legacy decode (no zone index available) retained only for backward compatibility; avoids indexing first word as zone ID.
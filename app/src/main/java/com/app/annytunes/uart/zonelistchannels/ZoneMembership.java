@@ -0,0 +1,279 @@
+package com.app.annytunes.uart.zonelistchannels;
+
+import com.app.annytunes.uart.zones.ZoneIo;
+
+/**
+ * Zone membership index. Every zone keeps its channels as a {@link ChannelSet} (a 4000-bit set for
+ * membership tests plus the list order the radio stores), and every channel keeps a 250-bit set
+ * of the zones that contain it. "Is N in zone Z" and "which zones hold N" are a word lookup each,
+ * and renumbering or deleting channels only visits the zones that actually contain them.
+ * <p>
+ * Mirrors the zones as last read or edited; the comms thread (zone load) and the UI both use
+ * it, so every method is synchronized.
+ */
+public final class ZoneMembership {
+    public static final int MAX_CHANNELS = 4000;
+    static final int CH_WORDS = (MAX_CHANNELS + 63) >>> 6;
+    private static final ZoneMembership INSTANCE = new ZoneMembership(ZoneIo.getTotalZones());
+
+    private final ChannelSet[] zones;   // zone index - 1 -> members
+    private final int zoneWords;
+    private final long[] byChannel;     // (channel - 1) * zoneWords -> bits of zone index - 1
+    private boolean loaded;             // every zone read since the last clear()
+
+    ZoneMembership(int zoneCount) {
+        zones = new ChannelSet[zoneCount];
+        for (int i = 0; i < zoneCount; i++) zones[i] = new ChannelSet();
+        zoneWords = (zoneCount + 63) >>> 6;
+        byChannel = new long[MAX_CHANNELS * zoneWords];
+    }
+
+    public static ZoneMembership getObj() {
+        return INSTANCE;
+    }
+
+    public int zoneCount() {
+        return zones.length;
+    }
+
+    /**
+     * Replace the members of zone {@code zoneIndex} (1-based) with {@code channels}, in order;
+     * duplicates and out-of-range numbers are dropped.
+     */
+    public synchronized void set(int zoneIndex, int[] channels) {
+        int z = zoneIndex - 1;
+        if (z < 0 || z >= zones.length) return;
+        ChannelSet s = zones[z];
+        for (int k = 0; k < s.size; k++) clearZoneBit(s.order[k], z);
+        s.clear();
+        if (channels != null) for (int ch : channels) if (s.add(ch)) setZoneBit(ch, z);
+    }
+
+    public synchronized boolean add(int zoneIndex, int channel) {
+        int z = zoneIndex - 1;
+        if (z < 0 || z >= zones.length || !zones[z].add(channel)) return false;
+        setZoneBit(channel, z);
+        return true;
+    }
+
+    public synchronized boolean remove(int zoneIndex, int channel) {
+        int z = zoneIndex - 1;
+        if (z < 0 || z >= zones.length || !zones[z].remove(channel)) return false;
+        clearZoneBit(channel, z);
+        return true;
+    }
+
+    public synchronized boolean contains(int zoneIndex, int channel) {
+        int z = zoneIndex - 1;
+        return z >= 0 && z < zones.length && zones[z].contains(channel);
+    }
+
+    public synchronized int size(int zoneIndex) {
+        int z = zoneIndex - 1;
+        return z >= 0 && z < zones.length ? zones[z].size : 0;
+    }
+
+    /**
+     * Members of zone {@code zoneIndex} in list order (a fresh array the caller owns).
+     */
+    public synchronized int[] channels(int zoneIndex) {
+        int z = zoneIndex - 1;
+        return z >= 0 && z < zones.length ? zones[z].toArray() : new int[0];
+    }
+
+    /**
+     * 1-based indexes of the zones that contain {@code channel}, ascending.
+     */
+    public synchronized int[] zonesOf(int channel) {
+        if (channel < 1 || channel > MAX_CHANNELS) return new int[0];
+        int base = (channel - 1) * zoneWords;
+        int n = 0;
+        for (int w = 0; w < zoneWords; w++) n += Long.bitCount(byChannel[base + w]);
+        int[] out = new int[n];
+        n = 0;
+        for (int w = 0; w < zoneWords; w++) {
+            for (long bits = byChannel[base + w]; bits != 0; bits &= bits - 1)
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(bits) + 1;
+        }
+        return out;
+    }
+
+    public synchronized boolean inAnyZone(int channel) {
+        if (channel < 1 || channel > MAX_CHANNELS) return false;
+        int base = (channel - 1) * zoneWords;
+        for (int w = 0; w < zoneWords; w++) if (byChannel[base + w] != 0) return true;
+        return false;
+    }
+
+    /**
+     * Apply a channel renumbering: {@code newNumber[old]} is the new number of channel
+     * {@code old}, or 0 to drop it from every zone (indexes past the array keep their number).
+     * Only zones containing a moved or dropped channel are rewritten; each keeps its order.
+     * Returns the 1-based indexes of those zones, ascending.
+     */
+    public synchronized int[] renumber(int[] newNumber) {
+        int[] out = zonesRenumberedBy(newNumber);
+        for (int zi : out) {
+            int[] after = renumbered(zi, newNumber);
+            int z = zi - 1;
+            ChannelSet s = zones[z];
+            for (int k = 0; k < s.size; k++) clearZoneBit(s.order[k], z);
+            s.clear();
+            for (int ch : after) if (s.add(ch)) setZoneBit(ch, z);
+        }
+        return out;
+    }
+
+    /**
+     * The zones {@link #renumber} would rewrite for {@code newNumber}, without changing the
+     * index.
+     */
+    public synchronized int[] zonesRenumberedBy(int[] newNumber) {
+        long[] touched = new long[zoneWords];
+        int limit = Math.min(newNumber.length - 1, MAX_CHANNELS);
+        for (int ch = 1; ch <= limit; ch++) {
+            if (newNumber[ch] == ch) continue;
+            int base = (ch - 1) * zoneWords;
+            for (int w = 0; w < zoneWords; w++) touched[w] |= byChannel[base + w];
+        }
+        int n = 0;
+        for (long bits : touched) n += Long.bitCount(bits);
+        int[] out = new int[n];
+        n = 0;
+        for (int w = 0; w < zoneWords; w++) {
+            for (long bits = touched[w]; bits != 0; bits &= bits - 1)
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(bits) + 1;
+        }
+        return out;
+    }
+
+    /**
+     * Members of zone {@code zoneIndex} as {@link #renumber} would leave them, without changing
+     * the index.
+     */
+    public synchronized int[] renumbered(int zoneIndex, int[] newNumber) {
+        int z = zoneIndex - 1;
+        if (z < 0 || z >= zones.length) return new int[0];
+        int limit = Math.min(newNumber.length - 1, MAX_CHANNELS);
+        ChannelSet s = zones[z];
+        ChannelSet tmp = new ChannelSet();
+        for (int k = 0; k < s.size; k++) {
+            int ch = s.order[k];
+            tmp.add(ch <= limit ? newNumber[ch] : ch);
+        }
+        return tmp.toArray();
+    }
+
+    /**
+     * Drop {@code channel} from every zone; returns the zones it was removed from.
+     */
+    public synchronized int[] delete(int channel) {
+        int[] zs = zonesOf(channel);
+        for (int zi : zs) {
+            zones[zi - 1].remove(channel);
+            clearZoneBit(channel, zi - 1);
+        }
+        return zs;
+    }
+
+    public synchronized void clear() {
+        for (ChannelSet s : zones) s.clear();
+        java.util.Arrays.fill(byChannel, 0L);
+        loaded = false;
+    }
+
+    /**
+     * Called once a zone load has filled in every zone, so the index reflects the whole radio.
+     */
+    public synchronized void markLoaded() {
+        loaded = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Wait up to {@code timeoutMs} for {@link #markLoaded}; true if the index is complete.
+     */
+    public synchronized boolean awaitLoaded(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!loaded) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return false;
+            wait(left);
+        }
+        return true;
+    }
+
+    private void setZoneBit(int channel, int z) {
+        byChannel[(channel - 1) * zoneWords + (z >>> 6)] |= 1L << z;
+    }
+
+    private void clearZoneBit(int channel, int z) {
+        byChannel[(channel - 1) * zoneWords + (z >>> 6)] &= ~(1L << z);
+    }
+
+    /**
+     * Ordered set of channel numbers 1..{@link #MAX_CHANNELS}: a bitset for contains/add/remove
+     * plus an int list keeping insertion order. Not thread-safe.
+     */
+    public static final class ChannelSet {
+        private final long[] bits = new long[CH_WORDS];
+        private int[] order = new int[16];
+        private int size;
+
+        public ChannelSet() {
+        }
+
+        public ChannelSet(int[] channels) {
+            if (channels != null) for (int ch : channels) add(ch);
+        }
+
+        public boolean contains(int ch) {
+            return ch >= 1 && ch <= MAX_CHANNELS && (bits[(ch - 1) >>> 6] & (1L << (ch - 1))) != 0;
+        }
+
+        /**
+         * Append {@code ch} unless present or out of range; true if added.
+         */
+        public boolean add(int ch) {
+            if (ch < 1 || ch > MAX_CHANNELS || contains(ch)) return false;
+            bits[(ch - 1) >>> 6] |= 1L << (ch - 1);
+            if (size == order.length) order = java.util.Arrays.copyOf(order, size * 2);
+            order[size++] = ch;
+            return true;
+        }
+
+        public boolean remove(int ch) {
+            if (!contains(ch)) return false;
+            bits[(ch - 1) >>> 6] &= ~(1L << (ch - 1));
+            for (int k = 0; k < size; k++) {
+                if (order[k] != ch) continue;
+                System.arraycopy(order, k + 1, order, k, size - k - 1);
+                size--;
+                break;
+            }
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int k) {
+            if (k < 0 || k >= size) throw new IndexOutOfBoundsException("index " + k + " size " + size);
+            return order[k];
+        }
+
+        public int[] toArray() {
+            return java.util.Arrays.copyOf(order, size);
+        }
+
+        public void clear() {
+            for (int k = 0; k < size; k++) bits[(order[k] - 1) >>> 6] = 0;
+            size = 0;
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.app.annytunes.uart.zones;
 
-import com.app.annytunes.uart.CommsThread;
-
 /**
  * Zone read/write helpers. Record layout ASSUMED (needs confirmation with AMMD dump):
  * 0x00..0x0F  Name (16 bytes, null-terminated, ASCII ISO-8859-1)
@@ -30,19 +28,19 @@ public class ZoneIo {
     }
 
     public static Zone decodeZone(byte[] raw) {
-        Zone z = new Zone();
-        if (raw == null || raw.length < DEFAULT_ZONE_RECORD_SIZE) return z;
-        boolean allFF = true, allZero = true;
-        for (int i = 0; i < DEFAULT_ZONE_RECORD_SIZE; i++) {
-            int b = raw[i] & 0xFF;
-            if (b != 0xFF) allFF = false;
-            if (b != 0x00) allZero = false;
-        }
+        if (raw == null || raw.length < DEFAULT_ZONE_RECORD_SIZE) return new Zone();
+        return decodeZone(raw, 0);
+    }
 
+    /**
+     * Decode the name record at {@code off} of a bulk read of the name table.
+     */
+    public static Zone decodeZone(byte[] buf, int off) {
+        Zone z = new Zone();
         int nameLen = 0;
-        while (nameLen < (DEFAULT_ZONE_RECORD_SIZE - 1) && raw[nameLen] != 0) nameLen++;
+        while (nameLen < (DEFAULT_ZONE_RECORD_SIZE - 1) && buf[off + nameLen] != 0) nameLen++;
 
-        z.name = new String(raw, 0, nameLen, java.nio.charset.StandardCharsets.ISO_8859_1).trim();
+        z.name = new String(buf, off, nameLen, java.nio.charset.StandardCharsets.ISO_8859_1).trim();
         // channelNumbers populated separately
         z.channelNumbers = new int[0];
         return z;
@@ -58,46 +56,13 @@ public class ZoneIo {
         return raw;
     }
 
-    public static void writeAllZones(java.util.List<Zone> zones) {
-        CommsThread.getObj();
-        if (zones == null || zones.isEmpty()) {
-            throw new IllegalArgumentException("No zones to write");
-        }
-
-        // Calculate the total size required for all zones
-        int totalSize = zones.stream()
-                .mapToInt(zone -> DEFAULT_ZONE_RECORD_SIZE)
-                .sum();
-        int paddedSize = (totalSize + 0xFF) & ~0xFF; // Align to 0xFF boundary
-
-        byte[] block = new byte[paddedSize];
-        int offset = 0;
-        if (!Zone.changedName) {
-            return;
-        }
-
-        for (Zone zone : zones) {
-
-            byte[] zoneBytes = encodeZone(zone, DEFAULT_ZONE_RECORD_SIZE);
-            System.arraycopy(zoneBytes, 0, block, offset, zoneBytes.length);
-            offset += zoneBytes.length;
-
-        }
-
-        // Fill the remaining space with padding (e.g., 0xFF)
-        for (int i = offset; i < block.length; i++) {
-            block[i] = (byte) 0xFF;
-        }
-
-        // Write the encoded zones in chunks of maximum size
-
-        long address = DEFAULT_ZONE_BASE;
-        try {
-            CommsThread.getObj().submitWriteZoneActivity(address, block);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-
+    /**
+     * True when the name record at {@code off} holds no name (first byte 0x00 or erased 0xFF);
+     * such a zone is unused and its membership block is not worth reading.
+     */
+    public static boolean isNameSlotEmpty(byte[] buf, int off) {
+        int b = buf[off] & 0xFF;
+        return b == 0x00 || b == 0xFF;
     }
 
     /**
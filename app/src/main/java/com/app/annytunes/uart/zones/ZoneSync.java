@@ -0,0 +1,144 @@
+package com.app.annytunes.uart.zones;
+
+import android.util.Log;
+
+import com.app.annytunes.uart.CommsThread;
+import com.app.annytunes.uart.ReadPlanner;
+import com.app.annytunes.uart.zonelistchannels.ZoneChannels;
+import com.app.annytunes.uart.zonelistchannels.ZoneChannelsIo;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes back only the zones that were edited. Each zone carries its own dirty flags
+ * ({@link Zone#changedName}, {@link Zone#changedChannels}); a dirty name becomes its 32-byte name
+ * record and dirty membership its 512-byte block. Runs of neighbouring dirty records are joined
+ * into one write (both tables are packed back-to-back by zone index), capped at
+ * {@link ReadPlanner#DEFAULT_MAX_SPAN} so progress still moves, and clean records are never
+ * touched. Zone {@code i} of the list is zone {@code i + 1} on the radio.
+ */
+public final class ZoneSync {
+    private static final String TAG = "ZoneSync";
+    private static final int MAX_WRITE = ReadPlanner.DEFAULT_MAX_SPAN;
+
+    public static final class Result {
+        public final int names;       // name records written
+        public final int memberships; // membership blocks written
+        public final int writes;      // write tasks queued
+
+        Result(int names, int memberships, int writes) {
+            this.names = names;
+            this.memberships = memberships;
+            this.writes = writes;
+        }
+    }
+
+    private ZoneSync() {
+    }
+
+    /**
+     * Queue writes for every dirty zone in {@code zones} and clear its flags. Returns what was
+     * queued; nothing is written when no zone is dirty.
+     */
+    public static Result writeChanged(List<Zone> zones) throws IOException {
+        if (zones == null) zones = List.of();
+        int total = Math.min(zones.size(), ZoneIo.getTotalZones());
+        CommsThread comms = CommsThread.getObj();
+        int names = 0, members = 0, writes = 0;
+
+        // Name records
+        for (int i = 0; i < total; ) {
+            if (!zones.get(i).changedName) {
+                i++;
+                continue;
+            }
+            int run = runLength(zones, i, total, true, ZoneIo.DEFAULT_ZONE_RECORD_SIZE);
+            byte[] buf = new byte[run * ZoneIo.DEFAULT_ZONE_RECORD_SIZE];
+            for (int k = 0; k < run; k++) {
+                byte[] rec = ZoneIo.encodeZone(zones.get(i + k), ZoneIo.DEFAULT_ZONE_RECORD_SIZE);
+                System.arraycopy(rec, 0, buf, k * ZoneIo.DEFAULT_ZONE_RECORD_SIZE, rec.length);
+            }
+            submit(comms, ZoneIo.addressOfZone(i + 1), buf);
+            for (int k = 0; k < run; k++) zones.get(i + k).changedName = false;
+            names += run;
+            writes++;
+            i += run;
+        }
+
+        // Membership blocks
+        for (int i = 0; i < total; ) {
+            if (!zones.get(i).changedChannels) {
+                i++;
+                continue;
+            }
+            int run = runLength(zones, i, total, false, ZoneChannelsIo.RECORD_STRIDE);
+            byte[] buf = new byte[run * ZoneChannelsIo.RECORD_STRIDE];
+            for (int k = 0; k < run; k++) {
+                Zone z = zones.get(i + k);
+                byte[] rec = ZoneChannelsIo.encode(new ZoneChannels(i + k + 1, z.channelNumbers));
+                System.arraycopy(rec, 0, buf, k * ZoneChannelsIo.RECORD_STRIDE, rec.length);
+            }
+            submit(comms, ZoneChannelsIo.addressOf(i + 1), buf);
+            for (int k = 0; k < run; k++) zones.get(i + k).changedChannels = false;
+            members += run;
+            writes++;
+            i += run;
+        }
+        Log.i(TAG, "Zone sync: " + names + " name(s), " + members + " membership block(s) in " + writes + " write(s)");
+        return new Result(names, members, writes);
+    }
+
+    /**
+     * Destination for {@link #writeMemberships}, e.g. a write queued in a transfer session.
+     */
+    public interface BlockWriter {
+        void write(long addr, byte[] data) throws IOException;
+    }
+
+    /**
+     * Encode the membership blocks of {@code zoneIndexes} (1-based, ascending), the members of
+     * zone {@code zoneIndexes[k]} being {@code members[k]}, and hand them to {@code out},
+     * joining consecutive zones like {@link #writeChanged}. Used after a channel renumbering,
+     * where the blocks must go out with the channel upload. Returns the number of writes.
+     */
+    public static int writeMemberships(int[] zoneIndexes, int[][] members, BlockWriter out) throws IOException {
+        int perWrite = Math.max(1, MAX_WRITE / ZoneChannelsIo.RECORD_STRIDE);
+        int writes = 0;
+        for (int i = 0; i < zoneIndexes.length; ) {
+            int run = 1;
+            while (i + run < zoneIndexes.length && run < perWrite && zoneIndexes[i + run] == zoneIndexes[i] + run) run++;
+            byte[] buf = new byte[run * ZoneChannelsIo.RECORD_STRIDE];
+            for (int k = 0; k < run; k++) {
+                byte[] rec = ZoneChannelsIo.encode(new ZoneChannels(zoneIndexes[i + k], members[i + k]));
+                System.arraycopy(rec, 0, buf, k * ZoneChannelsIo.RECORD_STRIDE, rec.length);
+            }
+            out.write(ZoneChannelsIo.addressOf(zoneIndexes[i]), buf);
+            writes++;
+            i += run;
+        }
+        Log.i(TAG, "Zone sync: " + zoneIndexes.length + " renumbered membership block(s) in " + writes + " write(s)");
+        return writes;
+    }
+
+    // Dirty records starting at `from`, no more than fit in one write
+    private static int runLength(List<Zone> zones, int from, int total, boolean name, int recSize) {
+        int max = Math.max(1, MAX_WRITE / recSize);
+        int n = 0;
+        while (from + n < total && n < max) {
+            Zone z = zones.get(from + n);
+            if (!(name ? z.changedName : z.changedChannels)) break;
+            n++;
+        }
+        return n;
+    }
+
+    private static void submit(CommsThread comms, long addr, byte[] buf) throws IOException {
+        try {
+            comms.submitWriteZoneActivity(addr, buf);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted submitting zone write", e);
+        }
+    }
+}
@@ -38,10 +38,10 @@ public final class ChannelEditDialog {
         tx.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
         tx.setText(hzToMHz(ch.txHz));
         Spinner mode = new Spinner(act);
-        ArrayAdapter<String> modeAdapter = new ArrayAdapter<>(act, android.R.layout.simple_spinner_item, new String[]{"Digital", "Analog"});
+        ArrayAdapter<String> modeAdapter = new ArrayAdapter<>(act, android.R.layout.simple_spinner_item, Channel.TYPE_NAMES);
         modeAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         mode.setAdapter(modeAdapter);
-        mode.setSelection(ch.digital ? 0 : 1);
+        mode.setSelection(Math.max(0, Math.min(Channel.TYPE_D_A, ch.channelType)));
         Spinner ccSpin = new Spinner(act);
         String[] ccVals = new String[16];
         for (int i = 0; i < 16; i++) ccVals[i] = String.valueOf(i);
@@ -82,7 +82,7 @@ public final class ChannelEditDialog {
             ch.name = safeStr(name.getText());
             ch.rxHz = mhzToHz(rx.getText());
             ch.txHz = mhzToHz(tx.getText());
-            ch.digital = (mode.getSelectedItemPosition() == 0);
+            ch.channelType = mode.getSelectedItemPosition();
             ch.colorCode = ccSpin.getSelectedItemPosition();
             ch.timeslot = tsSpin.getSelectedItemPosition() == 0 ? 1 : 2;
             ch.admit = admitSpin.getSelectedItem().toString();
@@ -17,15 +17,18 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.app.annytunes.uart.AnytoneUart;
 import com.app.annytunes.uart.CommsThread;
+import com.app.annytunes.uart.TransferSession;
 import com.app.annytunes.uart.channels.Channel;
+import com.app.annytunes.uart.channels.ChannelCompactor;
 import com.app.annytunes.uart.channels.ChannelIo;
-import com.app.annytunes.uart.channels.CsvChannelUtil;
+import com.app.annytunes.uart.channels.ChannelView;
+import com.app.annytunes.uart.channels.ChannelViewList;
+import com.app.annytunes.uart.channels.CsvChannelExporter;
+import com.app.annytunes.uart.channels.CsvChannelImporter;
 import com.app.anytunes.R;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -54,12 +57,13 @@ public class ChannelTransferActivity extends AppCompatActivity {
             new ActivityResultContracts.OpenDocument(), this::onCsvPicked);
     private ArrayList<String> rows;
     private android.widget.ArrayAdapter<String> adapter;
-    private ArrayList<Channel> channels; // track real channel objects for editing
+    private ChannelViewList channels; // lazy views; slots become Channel objects when edited/exported
     private File currentCsvFile; // last chosen CSV destination
-    private ArrayList<Channel> originalChannels; // snapshot for change comparison
+    private ChannelViewList originalChannels; // snapshot for change comparison
     private Uri chosenCsvUri; // user-selected CSV document
 
     private Button btnExitNoCommit;
+    private volatile TransferSession transferSession; // last download/upload, for cancel on exit
 
     public static ChannelTransferActivity getObj() {
         if (instance == null)
@@ -84,8 +88,7 @@ public class ChannelTransferActivity extends AppCompatActivity {
         try {
             ChannelTransferActivity inst = getObj();
             if (channelNumber < 1 || channelNumber > inst.channels.size()) return "";
-            Channel c = inst.channels.get(channelNumber - 1);
-            return (c.name == null ? "" : c.name);
+            return inst.channels.nameAt(channelNumber - 1);
         } catch (Throwable e) {
             return "";
         }
@@ -133,7 +136,7 @@ public class ChannelTransferActivity extends AppCompatActivity {
             @Override
             public View getView(int position, View convertView, android.view.ViewGroup parent) {
                 View v = super.getView(position, convertView, parent);
-                if (position < channels.size() && channels.get(position).edited) {
+                if (position < channels.size() && channels.isEdited(position)) {
                     v.setBackgroundColor(Color.YELLOW);
                 } else {
                     v.setBackgroundColor(Color.TRANSPARENT);
@@ -147,17 +150,26 @@ public class ChannelTransferActivity extends AppCompatActivity {
 
         // Direct call; no background thread needed since this only enqueues tasks
         try {
-            ChannelIo.getObj().readAllChannelsAsync();
+            transferSession = ChannelIo.getObj().readAllChannelsAsync();
         } catch (Exception e) {
             Toast.makeText(this, "Download failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
         }
     }
 
 
+    // Drop the cached image and download everything again; the read rebuilds the image
+    private void forceFullRead() {
+        CommsThread.getObj().clearCodeplugImage();
+        startDownloadFlow();
+    }
+
     private void onEnd() {
         progressRead.setVisibility(View.GONE);
         txtProgressPercent.setVisibility(View.GONE);
-        Toast.makeText(this, "Read complete: " + channels.size() + " channels", Toast.LENGTH_SHORT).show();
+        int skipped = ChannelIo.getObj().getSkippedSlots().length;
+        String msg = "Read complete: " + channels.size() + " channels";
+        if (skipped > 0) msg += " (" + skipped + " empty slots not read)";
+        Toast.makeText(this, msg, Toast.LENGTH_SHORT).show();
     }
 
     @Override
@@ -190,13 +202,15 @@ public class ChannelTransferActivity extends AppCompatActivity {
 
         connectSerial();
 
-        channels = new ArrayList<>();
-        originalChannels = new ArrayList<>();
+        channels = new ChannelViewList();
+        originalChannels = new ChannelViewList();
         listChannels.setOnItemClickListener((parent, view, position, id) -> {
             if (position >= 0 && position < channels.size())
                 ChannelEditDialog.show(this, channels.get(position), position);
         });
         applyInitialButtonState();
+        for (String msg : TransferSession.takeInterrupted())
+            Toast.makeText(this, "Interrupted last time: " + msg + "; the radio may hold a partial upload", Toast.LENGTH_LONG).show();
     }
 
     private void startUploadFlow() {
@@ -212,17 +226,17 @@ public class ChannelTransferActivity extends AppCompatActivity {
         btnUpload.setEnabled(false);
         new Thread(() -> {
             try {
-                File tmp = new File(getCacheDir(), "import.csv");
-                try (var is = getContentResolver().openInputStream(uri); var fos = new java.io.FileOutputStream(tmp)) {
+                CsvChannelImporter.Result res;
+                try (var is = getContentResolver().openInputStream(uri)) {
                     if (is == null) throw new IOException("openInputStream returned null");
-                    byte[] buf = new byte[8192];
-                    int r;
-                    while ((r = is.read(buf)) > 0) fos.write(buf, 0, r);
+                    // Parsed and uploaded as it streams in; banks go out before the file is fully read
+                    res = CsvChannelImporter.upload(new java.io.InputStreamReader(is, java.nio.charset.StandardCharsets.UTF_8), false);
                 }
-                List<Channel> chans = CsvChannelUtil.read(tmp);
-                ChannelIo.getObj().writeAllChannels(chans); // this now commits internally
+                transferSession = res.session;
                 runOnUiThread(() -> {
-                    Toast.makeText(this, "Uploaded " + chans.size() + " channels", Toast.LENGTH_LONG).show();
+                    String contacts = res.unresolvedContacts == 0 ? ""
+                            : "; " + res.unresolvedContacts + " contact name(s) not found, radio's contact kept";
+                    Toast.makeText(this, "Uploaded " + res.rows + " channels" + contacts, Toast.LENGTH_LONG).show();
                     enableCommitPending();
                 });
             } catch (Exception e) {
@@ -243,9 +257,9 @@ public class ChannelTransferActivity extends AppCompatActivity {
             Toast.makeText(this, "No CSV destination", Toast.LENGTH_SHORT).show();
             return;
         }
-        try (var os = getContentResolver().openOutputStream(chosenCsvUri, "w"); var pw = new PrintWriter(new OutputStreamWriter(os, java.nio.charset.StandardCharsets.UTF_8))) {
-            pw.println(CsvChannelUtil.header());
-            for (Channel c : channels) pw.println(CsvChannelUtil.row(c));
+        try (var os = getContentResolver().openOutputStream(chosenCsvUri, "w")) {
+            if (os == null) throw new IOException("openOutputStream returned null");
+            CsvChannelExporter.write(channels, os, false);
             Toast.makeText(this, "Saved all to CSV", Toast.LENGTH_SHORT).show();
         } catch (Exception e) {
             Toast.makeText(this, "Save all failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
@@ -258,7 +272,7 @@ public class ChannelTransferActivity extends AppCompatActivity {
             return;
         }
         ArrayList<Integer> editedIndices = new ArrayList<>();
-        for (int i = 0; i < channels.size(); i++) if (channels.get(i).edited) editedIndices.add(i);
+        for (int i = 0; i < channels.size(); i++) if (channels.isEdited(i)) editedIndices.add(i);
         if (editedIndices.isEmpty()) {
             Toast.makeText(this, "No edited channels", Toast.LENGTH_SHORT).show();
             return;
@@ -272,13 +286,21 @@ public class ChannelTransferActivity extends AppCompatActivity {
                     Channel c = channels.get(idx);
                     long addr = cio.channelIndexToAddress(idx + 1);
                     if (addr < 0) continue;
-                    byte[] rec = cio.encodeChannel(c, ChannelIo.CH_OFFSET);
+                    // Overlay onto the record as read so unmodelled settings survive
+                    ChannelView v = channels.view(idx);
+                    byte[] rec = (v != null) ? cio.encodeChannel(c, v.slab(), v.offset())
+                            : cio.encodeChannel(c, cio.cachedRecord(addr), 0);
                     try {
-                        comms.submitWrite(addr, rec);
+                        int slot = idx + 1;
+                        comms.submitInteractiveWrite(addr, rec).whenComplete((ok, err) -> {
+                            if (err != null) runOnUiThread(() -> Toast.makeText(this,
+                                    "Channel " + slot + " not written: " + err.getMessage(), Toast.LENGTH_LONG).show());
+                        });
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
                         throw new IOException("Interrupted submitting write", ie);
                     }
+                    cio.updateOccupancy(idx + 1, rec);
                 }
                 runOnUiThread(() -> {
                     Toast.makeText(this, "Queued " + editedIndices.size() + " edited channel(s); commit pending", Toast.LENGTH_LONG).show();
@@ -295,6 +317,46 @@ public class ChannelTransferActivity extends AppCompatActivity {
         }).start();
     }
 
+    // Pack channels into the lowest slots; zone memberships follow the new numbers
+    private void compactChannels() {
+        if (!channelsLoaded || channels == null) {
+            Toast.makeText(this, "Download channels first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        ChannelViewList current = channels;
+        new Thread(() -> {
+            try {
+                ChannelCompactor.Result r = ChannelCompactor.compact(current);
+                if (r.session != null) {
+                    transferSession = r.session;
+                    // The zone index takes the new numbers when the upload completes
+                    r.session.whenDone(() -> {
+                        try {
+                            ZoneActivity.getObj().onMembershipRenumbered(r.zones);
+                        } catch (Throwable ignored) {
+                        }
+                    });
+                }
+                runOnUiThread(() -> {
+                    if (r.moved == 0) {
+                        Toast.makeText(this, "Channels already compact (" + r.channels + ")", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    channels = r.list;
+                    originalChannels = channels.snapshot();
+                    rows.clear();
+                    for (int i = 0; i < channels.size(); i++) rows.add(rowLabel(i + 1, channels.view(i)));
+                    adapter.notifyDataSetChanged();
+                    Toast.makeText(this, "Compacted " + r.channels + " channels (" + r.moved + " moved, "
+                            + r.zones.length + " zones to update); commit pending", Toast.LENGTH_LONG).show();
+                    enableCommitPending();
+                });
+            } catch (Exception e) {
+                runOnUiThread(() -> Toast.makeText(this, "Compact failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
+            }
+        }).start();
+    }
+
     private void navigateHome() {
         try {
             android.content.Intent intent = new android.content.Intent(this, MainActivity.class);
@@ -308,7 +370,7 @@ public class ChannelTransferActivity extends AppCompatActivity {
         if (rows == null || channels == null) return;
         if (position < 0 || position >= channels.size() || position >= rows.size()) return;
         Channel c = channels.get(position);
-        String mode = c.digital ? "Digital" : "Analog";
+        String mode = Channel.typeName(c.channelType);
         String name = (c.name == null || c.name.isEmpty()) ? "<empty>" : c.name;
         rows.set(position, String.format(Locale.getDefault(), "#%d  %s  (%s)%s", position + 1, name, mode, c.edited ? " *" : ""));
         if (adapter != null) adapter.notifyDataSetChanged();
@@ -317,9 +379,9 @@ public class ChannelTransferActivity extends AppCompatActivity {
     public void persistChannelEdit(int position) {
         updateRow(position);
         if (chosenCsvUri == null) return; // no destination yet
-        try (var os = getContentResolver().openOutputStream(chosenCsvUri, "w"); var pw = new PrintWriter(new OutputStreamWriter(os, java.nio.charset.StandardCharsets.UTF_8))) {
-            pw.println(CsvChannelUtil.header());
-            for (Channel c : channels) pw.println(CsvChannelUtil.row(c));
+        try (var os = getContentResolver().openOutputStream(chosenCsvUri, "w")) {
+            if (os == null) throw new IOException("openOutputStream returned null");
+            CsvChannelExporter.write(channels, os, false);
         } catch (Exception e) {
             Toast.makeText(this, "CSV save failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         }
@@ -327,8 +389,15 @@ public class ChannelTransferActivity extends AppCompatActivity {
 
     private void enterPcModeAction() {
         try {
-            CommsThread.getObj().enterPcMode();
-            Toast.makeText(this, "PC Mode entered", Toast.LENGTH_SHORT).show();
+            CommsThread comms = CommsThread.getObj();
+            comms.enterPcMode();
+            if (comms.hasSuspendedSessions()) {
+                // Re-entering PC mode restarts the port; pick interrupted transfers up where they stopped
+                comms.resumeSuspended();
+                Toast.makeText(this, "PC Mode entered; resuming interrupted transfer", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "PC Mode entered", Toast.LENGTH_SHORT).show();
+            }
             applyPcModeActiveState();
         } catch (Exception e) {
             Toast.makeText(this, "Enter PC failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
@@ -383,6 +452,10 @@ public class ChannelTransferActivity extends AppCompatActivity {
     public boolean onCreateOptionsMenu(android.view.Menu menu) {
         menu.add(0, 1, 0, "Zones");
         menu.add(0, 2, 0, "Compare Channels"); // Added menu item for comparing channels
+        menu.add(0, 3, 0, "Compact Channels");
+        menu.add(0, 4, 0, "Use Cached Image").setCheckable(true)
+                .setChecked(CommsThread.getObj().isImageCacheEnabled());
+        menu.add(0, 5, 0, "Force Full Read");
         return true;
     }
 
@@ -395,6 +468,18 @@ public class ChannelTransferActivity extends AppCompatActivity {
             // Trigger the FetchAndCompareChannelsTask
             new FetchAndCompareChannelsTask(this, channels).execute();
             return true;
+        } else if (item.getItemId() == 3) {
+            compactChannels();
+            return true;
+        } else if (item.getItemId() == 4) {
+            // Cached spans are confirmed by a few sentinel reads only, so this stays opt-in
+            boolean on = !item.isChecked();
+            item.setChecked(on);
+            CommsThread.getObj().setImageCacheEnabled(on);
+            return true;
+        } else if (item.getItemId() == 5) {
+            forceFullRead();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
@@ -405,47 +490,88 @@ public class ChannelTransferActivity extends AppCompatActivity {
         runOnUiThread(() -> {
             for (Channel c : chunk) {
                 channels.add(c);
-                String mode = c.digital ? "Digital" : "Analog";
+                String mode = Channel.typeName(c.channelType);
                 int number = rows.size() + 1;
                 String name = (c.name == null || c.name.isEmpty()) ? "<empty>" : c.name;
                 rows.add(String.format(Locale.getDefault(), "#%d  %s  (%s)", number, name, mode));
             }
-            adapter.notifyDataSetChanged();
-            int pct = (totalExpected > 0) ? (soFar * 100 / totalExpected) : 0;
-            progressRead.setProgress(pct);
-            txtProgressPercent.setText(pct + "%");
-            if (totalExpected > 0 && soFar >= totalExpected) {
-                originalChannels.clear();
-                originalChannels.addAll(channels); // snapshot after initial load
-                channelsLoaded = true;
-                // notify ZoneActivity if open
-                try {
-                    ZoneActivity.getObj().onChannelsReady();
-                } catch (Throwable ignored) {
-                }
-                onEnd();
-            }
+            onChannelProgress(soFar, totalExpected);
+        });
+    }
+
+    // Lazy variant: rows only touch the name (never decoded for empty slots)
+    public void onChannelViewsDecoded(List<ChannelView> views, int soFar, int totalExpected) {
+        runOnUiThread(() -> {
+            channels.addViews(views);
+            for (ChannelView v : views) rows.add(rowLabel(rows.size() + 1, v));
+            onChannelProgress(soFar, totalExpected);
         });
     }
 
+    private static String rowLabel(int number, ChannelView v) {
+        String mode = Channel.typeName(v.channelType());
+        String name = v.isEmpty() || v.name().isEmpty() ? "<empty>" : v.name();
+        return String.format(Locale.getDefault(), "#%d  %s  (%s)", number, name, mode);
+    }
+
+    private void onChannelProgress(int soFar, int totalExpected) {
+        adapter.notifyDataSetChanged();
+        int pct = (totalExpected > 0) ? (soFar * 100 / totalExpected) : 0;
+        progressRead.setProgress(pct);
+        txtProgressPercent.setText(pct + "%");
+        if (totalExpected > 0 && soFar >= totalExpected) {
+            originalChannels = channels.snapshot(); // snapshot after initial load
+            channelsLoaded = true;
+            // notify ZoneActivity if open
+            try {
+                ZoneActivity.getObj().onChannelsReady();
+            } catch (Throwable ignored) {
+            }
+            onEnd();
+        }
+    }
+
     private void doCommitAndExit() {
-        // Manual commit of queued channel/zone writes, then exit
+        commitAndExit(false);
+    }
+
+    // Manual commit of queued channel/zone writes, then exit. A refused commit over a suspended
+    // or failed upload asks before committing anyway
+    private void commitAndExit(boolean acceptIncomplete) {
         if (btnCommitExit != null) btnCommitExit.setEnabled(false);
         new Thread(() -> {
+            CommsThread comms = CommsThread.getObj();
             try {
-                CommsThread.getObj().commitWriteSync();
+                comms.commitWriteSync(acceptIncomplete);
 
                 runOnUiThread(this::navigateHome);
             } catch (Exception e) {
+                String incomplete = acceptIncomplete ? null : comms.describeIncompleteUpload();
                 runOnUiThread(() -> {
-                    Toast.makeText(this, "Commit failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
                     if (btnCommitExit != null) btnCommitExit.setEnabled(true);
+                    if (incomplete != null) {
+                        confirmIncompleteCommit(incomplete);
+                    } else {
+                        Toast.makeText(this, "Commit failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
                 });
             }
         }).start();
     }
 
+    private void confirmIncompleteCommit(String incomplete) {
+        new android.app.AlertDialog.Builder(this)
+                .setTitle("Upload incomplete")
+                .setMessage("Not committed: " + incomplete + ". Re-enter PC mode to resume it, or commit "
+                        + "anyway and leave the radio with a partly written upload.")
+                .setPositiveButton("Commit anyway", (d, w) -> commitAndExit(true))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
     private void exitWithoutCommit() {
+        TransferSession s = transferSession;
+        if (s != null) s.cancel();
         navigateHome();
     }
 
@@ -18,8 +18,10 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.app.annytunes.uart.zonelistchannels.ZoneMembership;
 import com.app.annytunes.uart.zones.Zone;
 import com.app.annytunes.uart.zones.ZoneIo;
+import com.app.annytunes.uart.zones.ZoneSync;
 import com.app.anytunes.R;
 
 import java.io.OutputStreamWriter;
@@ -112,18 +114,13 @@ public class ZoneActivity extends AppCompatActivity {
         txtZonePercent.setVisibility(android.view.View.VISIBLE);
         progZones.setProgress(0);
         txtZonePercent.setText("0%");
-        android.util.Log.d("ZoneActivity", "Start reading zone channels then zone names");
+        android.util.Log.d("ZoneActivity", "Start reading zones");
         try {
             com.app.annytunes.uart.CommsThread ct = com.app.annytunes.uart.CommsThread.getObj();
             int total = com.app.annytunes.uart.zones.ZoneIo.getTotalZones();
             expectedZones = total;
-            ct.setZoneTotalExpected(total); // ensure progress baseline
-            for (int i = 1; i <= total; i++) {
-                ct.submitZoneChannels(i);
-            }
-            for (int i = 1; i <= total; i++) {
-                ct.submitZoneRead(i);
-            }
+            // Names in bulk, then memberships of named zones; zones arrive complete and in order
+            ct.submitZoneLoad(total);
         } catch (Exception e) {
             Toast.makeText(this, "Zone read start failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
         }
@@ -180,18 +177,6 @@ public class ZoneActivity extends AppCompatActivity {
         });
     }
 
-    public void onZoneChannelsDecoded(int zoneIndex) {
-        runOnUiThread(() -> {
-            if (zoneIndex >= 1 && zoneIndex <= zones.size()) {
-                Zone z = zones.get(zoneIndex - 1);
-                // refresh channel count in row
-                int chCount = (z.channelNumbers == null) ? 0 : z.channelNumbers.length;
-                rows.set(zoneIndex - 1, String.format(java.util.Locale.getDefault(), "#%d %s (%d ch)", zoneIndex, (z.name == null || z.name.isEmpty() ? "Zone " + zoneIndex : z.name), chCount));
-                adapter.notifyDataSetChanged();
-            }
-        });
-    }
-
     private void showEditDialog(Zone z, int position) {
         android.app.AlertDialog.Builder b = new android.app.AlertDialog.Builder(this);
         b.setTitle("Zone #" + (position + 1));
@@ -214,8 +199,7 @@ public class ZoneActivity extends AppCompatActivity {
         addCell(header, "Remove");
         table.addView(header);
         int[] nums = z.channelNumbers == null ? new int[0] : z.channelNumbers;
-        java.util.LinkedHashSet<Integer> current = new java.util.LinkedHashSet<>();
-        for (int v : nums) current.add(v);
+        ZoneMembership.ChannelSet current = new ZoneMembership.ChannelSet(nums);
         for (int i = 0; i < nums.length; i++) {
             int chNum = nums[i];
             TableRow tr = new TableRow(this);
@@ -273,10 +257,13 @@ public class ZoneActivity extends AppCompatActivity {
             if (newName.length() > 31)
                 newName = newName.substring(0, 31); // clamp to 31 (leave null terminator)
             z.name = newName;
-            z.channelNumbers = current.stream().mapToInt(Integer::intValue).toArray();
-            // flags: name or membership changed
-            Zone.changedName = !oldName.equals(z.name);
-            z.changedChannels = !java.util.Arrays.equals(oldNums, z.channelNumbers);
+            z.channelNumbers = current.toArray();
+            ZoneMembership.getObj().set(position + 1, z.channelNumbers);
+            // Dirty flags are against the zone as read from the radio, so editing back clears them
+            Zone orig = originalZones.get(position);
+            z.changedName = orig == null ? !oldName.equals(z.name) : !orig.name.equals(z.name);
+            z.changedChannels = orig == null ? !java.util.Arrays.equals(oldNums, z.channelNumbers)
+                    : !java.util.Arrays.equals(orig.channelNumbers, z.channelNumbers);
             // Update row text
             String label = String.format(java.util.Locale.getDefault(), "#%d %s (%d ch)", position + 1, (z.name == null || z.name.isEmpty() ? "Zone " + (position + 1) : z.name), z.channelNumbers.length);
             rows.set(position, label);
@@ -286,7 +273,7 @@ public class ZoneActivity extends AppCompatActivity {
         b.show();
     }
 
-    private void rebuildTable(TableLayout table, java.util.LinkedHashSet<Integer> current) {
+    private void rebuildTable(TableLayout table, ZoneMembership.ChannelSet current) {
         table.removeAllViews();
         TableRow header = new TableRow(this);
         addCell(header, "#");
@@ -294,10 +281,10 @@ public class ZoneActivity extends AppCompatActivity {
         addCell(header, "Name");
         addCell(header, "Remove");
         table.addView(header);
-        int idx = 0;
-        for (int ch : current) {
+        for (int k = 0; k < current.size(); k++) {
+            int ch = current.get(k);
             TableRow tr = new TableRow(this);
-            addCell(tr, Integer.toString(++idx));
+            addCell(tr, Integer.toString(k + 1));
             addCell(tr, Integer.toString(ch));
             addCell(tr, ChannelTransferActivity.getChannelName(ch));
             Button rm = new Button(this);
@@ -325,9 +312,18 @@ public class ZoneActivity extends AppCompatActivity {
         }
         new Thread(() -> {
             try {
-
-                ZoneIo.writeAllZones(zones);
-                runOnUiThread(() -> Toast.makeText(this, "Zones written successfully.", Toast.LENGTH_LONG).show());
+                ZoneSync.Result r = ZoneSync.writeChanged(zones);
+                runOnUiThread(() -> {
+                    // Written zones are now what the radio holds
+                    for (int i = 0; i < zones.size(); i++) {
+                        Zone z = zones.get(i);
+                        originalZones.put(i, new Zone(z.name, z.channelNumbers));
+                    }
+                    adapter.notifyDataSetChanged();
+                    String msg = r.writes == 0 ? "No zone changes to write"
+                            : "Zones written: " + r.names + " name(s), " + r.memberships + " membership(s)";
+                    Toast.makeText(this, msg, Toast.LENGTH_LONG).show();
+                });
             } catch (Throwable e) {
                 runOnUiThread(() -> Toast.makeText(this, "Zone write failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
             }
@@ -362,6 +358,25 @@ public class ZoneActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Channels were renumbered (compaction): reload the given zones' members from the index.
+     * The new lists (including any unsaved membership edit) are already queued for the radio.
+     */
+    public void onMembershipRenumbered(int[] zoneIndexes) {
+        runOnUiThread(() -> {
+            ZoneMembership index = ZoneMembership.getObj();
+            for (int zi : zoneIndexes) {
+                if (zi < 1 || zi > zones.size()) continue;
+                Zone z = zones.get(zi - 1);
+                z.channelNumbers = index.channels(zi);
+                z.changedChannels = false;
+                Zone orig = originalZones.get(zi - 1);
+                originalZones.put(zi - 1, new Zone(orig == null ? z.name : orig.name, z.channelNumbers));
+            }
+            adapter.notifyDataSetChanged();
+        });
+    }
+
     public void onChannelsReady() {
         runOnUiThread(() -> {
             if (btnReadZones != null) btnReadZones.setEnabled(true);
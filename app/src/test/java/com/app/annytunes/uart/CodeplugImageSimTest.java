@@ -0,0 +1,82 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * The codeplug image fills from reads, serves an unchanged span without re-reading it, and
+ * picks up a change made on the radio. Written bytes reach the image file only after the radio
+ * acknowledged the commit. The radio ID block is only read once the cache is enabled.
+ */
+public class CodeplugImageSimTest extends SimulatorTestBase {
+    private static final long AREA = 0x00800000L;
+    private static final int LEN = 0x2000;
+
+    @Test
+    public void cachedSpanIsConfirmedAndRefreshed() throws Exception {
+        comms.setImageCacheEnabled(true);
+        byte[] data = random(LEN, 5);
+        sim.poke(AREA, data);
+
+        long f0 = sim.getFramesIn();
+        assertArrayEquals(data, readThroughComms(AREA, LEN));
+        long fullRead = sim.getFramesIn() - f0;
+        CodeplugImage img = comms.getCodeplugImage();
+        assertNotNull(img);
+        assertTrue(img.covers(AREA, LEN));
+
+        f0 = sim.getFramesIn();
+        assertArrayEquals(data, readThroughComms(AREA, LEN));
+        long cached = sim.getFramesIn() - f0;
+        assertTrue("cached " + cached + " vs full " + fullRead + " frames", cached < fullRead);
+
+        byte[] edit = {1, 2, 3};
+        sim.poke(AREA + 0x10, edit);
+        System.arraycopy(edit, 0, data, 0x10, edit.length);
+        assertArrayEquals(data, readThroughComms(AREA, LEN));
+        byte[] out = new byte[LEN];
+        img.copyOut(AREA, out, 0, LEN);
+        assertArrayEquals(data, out);
+    }
+
+    @Test
+    public void writesPersistOnlyAfterCommit() throws Exception {
+        comms.setImageCacheEnabled(true);
+        readThroughComms(AREA, 0x80); // opens the image
+        CodeplugImage img = comms.getCodeplugImage();
+        assertNotNull(img);
+        byte[] data = random(LEN, 6);
+        comms.submitWrite(AREA, data);
+        awaitIdle(60_000);
+        assertTrue("staged bytes serve delta uploads", img.covers(AREA, LEN));
+        img.save();
+        assertFalse(CodeplugImage.open(img.getKey()).covers(AREA, LEN));
+
+        comms.commitWriteSync();
+        CodeplugImage reopened = CodeplugImage.open(img.getKey());
+        assertTrue(reopened.covers(AREA, LEN));
+        byte[] out = new byte[LEN];
+        reopened.copyOut(AREA, out, 0, LEN);
+        assertArrayEquals(data, out);
+    }
+
+    @Test
+    public void identityBlockReadOnlyWithCacheEnabled() throws Exception {
+        long f0 = sim.getFramesIn();
+        readThroughComms(AREA, 0x80);
+        assertEquals("cache off: the span only", 1, sim.getFramesIn() - f0);
+        assertNotNull("session image for delta uploads", comms.getCodeplugImage());
+        assertFalse(comms.getCodeplugImage().isPersistent());
+
+        comms.setImageCacheEnabled(true);
+        f0 = sim.getFramesIn();
+        readThroughComms(AREA, 0x80);
+        assertEquals("cache on: radio ID block, then the span", 2, sim.getFramesIn() - f0);
+        assertTrue(comms.getCodeplugImage().isPersistent());
+    }
+}
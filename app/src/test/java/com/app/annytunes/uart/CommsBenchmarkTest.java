@@ -0,0 +1,64 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Timing of read/write windows over a line modelled on the real cable (115200 baud, a few ms of
+ * USB turnaround). Prints the numbers and checks pipelining actually pays off. Wall-clock
+ * timings do not belong in the regular unit-test run, so it is ignored there; remove the
+ * {@code @Ignore} locally to run it.
+ */
+@Ignore("benchmark; wall-clock timings, run by hand")
+public class CommsBenchmarkTest extends SimulatorTestBase {
+    private static final long AREA = 0x00800000L;
+    private static final int LEN = 0x2000;
+
+    @Override
+    protected RadioSimulator.Config config() {
+        RadioSimulator.Config c = new RadioSimulator.Config();
+        c.bytesPerSecond = 11_520;
+        c.latencyMicros = 3_000;
+        return c;
+    }
+
+    @Test
+    public void readWindowBeatsStopAndWait() throws Exception {
+        byte[] data = random(LEN, 7);
+        sim.poke(AREA, data);
+        comms.setReadWindow(1);
+        long serial = timeRead(data);
+        comms.setReadWindow(4);
+        long piped = timeRead(data);
+        System.out.printf("read 0x%X bytes: window=1 %d ms, window=4 %d ms%n", LEN, serial, piped);
+        assertTrue("pipelined " + piped + " ms vs " + serial + " ms", piped < serial);
+    }
+
+    @Test
+    public void writeWindowBeatsStopAndWait() throws Exception {
+        comms.setWriteWindow(1);
+        long serial = timeWrite(random(LEN, 8));
+        comms.setWriteWindow(8);
+        long piped = timeWrite(random(LEN, 9));
+        System.out.printf("write 0x%X bytes: window=1 %d ms, window=8 %d ms%n", LEN, serial, piped);
+        assertTrue("pipelined " + piped + " ms vs " + serial + " ms", piped < serial);
+    }
+
+    private long timeRead(byte[] expect) throws Exception {
+        long t0 = System.nanoTime();
+        assertArrayEquals(expect, readThroughComms(AREA, expect.length));
+        return (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    private long timeWrite(byte[] data) throws Exception {
+        long t0 = System.nanoTime();
+        comms.submitWrite(AREA, data);
+        awaitIdle(120_000);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        assertArrayEquals(data, sim.peek(AREA, data.length));
+        return ms;
+    }
+}
@@ -0,0 +1,96 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.app.annytunes.uart.channels.Channel;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Read and write engines end to end against the simulator: pipelined, stop-and-wait and with
+ * dropped or corrupted replies, the radio must end up with (and hand back) exactly the bytes.
+ */
+public class CommsThreadSimTest extends SimulatorTestBase {
+    private static final long AREA = 0x00840000L;
+
+    @Test
+    public void negotiatesLargestReadFrame() {
+        assertEquals(FrameSizes.READ_CANDIDATES[0], comms.getReadFrameSize());
+    }
+
+    @Test
+    public void pipelinedAndStopAndWaitReadsAgree() throws Exception {
+        byte[] data = random(0x2000, 1);
+        sim.poke(AREA, data);
+        comms.setReadWindow(1);
+        assertArrayEquals(data, readThroughComms(AREA, data.length));
+        comms.setReadWindow(8);
+        assertArrayEquals(data, readThroughComms(AREA, data.length));
+    }
+
+    @Test
+    public void readsSurviveDroppedAndCorruptedReplies() throws Exception {
+        byte[] data = random(0x2000, 2);
+        sim.poke(AREA, data);
+        cfg.dropRate = 0.02;
+        cfg.corruptRate = 0.02;
+        assertArrayEquals(data, readThroughComms(AREA, data.length));
+    }
+
+    @Test
+    public void windowedWritesLand() throws Exception {
+        byte[] data = random(0x2000, 3);
+        comms.submitWrite(AREA, data);
+        awaitIdle(60_000);
+        assertArrayEquals(data, sim.peek(AREA, data.length));
+        assertTrue(comms.getWriteThroughputBps() > 0);
+    }
+
+    @Test
+    public void writesSurviveLostAcks() throws Exception {
+        byte[] data = random(0x2000, 4);
+        cfg.dropRate = 0.01;
+        comms.submitWrite(AREA, data);
+        awaitIdle(120_000);
+        cfg.dropRate = 0;
+        assertArrayEquals(data, sim.peek(AREA, data.length));
+    }
+
+    @Test
+    public void editWaitsForEarlierBulkWriteToSameBytes() throws Exception {
+        for (int k = 0; k < 4; k++) comms.submitWrite(AREA + k * 0x2000L, random(0x2000, 10 + k));
+        byte[] edit = random(0x40, 20);
+        byte[] elsewhere = random(0x40, 21);
+        comms.submitInteractiveWrite(AREA + 3 * 0x2000L + 0x40, edit);
+        comms.submitInteractiveWrite(AREA + 0x10000L, elsewhere).get(60, java.util.concurrent.TimeUnit.SECONDS);
+        awaitIdle(60_000);
+        assertArrayEquals(edit, sim.peek(AREA + 3 * 0x2000L + 0x40, edit.length));
+        assertArrayEquals(elsewhere, sim.peek(AREA + 0x10000L, elsewhere.length));
+    }
+
+    @Test
+    public void readSeesEarlierQueuedWrite() throws Exception {
+        sim.poke(AREA, random(0x800, 30));
+        byte[] data = random(0x800, 31);
+        comms.submitWrite(AREA + 0x4000, random(0x2000, 32));
+        comms.submitWrite(AREA, data);
+        assertArrayEquals(data, readThroughComms(AREA, data.length));
+    }
+
+    @Test
+    public void channelsWithoutActivityAreQueued() throws Exception {
+        while (comms.pollUndeliveredChannels(0) != null) ; // left over from other tests
+        byte[] bank = new byte[8 * 0x40];
+        for (int i = 0; i < 8; i++) bank[i * 0x40 + 0x23] = (byte) ('A' + i); // name byte 0
+        sim.poke(AREA, bank);
+        comms.submitReadDecode(AREA, 8, 0x40);
+        awaitIdle(10_000);
+        List<Channel> got = comms.pollUndeliveredChannels(2000);
+        assertEquals(8, got.size());
+        for (int i = 0; i < 8; i++) assertEquals(String.valueOf((char) ('A' + i)), got.get(i).name);
+    }
+}
@@ -0,0 +1,149 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * FrameCodec against the simulator's frame parser, plus the no-allocation-per-frame guarantee
+ * the comms thread relies on.
+ */
+public class FrameCodecTest {
+    private static final long ADDR = 0x00800000L;
+
+    private RadioSimulator sim;
+    private final ByteArrayOutputStream replies = new ByteArrayOutputStream();
+
+    @Before
+    public void setUp() throws Exception {
+        RadioSimulator.Config cfg = new RadioSimulator.Config();
+        cfg.latencyMicros = 0;
+        cfg.bytesPerSecond = 0;
+        sim = new RadioSimulator(cfg);
+        sim.setReplySink(b -> {
+            synchronized (replies) {
+                replies.write(b, 0, b.length);
+                replies.notifyAll();
+            }
+        });
+        sim.writeBytes("PROGRAM".getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        awaitReply(3);
+    }
+
+    @After
+    public void tearDown() {
+        sim.close();
+    }
+
+    @Test
+    public void writeFrameIsAcceptedAndStored() throws Exception {
+        FrameCodec codec = new FrameCodec();
+        byte[] data = pattern(0x80, 3);
+        sim.writeBytes(codec.encodeWrite(ADDR, data, 0, data.length));
+        assertArrayEquals(new byte[]{AnytoneUart.ACK}, awaitReply(1));
+        assertArrayEquals(data, sim.peek(ADDR, data.length));
+    }
+
+    @Test
+    public void readReplyDecodesInPlace() throws Exception {
+        byte[] data = pattern(0xFF, 7);
+        sim.poke(ADDR, data);
+        FrameCodec codec = new FrameCodec();
+        sim.writeBytes(codec.encodeRead(ADDR, data.length));
+        byte[] reply = awaitReply(FrameCodec.replyLength(data.length));
+        System.arraycopy(reply, 0, codec.replyBuffer(), 0, reply.length);
+        ByteBuffer view = codec.decodeReply(ADDR, data.length);
+        assertTrue(codec.checksumOk());
+        assertEquals(data.length, view.remaining());
+        byte[] got = new byte[data.length];
+        view.get(got);
+        assertArrayEquals(data, got);
+
+        codec.replyBuffer()[10] ^= 0x01;
+        codec.decodeReply(ADDR, data.length);
+        assertFalse(codec.checksumOk());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongAddressIsRejected() throws Exception {
+        FrameCodec codec = new FrameCodec();
+        sim.writeBytes(codec.encodeRead(ADDR, 0x10));
+        byte[] reply = awaitReply(FrameCodec.replyLength(0x10));
+        System.arraycopy(reply, 0, codec.replyBuffer(), 0, reply.length);
+        codec.decodeReply(ADDR + 0x10, 0x10);
+    }
+
+    @Test
+    public void framesAreReusedAndAllocationFree() throws Exception {
+        com.sun.management.ThreadMXBean mx = allocationBean();
+        FrameCodec codec = new FrameCodec();
+        byte[] data = pattern(0x80, 11);
+        sim.poke(ADDR, data);
+        sim.writeBytes(codec.encodeRead(ADDR, 0x80));
+        byte[] reply = awaitReply(FrameCodec.replyLength(0x80));
+
+        assertSame(codec.encodeRead(ADDR, 0x80), codec.encodeRead(ADDR + 0x80, 0x40));
+        assertSame(codec.encodeWrite(ADDR, data, 0, 0x40), codec.encodeWrite(ADDR + 0x40, data, 0x40, 0x40));
+
+        for (int i = 0; i < 20_000; i++) cycle(codec, reply, data, i); // warm up / JIT
+        long tid = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        long sum = 0;
+        for (int i = 0; i < 100_000; i++) sum += cycle(codec, reply, data, i);
+        long allocated = mx.getThreadAllocatedBytes(tid) - before;
+        assertTrue("checksum", sum > 0);
+        // The counter itself may allocate a little; anything per frame would be megabytes here
+        assertTrue("allocated " + allocated + " bytes over 100k frames", allocated < 4096);
+    }
+
+    // One encode-read, decode, encode-write round; returns a payload byte so nothing is elided
+    private static int cycle(FrameCodec codec, byte[] reply, byte[] data, int i) {
+        int len = (i & 1) == 0 ? 0x80 : 0x40;
+        codec.encodeRead(ADDR, 0x80);
+        System.arraycopy(reply, 0, codec.replyBuffer(), 0, reply.length);
+        ByteBuffer view = codec.decodeReply(ADDR, 0x80);
+        if (!codec.checksumOk()) throw new AssertionError("checksum");
+        byte[] w = codec.encodeWrite(ADDR, data, 0, len);
+        return (view.get(view.position() + (i & 0x7F)) & 0xFF) + w.length;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mx instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean hs = (com.sun.management.ThreadMXBean) mx;
+        Assume.assumeTrue(hs.isThreadAllocatedMemorySupported());
+        hs.setThreadAllocatedMemoryEnabled(true);
+        return hs;
+    }
+
+    private byte[] awaitReply(int len) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        synchronized (replies) {
+            while (replies.size() < len) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) throw new AssertionError("no reply: " + replies.size() + "/" + len + " bytes");
+                replies.wait(left);
+            }
+            byte[] out = replies.toByteArray();
+            replies.reset();
+            return out;
+        }
+    }
+
+    private static byte[] pattern(int len, int seed) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) b[i] = (byte) (seed + i * 31);
+        return b;
+    }
+}
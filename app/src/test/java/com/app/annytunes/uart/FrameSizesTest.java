@@ -0,0 +1,85 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Stored frame sizes follow the store directory, grow back one step per clean session up to the
+ * probed sizes, and are probed again once stale or written by an older version.
+ */
+public class FrameSizesTest {
+    private File a, b;
+
+    @After
+    public void cleanUp() {
+        CodeplugImage.setStoreDir(null);
+        for (File d : new File[]{a, b}) {
+            if (d == null) continue;
+            File[] kids = d.listFiles();
+            if (kids != null) for (File k : kids) k.delete();
+            d.delete();
+        }
+    }
+
+    @Test
+    public void cacheFollowsStoreDirectory() throws Exception {
+        a = Files.createTempDirectory("sizes-a").toFile();
+        b = Files.createTempDirectory("sizes-b").toFile();
+        CodeplugImage.setStoreDir(a);
+        FrameSizes.remember("dev", probed(0xC0, 0x40));
+        assertNotNull(FrameSizes.cached("dev"));
+
+        CodeplugImage.setStoreDir(b);
+        assertNull("sizes leaked into another store", FrameSizes.cached("dev"));
+        CodeplugImage.setStoreDir(a);
+        FrameSizes back = FrameSizes.cached("dev");
+        assertNotNull(back);
+        assertEquals(0xC0, back.read);
+        assertEquals(0x40, back.bestWrite);
+    }
+
+    @Test
+    public void growsBackOneStepPerCleanSession() {
+        FrameSizes s = probed(0xFF, 0x80);
+        s.read = 0x40;
+        s.write = 0x10;
+        assertTrue(s.grow());
+        assertEquals(0x80, s.read);
+        assertEquals(0x20, s.write);
+        assertTrue(s.grow());
+        assertTrue(s.grow());
+        assertEquals(0xFF, s.read);
+        assertEquals(0x80, s.write);
+        assertFalse("grew past the probed sizes", s.grow());
+    }
+
+    @Test
+    public void staleOrOldEntriesAreProbedAgain() throws Exception {
+        a = Files.createTempDirectory("sizes-a").toFile();
+        try (OutputStream out = new FileOutputStream(new File(a, "frame-sizes.properties"))) {
+            out.write("old=64,16,true\nstale=255,128,true,255,128,1\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        CodeplugImage.setStoreDir(a);
+        assertNull(FrameSizes.cached("old"));
+        assertNull(FrameSizes.cached("stale"));
+    }
+
+    private static FrameSizes probed(int read, int write) {
+        FrameSizes s = new FrameSizes(read, write);
+        s.writeProbed = true;
+        s.probedAt = System.currentTimeMillis();
+        return s;
+    }
+}
@@ -0,0 +1,211 @@
+package com.app.annytunes.uart;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process ID-878UV stand-in for the JVM tests, which run CommsThread without hardware.
+ * Answers the same protocol CommsThread speaks: "PROGRAM" -> "QX"+ACK, 0x02 -> 16-byte banner,
+ * 'R' -> 'W' reply frame, 'W' -> ACK, 'E' -> ACK (fills the range with 0xFF), "END" -> ACK.
+ * Every writeBytes call is treated as one complete command, which is how CommsThread sends them.
+ * <p>
+ * Memory is a sparse image of 4 KiB pages that read as 0xFF (erased flash) until written.
+ * Replies are delivered in order from a single timer thread, delayed by a fixed latency plus
+ * serialisation time at the configured bandwidth, split into USB-sized chunks; a configurable
+ * fraction of replies is dropped or has one byte corrupted.
+ * <p>
+ * Usage: {@code CommsThread.getObj().setTransport(new RadioSimulator(new RadioSimulator.Config()))}.
+ * Replies go to {@link CommsThread#enqueueIncoming} unless {@link #setReplySink} redirects them,
+ * e.g. to drive a codec without a comms thread.
+ */
+public class RadioSimulator implements RadioTransport {
+    public static final byte[] BANNER = {
+            (byte) 0x49, (byte) 0x44, (byte) 0x38, (byte) 0x37,
+            (byte) 0x38, (byte) 0x55, (byte) 0x56, (byte) 0x00,
+            (byte) 0x0E, (byte) 0x56, (byte) 0x31, (byte) 0x30,
+            (byte) 0x31, (byte) 0x00, (byte) 0x00, (byte) 0x06
+    };
+    private static final int PAGE = 0x1000;
+
+    private final Config cfg;
+    private final Map<Long, byte[]> pages = new HashMap<>();
+    private final ScheduledExecutorService wire = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "radio-sim");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Random rnd;
+    private final AtomicLong framesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private volatile java.util.function.Consumer<byte[]> replySink = CommsThread::enqueueIncoming;
+    private long lineFreeAtNanos; // when the simulated line finishes sending the previous reply
+    private boolean programMode;
+    private volatile boolean open = true;
+
+    public RadioSimulator(Config cfg) {
+        this.cfg = cfg == null ? new Config() : cfg;
+        this.rnd = new Random(this.cfg.seed);
+    }
+
+    // =====================================================================================
+    // Memory image
+    // =====================================================================================
+    public synchronized void poke(long addr, byte[] data) {
+        for (int i = 0; i < data.length; i++) page(addr + i, true)[(int) ((addr + i) % PAGE)] = data[i];
+    }
+
+    public synchronized byte[] peek(long addr, int len) {
+        byte[] out = new byte[len];
+        for (int i = 0; i < len; i++) {
+            byte[] p = page(addr + i, false);
+            out[i] = p == null ? (byte) 0xFF : p[(int) ((addr + i) % PAGE)];
+        }
+        return out;
+    }
+
+    private byte[] page(long addr, boolean create) {
+        long key = addr / PAGE;
+        byte[] p = pages.get(key);
+        if (p == null && create) {
+            p = new byte[PAGE];
+            Arrays.fill(p, (byte) 0xFF);
+            pages.put(key, p);
+        }
+        return p;
+    }
+
+    /**
+     * Receiver of reply chunks, called on the simulator's wire thread.
+     */
+    public void setReplySink(java.util.function.Consumer<byte[]> sink) {
+        replySink = sink;
+    }
+
+    public long getFramesIn() {
+        return framesIn.get();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    // =====================================================================================
+    // RadioTransport
+    // =====================================================================================
+    @Override
+    public synchronized void writeBytes(byte[] b) throws IOException {
+        if (!open) throw new IOException("Simulator closed");
+        framesIn.incrementAndGet();
+        if (!programMode) {
+            if (Arrays.equals(b, "PROGRAM".getBytes(StandardCharsets.US_ASCII))) {
+                programMode = true;
+                reply(new byte[]{'Q', 'X', AnytoneUart.ACK});
+            }
+            return;
+        }
+        if (b.length == 1 && b[0] == 0x02) {
+            reply(BANNER.clone());
+        } else if (Arrays.equals(b, "END".getBytes(StandardCharsets.US_ASCII))) {
+            programMode = false;
+            reply(new byte[]{AnytoneUart.ACK});
+        } else if (b.length == AnytoneUart.FRAME_HEADER_LEN && (b[0] == 'R' || b[0] == 'E')) {
+            long addr = address(b);
+            int len = b[5] & 0xFF;
+            if (checksum(b, 1, 5) != (b[6] & 0xFF)) return; // radio ignores bad requests
+            if (b[0] == 'E') {
+                byte[] ff = new byte[len];
+                Arrays.fill(ff, (byte) 0xFF);
+                poke(addr, ff);
+                reply(new byte[]{AnytoneUart.ACK});
+                return;
+            }
+            byte[] r = new byte[FrameCodec.replyLength(len)];
+            System.arraycopy(b, 1, r, 1, 5);
+            r[0] = 'W';
+            System.arraycopy(peek(addr, len), 0, r, 6, len);
+            r[6 + len] = (byte) checksum(r, 1, 5 + len);
+            r[7 + len] = AnytoneUart.ACK;
+            reply(r);
+        } else if (b.length >= AnytoneUart.FRAME_HEADER_LEN + 1 && b[0] == 'W') {
+            int len = b[5] & 0xFF;
+            if (b.length != len + AnytoneUart.FRAME_HEADER_LEN + 1) return;
+            if (checksum(b, 1, 5 + len) != (b[6 + len] & 0xFF)) return;
+            poke(address(b), Arrays.copyOfRange(b, 6, 6 + len));
+            reply(new byte[]{AnytoneUart.ACK});
+        }
+    }
+
+    @Override
+    public synchronized void restartPort() {
+        programMode = false;
+        open = true;
+    }
+
+    @Override
+    public String getDeviceKey() {
+        return cfg.deviceKey;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    public void close() {
+        open = false;
+        wire.shutdownNow();
+    }
+
+    // =====================================================================================
+    // Wire model
+    // =====================================================================================
+    private void reply(byte[] r) {
+        if (rnd.nextDouble() < cfg.dropRate) return;
+        if (rnd.nextDouble() < cfg.corruptRate) r[rnd.nextInt(r.length)] ^= (byte) (1 + rnd.nextInt(0xFF));
+        long now = System.nanoTime();
+        long start = Math.max(now + cfg.latencyMicros * 1_000L, lineFreeAtNanos);
+        long nanosPerByte = cfg.bytesPerSecond <= 0 ? 0 : 1_000_000_000L / cfg.bytesPerSecond;
+        int chunk = Math.max(1, cfg.usbChunk);
+        for (int off = 0; off < r.length; off += chunk) {
+            int n = Math.min(chunk, r.length - off);
+            byte[] part = Arrays.copyOfRange(r, off, off + n);
+            start += n * nanosPerByte;
+            wire.schedule(() -> {
+                bytesOut.addAndGet(part.length);
+                replySink.accept(part);
+            }, Math.max(0, start - now), TimeUnit.NANOSECONDS);
+        }
+        lineFreeAtNanos = start;
+    }
+
+    private static long address(byte[] b) {
+        return ((long) (b[1] & 0xFF) << 24) | ((b[2] & 0xFF) << 16) | ((b[3] & 0xFF) << 8) | (b[4] & 0xFF);
+    }
+
+    private static int checksum(byte[] b, int from, int count) {
+        int s = 0;
+        for (int i = from; i < from + count; i++) s += b[i] & 0xFF;
+        return s & 0xFF;
+    }
+
+    /**
+     * Link and fault model. Defaults approximate a 115200-baud cable with ~2 ms USB turnaround.
+     */
+    public static class Config {
+        public long latencyMicros = 2_000;     // request -> first reply byte
+        public int bytesPerSecond = 11_520;    // 115200 8N1
+        public int usbChunk = 64;              // bytes per USB bulk callback
+        public double dropRate = 0.0;          // fraction of replies never sent
+        public double corruptRate = 0.0;       // fraction of replies with one byte flipped
+        public long seed = 1;
+        public String deviceKey = "28e9:0189";
+    }
+}
@@ -0,0 +1,85 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Span planning: requests merge across a hole of up to 0x40 bytes and while the span stays
+ * within 0x2000 bytes, split beyond either limit, and each request gets its own slice back.
+ */
+public class ReadPlannerTest {
+    private static final ReadPlanner.Sink NONE = (a, buf, off, len) -> {
+    };
+
+    @Test
+    public void mergesAcrossGapUpToLimit() {
+        List<ReadPlanner.Span> spans = new ReadPlanner().add(0x1000, 0x10, NONE).add(0x1050, 0x10, NONE).plan();
+        assertEquals(1, spans.size());
+        assertEquals(0x60, spans.get(0).length());
+
+        spans = new ReadPlanner().add(0x1000, 0x10, NONE).add(0x1051, 0x10, NONE).plan();
+        assertEquals(2, spans.size());
+        assertEquals(0x1051, spans.get(1).addr);
+    }
+
+    @Test
+    public void splitsAtSpanLimit() {
+        List<ReadPlanner.Span> spans = new ReadPlanner().add(0, 0x1000, NONE).add(0x1000, 0x1000, NONE).plan();
+        assertEquals(1, spans.size());
+        assertEquals(0x2000, spans.get(0).length());
+
+        spans = new ReadPlanner().add(0, 0x1000, NONE).add(0x1000, 0x1000, NONE).add(0x2000, 1, NONE).plan();
+        assertEquals(2, spans.size());
+        assertEquals(0x2000, spans.get(1).addr);
+        assertEquals(1, spans.get(1).length());
+    }
+
+    @Test
+    public void rejectsRequestLargerThanSpan() {
+        ReadPlanner p = new ReadPlanner();
+        p.add(0, ReadPlanner.DEFAULT_MAX_SPAN, NONE);
+        try {
+            p.add(0, ReadPlanner.DEFAULT_MAX_SPAN + 1, NONE);
+            fail("oversized request accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            p.add(0, 0, NONE);
+            fail("empty request accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(1, p.requestCount());
+    }
+
+    @Test
+    public void unsortedAndOverlappingRequestsGetTheirSlices() throws Exception {
+        byte[][] got = new byte[3][];
+        ReadPlanner p = new ReadPlanner()
+                .add(0x120, 0x20, (a, buf, off, len) -> got[0] = java.util.Arrays.copyOfRange(buf, off, off + len))
+                .add(0x100, 0x30, (a, buf, off, len) -> got[1] = java.util.Arrays.copyOfRange(buf, off, off + len))
+                .add(0x110, 0x08, (a, buf, off, len) -> got[2] = java.util.Arrays.copyOfRange(buf, off, off + len));
+        List<ReadPlanner.Span> spans = p.plan();
+        assertEquals(1, spans.size());
+        ReadPlanner.Span s = spans.get(0);
+        assertEquals(0x100, s.addr);
+        assertEquals(0x40, s.length());
+
+        byte[] buf = new byte[s.length()];
+        for (int i = 0; i < buf.length; i++) buf[i] = (byte) (0x100 + i);
+        s.dispatch(buf);
+        assertArrayEquals(slice(0x120, 0x20), got[0]);
+        assertArrayEquals(slice(0x100, 0x30), got[1]);
+        assertArrayEquals(slice(0x110, 0x08), got[2]);
+    }
+
+    private static byte[] slice(int addr, int len) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) b[i] = (byte) (addr + i);
+        return b;
+    }
+}
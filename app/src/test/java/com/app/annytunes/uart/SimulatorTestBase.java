@@ -0,0 +1,93 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertTrue;
+
+import com.app.annytunes.uart.channels.ChannelIo;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Connects the CommsThread singleton to a fresh {@link RadioSimulator} in PC mode for each test,
+ * with its own codeplug image directory so no test sees another's cache. CommsThread logs through
+ * android.util.Log and reaches for the activity singletons; the unit-test android.jar returns
+ * defaults for the former and the latter throw until an activity exists, which CommsThread
+ * already tolerates.
+ */
+public abstract class SimulatorTestBase {
+    private static int connections;
+
+    protected RadioSimulator.Config cfg;
+    protected RadioSimulator sim;
+    protected CommsThread comms;
+    protected File storeDir;
+
+    /**
+     * Link model for the test; defaults to a fast, fault-free line.
+     */
+    protected RadioSimulator.Config config() {
+        RadioSimulator.Config c = new RadioSimulator.Config();
+        c.bytesPerSecond = 200_000;
+        c.latencyMicros = 500;
+        return c;
+    }
+
+    @Before
+    public void connect() throws Exception {
+        storeDir = Files.createTempDirectory("annytunes-test").toFile();
+        CodeplugImage.setStoreDir(storeDir);
+        new ChannelIo();
+        cfg = config();
+        cfg.deviceKey = "sim:" + (++connections); // fresh frame-size negotiation per test
+        sim = new RadioSimulator(cfg);
+        comms = CommsThread.getObj();
+        comms.setTransport(sim);
+        comms.setReadWindow(4);
+        comms.setWriteWindow(8);
+        comms.setImageCacheEnabled(false); // tests that exercise the cache turn it on
+        comms.enterPcMode();
+        comms.handshake();
+    }
+
+    @After
+    public void disconnect() {
+        comms.setTransport(null);
+        sim.close();
+        CodeplugImage.setStoreDir(null);
+        deleteTree(storeDir);
+    }
+
+    protected void awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!comms.isQueueEmpty()) {
+            assertTrue("comms thread still busy after " + timeoutMs + " ms", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Reads {@code len} bytes through a one-request plan, as every download does.
+     */
+    protected byte[] readThroughComms(long addr, int len) throws Exception {
+        byte[] out = new byte[len];
+        comms.submitPlan(new ReadPlanner().add(addr, len, (a, buf, off, n) -> System.arraycopy(buf, off, out, 0, n)));
+        awaitIdle(60_000);
+        return out;
+    }
+
+    protected static byte[] random(int len, long seed) {
+        byte[] b = new byte[len];
+        new java.util.Random(seed).nextBytes(b);
+        return b;
+    }
+
+    private static void deleteTree(File f) {
+        if (f == null) return;
+        File[] kids = f.listFiles();
+        if (kids != null) for (File k : kids) deleteTree(k);
+        if (!f.delete() && f.exists()) System.err.println("could not delete " + f);
+    }
+}
@@ -0,0 +1,68 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Lane order with memory order per address: edits and reads jump unrelated work but never an
+ * earlier pending write to the same bytes, parked writes included.
+ */
+public class TaskLanesTest {
+    private final TaskLanes<E> lanes = new TaskLanes<>();
+
+    private static final class E extends TaskLanes.Entry {
+        E(boolean writes, long addr, int len) {
+            super(writes, new long[]{addr, addr + len});
+        }
+    }
+
+    @Test
+    public void editJumpsReadsAndUnrelatedWrites() throws Exception {
+        E bulk = new E(true, 0x1000, 0x100);
+        E read = new E(false, 0x2000, 0x100);
+        E edit = new E(true, 0x3000, 0x40);
+        lanes.put(TaskLanes.Lane.WRITE, bulk);
+        lanes.put(TaskLanes.Lane.CHANNEL_READ, read);
+        lanes.put(TaskLanes.Lane.INTERACTIVE, edit);
+        assertTrue(lanes.hasUrgent());
+        assertSame(edit, lanes.take());
+        assertSame(read, lanes.take());
+        assertSame(bulk, lanes.take());
+    }
+
+    @Test
+    public void editWaitsForEarlierOverlappingWrite() throws Exception {
+        E bulk = new E(true, 0x1000, 0x100);
+        E edit = new E(true, 0x1040, 0x40);
+        lanes.put(TaskLanes.Lane.WRITE, bulk);
+        lanes.put(TaskLanes.Lane.INTERACTIVE, edit);
+        assertFalse(lanes.hasUrgent());
+        assertSame(bulk, lanes.take());
+        assertNull("cut-in while the bulk write runs", lanes.pollUrgent());
+        lanes.done(bulk);
+        assertTrue(lanes.hasUrgent());
+        assertSame(edit, lanes.pollUrgent());
+    }
+
+    @Test
+    public void readWaitsForParkedWrite() throws Exception {
+        E bulk = new E(true, 0x1000, 0x100);
+        E read = new E(false, 0x10F0, 0x20);
+        E other = new E(false, 0x4000, 0x20);
+        lanes.put(TaskLanes.Lane.WRITE, bulk);
+        lanes.put(TaskLanes.Lane.CHANNEL_READ, read);
+        lanes.put(TaskLanes.Lane.ZONE_READ, other);
+        assertSame(other, lanes.take());
+        assertSame(bulk, lanes.take()); // fails and is parked: still pending
+        lanes.put(TaskLanes.Lane.FINAL, new E(false, 0, 0));
+        assertFalse(lanes.otherReadWaiting(TaskLanes.Lane.ZONE_READ));
+        lanes.putFirst(TaskLanes.Lane.WRITE, bulk); // resumed
+        assertSame(bulk, lanes.take());
+        lanes.done(bulk);
+        assertSame(read, lanes.take());
+    }
+}
@@ -0,0 +1,97 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Sessions over a lossy link: a write that runs out of retries suspends with its task parked
+ * and resumes from the first unacknowledged frame, and no commit goes out meanwhile; cancel stops
+ * a long write promptly; a failure resume cannot fix ends the session; a checkpoint left behind
+ * is reported at the next start.
+ */
+public class TransferSessionTest extends SimulatorTestBase {
+    private static final long AREA = 0x00840000L;
+
+    @Test
+    public void suspendedWriteResumesAndCompletes() throws Exception {
+        byte[] data = random(0x8000, 5);
+        cfg.dropRate = 0.2;
+        TransferSession s = comms.beginSession("test");
+        comms.submitWrite(AREA, data, s);
+        awaitIdle(300_000);
+        assertEquals(TransferSession.State.SUSPENDED, s.getState());
+        assertTrue(comms.hasSuspendedSessions());
+        assertNotNull(s.getLastError());
+        assertNotNull(comms.describeIncompleteUpload());
+        try {
+            comms.commitWriteSync();
+            fail("committed over a suspended upload");
+        } catch (IOException expected) {
+        }
+
+        cfg.dropRate = 0;
+        comms.enterPcMode();
+        comms.resumeSuspended();
+        awaitIdle(60_000);
+        assertEquals(TransferSession.State.DONE, s.getState());
+        assertFalse(comms.hasSuspendedSessions());
+        assertArrayEquals(data, sim.peek(AREA, data.length));
+        assertNull(comms.describeIncompleteUpload());
+        comms.commitWriteSync();
+    }
+
+    @Test
+    public void cancelStopsLongWrite() throws Exception {
+        byte[] data = random(0x40000, 6);
+        cfg.latencyMicros = 5_000; // the write must still be running when cancel arrives
+        TransferSession s = comms.beginSession("cancel");
+        comms.submitWrite(AREA, data, s);
+        Thread.sleep(200);
+        s.cancel();
+        long t0 = System.nanoTime();
+        awaitIdle(10_000);
+        assertEquals(TransferSession.State.CANCELLED, s.getState());
+        assertTrue("drain took too long", System.nanoTime() - t0 < 2_000_000_000L);
+        assertTrue(s.getDoneBytes() < data.length);
+    }
+
+    @Test
+    public void failureThatCannotResumeEndsTheSession() throws Exception {
+        TransferSession s = comms.beginSession("decode");
+        int[] delivered = new int[1];
+        comms.submitPlan(new ReadPlanner().add(AREA, 0x100, (a, buf, off, n) -> {
+            throw new IllegalStateException("bad record");
+        }), s);
+        comms.submitPlan(new ReadPlanner().add(AREA + 0x1000, 0x100, (a, buf, off, n) -> delivered[0]++), s);
+        awaitIdle(10_000);
+        s.awaitBacklog(0); // returns instead of waiting for a resume that cannot come
+        assertEquals(TransferSession.State.FAILED, s.getState());
+        assertEquals(0, s.getPendingTasks());
+        assertEquals("task after the failure still ran", 0, delivered[0]);
+        assertFalse(comms.hasSuspendedSessions());
+    }
+
+    @Test
+    public void leftoverCheckpointIsReportedOnce() {
+        TransferSession s = comms.beginSession("upload");
+        s.checkpoint(AREA, 0x100);
+        s.setState(TransferSession.State.SUSPENDED, new IOException("no ACK"));
+        TransferSession.loadInterrupted();
+        List<String> found = TransferSession.takeInterrupted();
+        assertEquals(1, found.size());
+        assertTrue(found.get(0), found.get(0).startsWith("upload was suspended at 0x00840000 after 256 bytes"));
+        assertTrue(TransferSession.takeInterrupted().isEmpty());
+        TransferSession.loadInterrupted();
+        assertTrue("checkpoint file not removed", TransferSession.takeInterrupted().isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.app.annytunes.uart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.app.annytunes.uart.channels.ChannelView;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * With no activity open, every batch reaches the fallback sink exactly once and in order, and a
+ * burst of requests collapses into a handful of flushes.
+ */
+public class UiDispatcherTest {
+
+    @Test
+    public void batchesFallBackInOrderWithoutDuplicates() throws Exception {
+        List<ChannelView> got = new ArrayList<>();
+        int[] flushes = {0};
+        UiDispatcher ui = new UiDispatcher(v -> {
+            synchronized (got) {
+                got.addAll(v);
+                flushes[0]++;
+                got.notifyAll();
+            }
+        });
+        int banks = 200, perBank = 4;
+        List<ChannelView> sent = new ArrayList<>();
+        for (int b = 0; b < banks; b++) {
+            List<ChannelView> bank = ChannelView.wrapBank(new byte[perBank * 64], 0, perBank, 64);
+            sent.addAll(bank);
+            ui.channels(bank, (b + 1) * perBank, banks * perBank);
+        }
+        synchronized (got) {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (got.size() < sent.size() && System.currentTimeMillis() < deadline) got.wait(100);
+        }
+        Thread.sleep(100); // a stray extra flush would show up here
+        synchronized (got) {
+            assertEquals(sent.size(), got.size());
+            for (int i = 0; i < sent.size(); i++) assertTrue("slot " + i, sent.get(i) == got.get(i));
+            assertTrue("flushes=" + flushes[0], flushes[0] <= 4);
+        }
+    }
+}
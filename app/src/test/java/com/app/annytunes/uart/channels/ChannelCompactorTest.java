@@ -0,0 +1,147 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.app.annytunes.uart.Bank;
+import com.app.annytunes.uart.SimulatorTestBase;
+import com.app.annytunes.uart.TransferSession;
+import com.app.annytunes.uart.zonelistchannels.ZoneChannels;
+import com.app.annytunes.uart.zonelistchannels.ZoneChannelsIo;
+import com.app.annytunes.uart.zonelistchannels.ZoneMembership;
+import com.app.annytunes.uart.zones.ZoneIo;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compaction on the simulator: occupied slots move down in order with their raw bytes (an
+ * unmodelled byte included), an edited record keeps its edit, the tail is emptied and zone
+ * memberships follow the renumbering, in the index only once the upload is done. Nothing is
+ * moved while a channel has a scan list.
+ */
+public class ChannelCompactorTest extends SimulatorTestBase {
+    private static final int SPARE = 0x3F; // a record byte the codec does not model
+
+    @Test
+    public void compactsAndRenumbersZones() throws Exception {
+        ChannelIo io = ChannelIo.getObj();
+        int total = io.getTotalChannels();
+        boolean[] used = new boolean[total + 1];
+        for (int ch = 1; ch <= total; ch++) {
+            byte[] rec = new byte[ChannelIo.CH_OFFSET];
+            if (ch % 7 == 0 || (ch > 2000 && ch < 2100)) {
+                used[ch] = true;
+                Channel x = new Channel();
+                x.name = "C" + ch;
+                x.rxHz = 145_000_000L + ch * 12_500L;
+                x.txHz = x.rxHz;
+                rec = io.encodeChannel(x, ChannelIo.CH_OFFSET);
+                rec[SPARE] = (byte) (1 + ch % 0x7F);
+            }
+            sim.poke(io.channelIndexToAddress(ch), rec);
+        }
+        for (int z = 1; z <= ZoneIo.getTotalZones(); z++) {
+            byte[] name = new byte[ZoneIo.DEFAULT_ZONE_RECORD_SIZE];
+            int[] members = new int[0];
+            if (z <= 20) {
+                byte[] s = ("Z" + z).getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+                System.arraycopy(s, 0, name, 0, s.length);
+                members = new int[]{z * 7, 2050 + z, 3}; // 3 is empty: a dangling member
+            }
+            sim.poke(ZoneIo.addressOfZone(z), name);
+            sim.poke(ZoneChannelsIo.addressOf(z), ZoneChannelsIo.encode(new ZoneChannels(z, members)));
+        }
+        io.readAllChannelsAsync();
+        awaitIdle(300_000);
+
+        ChannelViewList list = new ChannelViewList();
+        for (int b = 0; b < io.getBankCount(); b++) {
+            Bank bank = io.getBank(b);
+            byte[] slab = sim.peek(bank.address, bank.channels * ChannelIo.CH_OFFSET);
+            list.addViews(ChannelView.wrapBank(slab, 0, bank.channels, ChannelIo.CH_OFFSET));
+        }
+        Channel edited = list.get(6); // slot 7 stays put; its edit must still be written
+        edited.name = "EDITED";
+        edited.edited = true;
+        Map<String, byte[]> byName = new HashMap<>();
+        for (int ch = 1; ch <= total; ch++)
+            if (used[ch]) byName.put(ch == 7 ? "EDITED" : "C" + ch, peek(io, ch));
+
+        ChannelCompactor.Result r = ChannelCompactor.compact(list);
+        awaitIdle(300_000);
+        assertEquals(byName.size(), r.channels);
+        assertTrue(r.moved > 0);
+        assertNotNull(r.session);
+        assertEquals(TransferSession.State.DONE, r.session.getState());
+
+        for (int ch = 1; ch <= total; ch++) {
+            byte[] rec = peek(io, ch);
+            if (ch > r.channels) {
+                assertTrue("slot " + ch + " not emptied", io.isEmptyRecord(rec, 0, ChannelIo.CH_OFFSET));
+                continue;
+            }
+            Channel d = io.decodeChannel(rec, 0, ChannelIo.CH_OFFSET);
+            byte[] expect = byName.get(d.name);
+            assertNotNull("slot " + ch + " holds unknown " + d.name, expect);
+            if (!"EDITED".equals(d.name)) assertArrayEquals("slot " + ch, expect, rec);
+            assertEquals("spare byte of slot " + ch, expect[SPARE], rec[SPARE]);
+        }
+        assertEquals("EDITED", r.list.nameAt(0));
+        assertTrue(r.list.view(r.channels).isEmpty());
+
+        for (int z = 1; z <= 20; z++) {
+            int[] m = ZoneChannelsIo.decodeChannels(sim.peek(ZoneChannelsIo.addressOf(z), ZoneChannelsIo.RECORD_SIZE),
+                    0, ZoneChannelsIo.RECORD_SIZE);
+            assertEquals("zone " + z + " members", 2, m.length);
+            assertEquals("C" + (z * 7), nameAt(io, m[0], z * 7 == 7));
+            assertEquals("C" + (2050 + z), nameAt(io, m[1], false));
+            assertArrayEquals("index of zone " + z, m, ZoneMembership.getObj().channels(z));
+        }
+
+        assertNull("second pass should find nothing to move", ChannelCompactor.compact(r.list).session);
+    }
+
+    @Test
+    public void refusesWhileScanListAssigned() throws Exception {
+        ChannelIo io = ChannelIo.getObj();
+        int total = io.getTotalChannels();
+        byte[] slab = new byte[total * ChannelIo.CH_OFFSET];
+        for (int ch : new int[]{3, 10}) {
+            Channel x = new Channel();
+            x.name = "C" + ch;
+            x.rxHz = 145_000_000L + ch * 12_500L;
+            byte[] rec = io.encodeChannel(x, ChannelIo.CH_OFFSET);
+            if (ch == 10) rec[ChannelLayout.SCAN_LIST_OFF] = 2;
+            System.arraycopy(rec, 0, slab, (ch - 1) * ChannelIo.CH_OFFSET, rec.length);
+        }
+        ChannelViewList list = new ChannelViewList();
+        list.addViews(ChannelView.wrapBank(slab, 0, total, ChannelIo.CH_OFFSET));
+
+        long frames = sim.getFramesIn();
+        try {
+            ChannelCompactor.compact(list);
+            fail("compacted with a scan list assigned");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Channel 10"));
+        }
+        awaitIdle(60_000);
+        assertEquals("frames sent", frames, sim.getFramesIn());
+    }
+
+    private byte[] peek(ChannelIo io, int ch) {
+        return sim.peek(io.channelIndexToAddress(ch), ChannelIo.CH_OFFSET);
+    }
+
+    private String nameAt(ChannelIo io, int ch, boolean edited) {
+        String n = io.decodeChannel(peek(io, ch), 0, ChannelIo.CH_OFFSET).name;
+        return edited && "EDITED".equals(n) ? "C7" : n;
+    }
+}
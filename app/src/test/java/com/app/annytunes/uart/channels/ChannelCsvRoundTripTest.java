@@ -0,0 +1,152 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.app.annytunes.uart.Bank;
+import com.app.annytunes.uart.SimulatorTestBase;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Golden image round trip on the simulator: records are read through comms, exported to CSV
+ * and uploaded again, and the radio ends up holding exactly the golden bytes. With the assumed
+ * fields on the records cover all four channel types and bytes the codec does not model; with
+ * them off every byte outside the confirmed fields is the radio's and must come back untouched.
+ */
+public class ChannelCsvRoundTripTest extends SimulatorTestBase {
+    private static final int ROWS = 8;
+    private static final int SPARE = 0x3F; // a record byte the codec does not model
+    private static final int TYPE_BYTE = 0x08; // bits 2-5 are not modelled
+
+    @After
+    public void assumedFieldsOff() {
+        ChannelIo.getObj().setAssumedFieldsEnabled(false);
+    }
+
+    @Test
+    public void csvRoundTripRestoresGoldenImage() throws Exception {
+        comms.setImageCacheEnabled(true);
+        ChannelIo io = ChannelIo.getObj();
+        io.setAssumedFieldsEnabled(true);
+        byte[][] golden = new byte[ROWS + 1][];
+        for (int ch = 1; ch <= ROWS; ch++) {
+            byte[] rec = io.encodeChannel(golden(ch), ChannelIo.CH_OFFSET);
+            rec[SPARE] = (byte) (0x40 + ch);
+            rec[TYPE_BYTE] |= (byte) (ch << 2 & 0x3C);
+            golden[ch] = rec;
+            sim.poke(io.channelIndexToAddress(ch), rec);
+        }
+        io.readAllChannelsAsync();
+        awaitIdle(300_000);
+
+        Bank bank = io.getBank(0);
+        byte[] slab = readThroughComms(bank.address, bank.channels * ChannelIo.CH_OFFSET);
+        ChannelViewList list = new ChannelViewList();
+        list.addViews(ChannelView.wrapBank(slab, 0, bank.channels, ChannelIo.CH_OFFSET));
+        for (int ch = 1; ch <= ROWS; ch++) {
+            assertEquals("view type of " + ch, ch % 4, list.view(ch - 1).channelType());
+            assertEquals("decoded type of " + ch, ch % 4, list.get(ch - 1).channelType);
+        }
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        CsvChannelExporter.write(list, csv, true);
+        String text = new String(csv.toByteArray(), StandardCharsets.UTF_8);
+        for (String label : Channel.TYPE_LABELS) assertTrue("no " + label + " in export", text.contains("\"" + label + "\""));
+
+        // Scramble every modelled field on the radio; only the upload can bring them back
+        for (int ch = 1; ch <= ROWS; ch++) {
+            byte[] rec = io.encodeChannel(new Channel(), ChannelIo.CH_OFFSET);
+            rec[SPARE] = golden[ch][SPARE];
+            sim.poke(io.channelIndexToAddress(ch), rec);
+        }
+        CsvChannelImporter.Result r = CsvChannelImporter.upload(new StringReader(text), true);
+        awaitIdle(300_000);
+        assertEquals(bank.channels, r.rows);
+        assertEquals(0, r.unresolvedContacts);
+        for (int ch = 1; ch <= ROWS; ch++)
+            assertArrayEquals("slot " + ch, golden[ch], sim.peek(io.channelIndexToAddress(ch), ChannelIo.CH_OFFSET));
+        assertTrue(io.isEmptyRecord(sim.peek(io.channelIndexToAddress(ROWS + 1), ChannelIo.CH_OFFSET), 0, ChannelIo.CH_OFFSET));
+    }
+
+    @Test
+    public void uploadKeepsBytesOutsideConfirmedFields() throws Exception {
+        comms.setImageCacheEnabled(true);
+        ChannelIo io = ChannelIo.getObj();
+        byte[][] expect = new byte[ROWS + 1][];
+        StringBuilder csv = new StringBuilder(CsvChannelUtil.header()).append('\n');
+        for (int ch = 1; ch <= ROWS; ch++) {
+            byte[] rec = random(ChannelIo.CH_OFFSET, ch);
+            ChannelLayout.encode(golden(ch), rec, 0);
+            sim.poke(io.channelIndexToAddress(ch), rec);
+            Channel edit = golden(ch + 40);
+            expect[ch] = rec.clone();
+            ChannelLayout.encode(edit, expect[ch], 0);
+            csv.append(confirmedRow(edit)).append('\n');
+        }
+        io.readAllChannelsAsync();
+        awaitIdle(300_000);
+        assertEquals(Channel.TYPE_UNKNOWN, io.decodeChannel(expect[1], 0, ChannelIo.CH_OFFSET).channelType);
+
+        CsvChannelImporter.Result r = CsvChannelImporter.upload(new StringReader(csv.toString()), false);
+        awaitIdle(300_000);
+        assertEquals(ROWS, r.rows);
+        for (int ch = 1; ch <= ROWS; ch++)
+            assertArrayEquals("slot " + ch, expect[ch], sim.peek(io.channelIndexToAddress(ch), ChannelIo.CH_OFFSET));
+    }
+
+    // Only the confirmed columns filled in, every other one left blank
+    private static String confirmedRow(Channel c) {
+        String[] cells = new String[CsvChannelImporter.COLUMNS];
+        java.util.Arrays.fill(cells, "");
+        cells[1] = c.name;
+        cells[2] = String.format(java.util.Locale.ROOT, "%.5f", c.rxHz / 1e6);
+        cells[3] = String.format(java.util.Locale.ROOT, "%.5f", c.txHz / 1e6);
+        cells[5] = CsvChannelUtil.powerLabel(c.power);
+        cells[6] = c.bandwidthKHz >= 25.0 ? "25K" : "12.5K";
+        cells[9] = Integer.toString(c.contactId);
+        cells[11] = Integer.toString(c.radioIdIndex);
+        cells[12] = c.admit;
+        cells[19] = Integer.toString(c.colorCode);
+        cells[20] = Integer.toString(c.timeslot);
+        StringBuilder b = new StringBuilder();
+        for (String v : cells) b.append(b.length() == 0 ? "" : ",").append('"').append(v).append('"');
+        return b.toString();
+    }
+
+    private static Channel golden(int ch) {
+        Channel c = new Channel();
+        c.name = "GOLD" + ch;
+        c.channelType = ch % 4;
+        c.rxHz = 438_000_000L + ch * 12_500L;
+        c.txHz = ch % 2 == 0 ? c.rxHz - 7_600_000L : c.rxHz;
+        c.power = ch % 4;
+        c.bandwidthKHz = ch % 2 == 0 ? 25.0 : 12.5;
+        c.colorCode = ch;
+        c.txColorCode = 15 - ch;
+        c.timeslot = ch % 2 == 0 ? 2 : 1;
+        c.contactId = ch == 1 ? 0 : 3100 + ch; // not in the (empty) talk-group list
+        c.radioIdIndex = ch;
+        c.admit = "CC Free";
+        c.ctcssDecode = ch % 2 == 0 ? "88.5" : "D023N";
+        c.ctcssEncode = ch % 2 == 0 ? "D754I" : "Off";
+        c.contactCallType = "Private Call";
+        c.squelchMode = "CTCSS/DCS";
+        c.scanList = Integer.toString(ch);
+        c.pttProhibit = ch % 3 == 0;
+        c.talkAround = ch % 2 == 1;
+        c.aprsRx = true;
+        c.customCtcss = "251.1";
+        c.correctFrequencyHz = -ch * 10L;
+        c.dmrMode = "Repeater";
+        c.slotSuit = "On";
+        c.anaAprsTxPath = Integer.toString(200 + ch);
+        return c;
+    }
+}
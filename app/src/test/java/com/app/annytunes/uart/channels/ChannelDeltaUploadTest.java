@@ -0,0 +1,55 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.app.annytunes.uart.SimulatorTestBase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Once the radio image is known, an upload writes only the records that changed.
+ */
+public class ChannelDeltaUploadTest extends SimulatorTestBase {
+
+    @Test
+    public void onlyChangedRecordsAreWritten() throws Exception {
+        ChannelIo io = ChannelIo.getObj();
+        List<Channel> list = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Channel ch = new Channel();
+            ch.name = "CH" + i;
+            ch.rxHz = 430_000_000L + i * 12_500L;
+            ch.txHz = ch.rxHz;
+            ch.timeslot = 1;
+            list.add(ch);
+        }
+        io.writeAllChannels(list, true);
+        awaitIdle(120_000);
+        io.readAllChannelsAsync();
+        awaitIdle(300_000);
+
+        list.get(150).name = "EDITED";
+        list.remove(299);
+        long f0 = sim.getFramesIn();
+        io.writeAllChannels(list);
+        awaitIdle(60_000);
+        long frames = sim.getFramesIn() - f0;
+        assertTrue("delta upload sent " + frames + " frames", frames <= 8);
+
+        assertEquals("EDITED", decode(io, 151).name);
+        assertTrue(io.isEmptyRecord(sim.peek(io.channelIndexToAddress(300), ChannelIo.CH_OFFSET), 0, ChannelIo.CH_OFFSET));
+
+        f0 = sim.getFramesIn();
+        io.writeAllChannels(list);
+        awaitIdle(60_000);
+        assertEquals("unchanged list rewrote something", 0, sim.getFramesIn() - f0);
+    }
+
+    private Channel decode(ChannelIo io, int ch) {
+        return io.decodeChannel(sim.peek(io.channelIndexToAddress(ch), ChannelIo.CH_OFFSET), 0, ChannelIo.CH_OFFSET);
+    }
+}
@@ -0,0 +1,138 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.app.annytunes.uart.Bank;
+import com.app.annytunes.uart.SimulatorTestBase;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The channel-used bitmap on the simulator: a download skips the slots it marks empty, an
+ * upload leaves it matching the records (bits past the last channel kept), and a single-slot
+ * edit made while an upload is queued is not overwritten by the upload's older bitmap.
+ */
+public class ChannelOccupancyTest extends SimulatorTestBase {
+    private static final int TAIL = 500; // bitmap byte past the last channel
+
+    @Test
+    public void downloadSkipsEmptySlotsAndUploadKeepsBitmap() throws Exception {
+        ChannelIo io = ChannelIo.getObj();
+        int total = io.getTotalChannels();
+        byte[] map = seed(io, total);
+        sim.poke(ChannelIo.OCCUPANCY_ADDR, map);
+
+        long f0 = sim.getFramesIn();
+        List<Channel> got = download(io, total);
+        long frames = sim.getFramesIn() - f0;
+        assertEquals(total, got.size());
+        assertTrue("skipped " + io.getSkippedSlots().length, io.getSkippedSlots().length > total / 2);
+        for (int ch = 1; ch <= total; ch++) {
+            Channel c = got.get(ch - 1);
+            if (used(ch)) assertEquals("C" + ch, c.name);
+            else assertEquals("slot " + ch, 0, c.rxHz);
+        }
+
+        sim.poke(ChannelIo.OCCUPANCY_ADDR, new byte[map.length]); // all clear: read everything
+        f0 = sim.getFramesIn();
+        assertEquals(total, download(io, total).size());
+        assertTrue("bitmap saved nothing", frames < sim.getFramesIn() - f0);
+        sim.poke(ChannelIo.OCCUPANCY_ADDR, map);
+        download(io, total);
+
+        // Move channel 2000 to 3000: the bitmap follows, the tail byte survives
+        Channel moved = got.get(1999);
+        got.set(1999, new Channel());
+        got.set(2999, moved);
+        io.writeAllChannels(got, false);
+        awaitIdle(300_000);
+        byte[] now = sim.peek(ChannelIo.OCCUPANCY_ADDR, map.length);
+        assertTrue(bit(now, 1));
+        assertFalse(bit(now, 2000));
+        assertTrue(bit(now, 3000));
+        assertEquals(map[TAIL], now[TAIL]);
+    }
+
+    @Test
+    public void editDuringUploadKeepsItsBit() throws Exception {
+        ChannelIo io = ChannelIo.getObj();
+        int total = io.getTotalChannels();
+        byte[] map = seed(io, total);
+        sim.poke(ChannelIo.OCCUPANCY_ADDR, map);
+        download(io, total);
+
+        Bank first = io.getBank(0);
+        int slot = first.channels; // last slot of bank 0, left empty by the upload
+        Channel edit = new Channel();
+        edit.name = "EDIT";
+        edit.rxHz = edit.txHz = 446_000_000L;
+        byte[] rec = io.encodeChannel(edit, ChannelIo.CH_OFFSET);
+        io.writeChannels(false, up -> {
+            for (int i = 0; i < first.channels - 1; i++) up.put(channel(i + 1));
+            up.put(null); // bank 0 is queued here
+            try {
+                comms.submitInteractiveWrite(io.channelIndexToAddress(slot), rec);
+            } catch (InterruptedException e) {
+                throw new java.io.InterruptedIOException();
+            }
+            io.updateOccupancy(slot, rec);
+            for (int i = first.channels; i < 300; i++) up.put(channel(i + 1));
+        });
+        awaitIdle(300_000);
+
+        assertEquals("EDIT", io.decodeChannel(sim.peek(io.channelIndexToAddress(slot), ChannelIo.CH_OFFSET), 0, ChannelIo.CH_OFFSET).name);
+        byte[] now = sim.peek(ChannelIo.OCCUPANCY_ADDR, map.length);
+        assertTrue("edited slot lost its bit", bit(now, slot));
+        assertTrue(bit(now, 300));
+        assertFalse(bit(now, 301));
+        assertEquals(map[TAIL], now[TAIL]);
+    }
+
+    private static boolean used(int ch) {
+        return ch <= 100 || (ch >= 400 && ch < 420) || (ch >= 1300 && ch < 1330) || ch == 2000;
+    }
+
+    private static Channel channel(int ch) {
+        Channel x = new Channel();
+        x.name = "C" + ch;
+        x.rxHz = 145_000_000L + ch * 12_500L;
+        x.txHz = x.rxHz;
+        return x;
+    }
+
+    // Records for the used slots, empty ones elsewhere; returns the matching bitmap
+    private byte[] seed(ChannelIo io, int total) {
+        byte[] map = new byte[0x200];
+        map[TAIL] = 3;
+        for (int ch = 1; ch <= total; ch++) {
+            byte[] rec = new byte[ChannelIo.CH_OFFSET];
+            if (used(ch)) {
+                rec = io.encodeChannel(channel(ch), ChannelIo.CH_OFFSET);
+                map[(ch - 1) >> 3] |= (byte) (1 << ((ch - 1) & 7));
+            }
+            sim.poke(io.channelIndexToAddress(ch), rec);
+        }
+        return map;
+    }
+
+    // No channel screen is open, so the decoded channels queue up for pollUndeliveredChannels;
+    // whatever earlier reads left there is dropped first
+    private List<Channel> download(ChannelIo io, int total) throws Exception {
+        while (comms.pollUndeliveredChannels(0) != null) ;
+        io.readAllChannelsAsync();
+        List<Channel> out = new ArrayList<>(total);
+        List<Channel> batch;
+        while (out.size() < total && (batch = comms.pollUndeliveredChannels(30_000)) != null) out.addAll(batch);
+        awaitIdle(60_000);
+        return out;
+    }
+
+    private static boolean bit(byte[] map, int ch) {
+        return (map[(ch - 1) >> 3] & (1 << ((ch - 1) & 7))) != 0;
+    }
+}
@@ -0,0 +1,113 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The word-wise empty-slot check agrees with ChannelIo's per-byte one, views decode the record
+ * they sit on, and ChannelViewList decodes a slot once and keeps its edits out of snapshots.
+ */
+public class ChannelViewTest {
+    private static final int REC = ChannelIo.CH_OFFSET;
+    private ChannelIo io;
+
+    @Before
+    public void setUp() {
+        new ChannelIo();
+        io = ChannelIo.getObj();
+    }
+
+    @Test
+    public void emptySlotCheckAgreesWithChannelIo() {
+        byte[] zeros = new byte[REC];
+        byte[] ones = new byte[REC];
+        Arrays.fill(ones, (byte) 0xFF);
+        byte[] nameOnly = new byte[REC];
+        nameOnly[0x23] = 'N';
+        byte[] rxOnly = new byte[REC];
+        ChannelIo.hz_to_bcd4(145_500_000L, rxOnly, 0);
+        byte[] settingsOnly = new byte[REC]; // no name, no RX: still an empty slot
+        settingsOnly[0x20] = 2;
+        byte[] oneClear = ones.clone();
+        oneClear[0x3F] = 0;
+        for (byte[] rec : new byte[][]{zeros, ones, nameOnly, rxOnly, settingsOnly, oneClear}) assertAgree(rec);
+        assertTrue(view(zeros).isEmpty());
+        assertTrue(view(ones).isEmpty());
+        assertFalse(view(nameOnly).isEmpty());
+        assertTrue(view(settingsOnly).isEmpty());
+
+        Random rnd = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            byte[] rec = new byte[REC];
+            if (i % 2 == 0) rnd.nextBytes(rec);
+            else rec[rnd.nextInt(REC)] = (byte) rnd.nextInt(256);
+            assertAgree(rec);
+        }
+    }
+
+    @Test
+    public void viewDecodesItsRecord() {
+        Channel c = new Channel();
+        c.name = "VIEW";
+        c.rxHz = 438_500_000L;
+        c.txHz = 430_900_000L;
+        c.colorCode = 7;
+        c.timeslot = 2;
+        byte[] slab = new byte[3 * REC];
+        System.arraycopy(io.encodeChannel(c, REC), 0, slab, REC, REC);
+        List<ChannelView> vs = ChannelView.wrapBank(slab, 0, 3, REC);
+        assertTrue(vs.get(0).isEmpty());
+        ChannelView v = vs.get(1);
+        assertEquals("VIEW", v.name());
+        assertEquals(c.rxHz, v.rxHz());
+        assertEquals(c.txHz, v.txHz());
+        assertEquals(7, v.colorCode());
+        assertEquals(2, v.timeslot());
+        assertEquals("", vs.get(2).name());
+    }
+
+    @Test
+    public void listDecodesOnceAndSnapshotsWithoutEdits() {
+        Channel c = new Channel();
+        c.name = "A";
+        c.rxHz = c.txHz = 145_000_000L;
+        byte[] slab = new byte[2 * REC];
+        System.arraycopy(io.encodeChannel(c, REC), 0, slab, 0, REC);
+        ChannelViewList list = new ChannelViewList();
+        list.addViews(ChannelView.wrapBank(slab, 0, 2, REC));
+
+        assertEquals("A", list.nameAt(0));
+        assertNull("nameAt decoded the slot", list.loaded(0));
+        Channel first = list.get(0);
+        assertSame(first, list.get(0));
+        first.name = "B";
+        first.edited = true;
+        assertEquals("B", list.nameAt(0));
+        assertTrue(list.isEdited(0));
+        assertFalse(list.isEdited(1));
+
+        ChannelViewList snap = list.snapshot();
+        assertEquals("A", snap.nameAt(0));
+        assertFalse(snap.isEdited(0));
+        assertSame(list.view(1), snap.view(1));
+    }
+
+    private void assertAgree(byte[] rec) {
+        assertEquals(Arrays.toString(rec), io.isEmptyRecord(rec, 0, REC), ChannelView.isEmptySlot(ByteBuffer.wrap(rec), 0, REC));
+    }
+
+    private static ChannelView view(byte[] rec) {
+        return ChannelView.wrapBank(rec, 0, 1, REC).get(0);
+    }
+}
@@ -0,0 +1,167 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The buffered exporter writes the same rows as the String-building row() it replaced
+ * ({@link #legacyRow}): frequencies rounded like %.5f including exact ties at hz % 10 == 5,
+ * empty frequencies blank, quotes doubled, non-ASCII text as UTF-8 across buffer flushes.
+ */
+public class CsvChannelExporterTest {
+
+    @Test
+    public void rowsMatchLegacyFormat() {
+        long[] freqs = {0, 5, 145_000_005L, 145_999_995L, 438_012_345L, 438_012_355L, 446_006_250L,
+                999_999_995L, 1_240_000_015L, 144_800_000L};
+        int i = 0;
+        for (long rx : freqs) {
+            for (long tx : new long[]{0, rx, rx - 600_005L}) {
+                Channel c = sample(++i);
+                c.rxHz = rx;
+                c.txHz = tx;
+                assertEquals("rx " + rx + " tx " + tx, legacyRow(c, i), CsvChannelUtil.row(c, i));
+            }
+        }
+        Random rnd = new Random(20);
+        for (int n = 0; n < 2000; n++) {
+            Channel c = sample(n);
+            c.rxHz = 100_000_000L + rnd.nextInt(900_000_000);
+            c.txHz = rnd.nextBoolean() ? c.rxHz : c.rxHz + rnd.nextInt(20_000_000) - 10_000_000;
+            assertEquals(legacyRow(c, -1), CsvChannelUtil.row(c));
+        }
+    }
+
+    @Test
+    public void quotingAndEmptyCells() {
+        Channel c = new Channel();
+        c.name = "Say \"hi\", ok";
+        c.contactName = "\"";
+        c.admit = ",";
+        c.scanList = "";
+        assertEquals(legacyRow(c, 3), CsvChannelUtil.row(c, 3));
+        assertEquals(legacyRow(new Channel(), -1), CsvChannelUtil.row(null));
+    }
+
+    @Test
+    public void fileMatchesLegacyAcrossBufferFlushes() throws Exception {
+        List<Channel> list = new ArrayList<>();
+        StringBuilder expect = new StringBuilder(CsvChannelUtil.header()).append('\n');
+        for (int n = 1; n <= 600; n++) {
+            Channel c = sample(n);
+            c.name = n % 3 == 0 ? "Zürich ☎ " + n : n % 3 == 1 ? "Test 📡" + n : "Q\"" + n;
+            c.rxHz = 430_000_000L + n * 12_505L;
+            c.txHz = c.rxHz - 7_600_000L;
+            list.add(c);
+            expect.append(legacyRow(c, n)).append('\n');
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvChannelExporter.write(list, out, true);
+        assertEquals(expect.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static Channel sample(int n) {
+        Channel c = new Channel();
+        c.name = "CH" + n;
+        c.channelType = n % 4;
+        c.power = n % 5;
+        c.bandwidthKHz = new double[]{0, 12.5, 25.0, 6.25}[n % 4];
+        c.ctcssDecode = n % 2 == 0 ? "88.5" : null;
+        c.ctcssEncode = "D023N";
+        c.contactName = n % 3 == 0 ? "" : "TG " + n;
+        c.radioIdIndex = n % 7;
+        c.admit = "CC Free";
+        c.colorCode = n % 16;
+        c.timeslot = 1 + n % 2;
+        c.scanList = Integer.toString(n % 9);
+        c.pttProhibit = n % 2 == 0;
+        c.aprsRx = n % 3 == 0;
+        c.correctFrequencyHz = n % 2 == 0 ? -n * 10L : n;
+        c.txColorCode = 15 - n % 16;
+        return c;
+    }
+
+    // row() as it read before the buffered exporter. The power and bandwidth labels are still
+    // CsvChannelUtil's; the channel type column moved from Digital/Analog to the CPS labels
+    private static String legacyRow(Channel c, int index) {
+        if (c == null) c = new Channel();
+        StringBuilder sb = new StringBuilder();
+        java.util.function.Consumer<String> q = (v) -> {
+            sb.append('"').append(v == null ? "" : v.replace("\"", "\"\"")).append('"').append(',');
+        };
+        java.util.function.Consumer<Boolean> qb = (b) -> q.accept(b ? "Yes" : "No");
+        java.util.function.Consumer<Long> ql = (l) -> q.accept(l <= 0 ? "" : String.format(Locale.ROOT, "%.5f", l / 1_000_000.0));
+        java.util.function.Consumer<Integer> qi = (i) -> q.accept(Integer.toString(i));
+        q.accept(index > 0 ? Integer.toString(index) : "");
+        q.accept(c.name);
+        ql.accept(c.rxHz);
+        ql.accept(c.txHz);
+        q.accept(CsvChannelUtil.typeLabel(c.channelType));
+        q.accept(CsvChannelUtil.powerLabel(c.power));
+        q.accept(CsvChannelUtil.fmtBandwidth(c.bandwidthKHz));
+        q.accept(c.ctcssDecode);
+        q.accept(c.ctcssEncode);
+        q.accept(c.contactName);
+        q.accept(c.contactCallType);
+        qi.accept(c.radioIdIndex);
+        q.accept(c.admit);
+        q.accept(c.squelchMode);
+        q.accept(c.optionalSignal);
+        q.accept(c.dtmfId);
+        q.accept(c.twoToneId);
+        q.accept(c.fiveToneId);
+        q.accept(c.pttId);
+        qi.accept(c.colorCode);
+        qi.accept(c.timeslot);
+        q.accept(c.scanList);
+        q.accept(c.receiveGroupList);
+        qb.accept(c.pttProhibit);
+        qb.accept(c.reverse);
+        q.accept(c.idleTx);
+        q.accept(c.slotSuit);
+        qb.accept(c.aesDigitalEncryption);
+        qb.accept(c.digitalEncryption);
+        qb.accept(c.callConfirmation);
+        qb.accept(c.talkAround);
+        qb.accept(c.workAlone);
+        q.accept(c.customCtcss);
+        q.accept(c.twoToneDecode);
+        qb.accept(c.ranging);
+        qb.accept(c.throughMode);
+        qb.accept(c.aprsRx);
+        q.accept(c.analogAprsPttMode);
+        q.accept(c.digitalAprsPttMode);
+        q.accept(c.aprsReportType);
+        q.accept(c.digitalAprsReportChannel);
+        q.accept(Long.toString(c.correctFrequencyHz));
+        qb.accept(c.smsConfirmation);
+        qb.accept(c.excludeFromRoaming);
+        q.accept(c.dmrMode);
+        qb.accept(c.dataAckDisable);
+        q.accept(c.r5ToneBot);
+        q.accept(c.r5ToneEot);
+        qb.accept(c.autoScan);
+        qb.accept(c.anaAprsMute);
+        qb.accept(c.sendTalkerAlias);
+        q.accept(c.anaAprsTxPath);
+        qb.accept(c.arc4);
+        q.accept(c.exEmgKind);
+        q.accept(c.idle_tx);
+        qb.accept(c.compand);
+        qb.accept(c.disturEn);
+        q.accept(c.disturFreq);
+        q.accept(c.rpgaMdc);
+        qb.accept(c.dmrCrcIgnore);
+        qi.accept(c.txColorCode);
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.app.annytunes.uart.channels;
+
+import static org.junit.Assert.assertEquals;
+
+import com.app.annytunes.uart.SimulatorTestBase;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+/**
+ * CSV upload over a radio that was read first: a contact name the talk-group list cannot
+ * resolve keeps the radio's contact for that slot, a bare number is taken as the ID, and
+ * empty cells keep the radio's settings.
+ */
+public class CsvChannelImporterTest extends SimulatorTestBase {
+
+    @Test
+    public void unresolvedContactKeepsRadioValue() throws Exception {
+        comms.setImageCacheEnabled(true);
+        ChannelIo io = ChannelIo.getObj();
+        for (int ch = 1; ch <= 2; ch++) {
+            Channel c = new Channel();
+            c.name = "OLD" + ch;
+            c.rxHz = c.txHz = 438_000_000L;
+            c.channelType = Channel.TYPE_DIGITAL;
+            c.contactId = 0x1234 + ch;
+            c.radioIdIndex = 5;
+            c.colorCode = 7;
+            c.timeslot = 1;
+            c.admit = "CC Free";
+            sim.poke(io.channelIndexToAddress(ch), io.encodeChannel(c, ChannelIo.CH_OFFSET));
+        }
+        io.readAllChannelsAsync();
+        awaitIdle(300_000);
+
+        String csv = CsvChannelUtil.header() + "\n"
+                + "\"1\",\"NEW1\",\"438.00000\",\"438.00000\",\"Digital\",\"High\",\"12.5K\",\"Off\",\"Off\",\"No Such TG\"\n"
+                + "\"2\",\"NEW2\",\"438.00000\",\"438.00000\",\"Digital\",\"High\",\"12.5K\",\"Off\",\"Off\",\"9990\"\n";
+        CsvChannelImporter.Result r = CsvChannelImporter.upload(new StringReader(csv), false);
+        awaitIdle(60_000);
+        assertEquals(2, r.rows);
+        assertEquals(1, r.unresolvedContacts);
+
+        Channel one = decode(io, 1);
+        assertEquals("NEW1", one.name);
+        assertEquals(0x1235, one.contactId);
+        assertEquals(9990, decode(io, 2).contactId);
+        // Columns left empty keep what the radio had
+        assertEquals(2, one.power);
+        assertEquals(5, one.radioIdIndex);
+        assertEquals(7, one.colorCode);
+        assertEquals(1, one.timeslot);
+        assertEquals("CC Free", one.admit);
+    }
+
+    private Channel decode(ChannelIo io, int ch) {
+        return io.decodeChannel(sim.peek(io.channelIndexToAddress(ch), ChannelIo.CH_OFFSET), 0, ChannelIo.CH_OFFSET);
+    }
+}
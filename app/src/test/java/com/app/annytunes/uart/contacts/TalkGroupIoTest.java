@@ -0,0 +1,67 @@
+package com.app.annytunes.uart.contacts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.app.annytunes.uart.SimulatorTestBase;
+import com.app.annytunes.uart.channels.ChannelIo;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Talk-group records decode from the assumed layout, erased slots read as empty, and a channel
+ * download reads the list once per connection rather than on every download.
+ */
+public class TalkGroupIoTest extends SimulatorTestBase {
+
+    @Test
+    public void decodesRecordAndEmptySlots() {
+        byte[] rec = record(2622, "Local", TalkGroup.CALL_PRIVATE);
+        rec[0x27] = 1;
+        TalkGroup t = TalkGroupIo.decode(rec, 0);
+        assertEquals(2622, t.id);
+        assertEquals("Local", t.name);
+        assertEquals(TalkGroup.CALL_PRIVATE, t.callType);
+        assertEquals(1, t.callAlert);
+
+        byte[] erased = new byte[TalkGroupIo.RECORD_SIZE];
+        java.util.Arrays.fill(erased, (byte) 0xFF);
+        assertNull(TalkGroupIo.decode(erased, 0));
+        assertNull(TalkGroupIo.decode(new byte[TalkGroupIo.RECORD_SIZE], 0));
+    }
+
+    @Test
+    public void listIsReadOncePerConnection() throws Exception {
+        sim.poke(TalkGroupIo.addressOf(0), record(91, "World", TalkGroup.CALL_GROUP));
+        download();
+        assertEquals("World", TalkGroupIo.index().nameOf(91));
+
+        sim.poke(TalkGroupIo.addressOf(0), record(91, "Renamed", TalkGroup.CALL_GROUP));
+        download();
+        assertEquals("list read again on the same connection", "World", TalkGroupIo.index().nameOf(91));
+
+        comms.enterPcMode();
+        comms.handshake();
+        download();
+        assertEquals("Renamed", TalkGroupIo.index().nameOf(91));
+    }
+
+    private void download() throws Exception {
+        ChannelIo.getObj().readAllChannelsAsync();
+        awaitIdle(300_000);
+        while (comms.pollUndeliveredChannels(0) != null) ;
+    }
+
+    private static byte[] record(int id, String name, int callType) {
+        byte[] rec = new byte[TalkGroupIo.RECORD_SIZE];
+        rec[0] = (byte) callType;
+        byte[] n = name.getBytes(StandardCharsets.ISO_8859_1);
+        System.arraycopy(n, 0, rec, 0x01, n.length);
+        String digits = String.format("%08d", id);
+        for (int i = 0; i < 4; i++)
+            rec[0x23 + i] = (byte) ((digits.charAt(2 * i) - '0') << 4 | (digits.charAt(2 * i + 1) - '0'));
+        return rec;
+    }
+}
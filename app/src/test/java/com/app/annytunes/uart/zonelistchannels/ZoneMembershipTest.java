@@ -0,0 +1,93 @@
+package com.app.annytunes.uart.zonelistchannels;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Randomised check of the bitset index against a plain list-per-zone model: add/remove,
+ * renumbering after channel moves and deletes, and the channel-to-zones map.
+ */
+public class ZoneMembershipTest {
+    private static final int ZONES = 250;
+    private static final int CHANNELS = ZoneMembership.MAX_CHANNELS;
+
+    private final ZoneMembership m = ZoneMembership.getObj();
+    private final List<List<Integer>> model = new ArrayList<>();
+    private final Random r = new Random(9);
+
+    @Before
+    public void fill() {
+        m.clear();
+        for (int z = 1; z <= ZONES; z++) {
+            int n = r.nextInt(250);
+            int[] ch = new int[n];
+            for (int k = 0; k < n; k++) ch[k] = 1 + r.nextInt(CHANNELS);
+            m.set(z, ch);
+            List<Integer> l = new ArrayList<>();
+            for (int c : ch) if (!l.contains(c)) l.add(c);
+            model.add(l);
+        }
+    }
+
+    @Test
+    public void addAndRemoveMatchModel() {
+        for (int i = 0; i < 5000; i++) {
+            int z = 1 + r.nextInt(ZONES), c = 1 + r.nextInt(CHANNELS);
+            List<Integer> l = model.get(z - 1);
+            if (r.nextBoolean()) {
+                boolean expect = !l.contains(c);
+                if (expect) l.add(c);
+                assertEquals("add " + z + "/" + c, expect, m.add(z, c));
+            } else {
+                assertEquals("remove " + z + "/" + c, l.remove((Integer) c), m.remove(z, c));
+            }
+        }
+        assertMatchesModel();
+    }
+
+    @Test
+    public void renumberAndDeleteMatchModel() {
+        boolean[] gone = new boolean[CHANNELS + 1];
+        for (int i = 0; i < 300; i++) gone[1 + r.nextInt(CHANNELS)] = true;
+        int[] map = new int[CHANNELS + 1];
+        for (int c = 1, next = 1; c <= CHANNELS; c++) map[c] = gone[c] ? 0 : next++;
+
+        int[] touched = m.renumber(map);
+        assertTrue(touched.length > 0);
+        for (List<Integer> l : model) {
+            List<Integer> moved = new ArrayList<>();
+            for (int c : l) if (map[c] != 0 && !moved.contains(map[c])) moved.add(map[c]);
+            l.clear();
+            l.addAll(moved);
+        }
+        assertMatchesModel();
+
+        int victim = model.get(0).isEmpty() ? 1 : model.get(0).get(0);
+        m.delete(victim);
+        for (List<Integer> l : model) l.remove((Integer) victim);
+        assertMatchesModel();
+    }
+
+    private void assertMatchesModel() {
+        for (int z = 1; z <= ZONES; z++)
+            assertArrayEquals("zone " + z, toArray(model.get(z - 1)), m.channels(z));
+        for (int c = 1; c <= CHANNELS; c++) {
+            List<Integer> zones = new ArrayList<>();
+            for (int z = 1; z <= ZONES; z++) if (model.get(z - 1).contains(c)) zones.add(z);
+            assertArrayEquals("channel " + c, toArray(zones), m.zonesOf(c));
+            assertEquals(!zones.isEmpty(), m.inAnyZone(c));
+        }
+    }
+
+    private static int[] toArray(List<Integer> l) {
+        return l.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
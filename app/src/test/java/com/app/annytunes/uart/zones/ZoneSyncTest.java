@@ -0,0 +1,91 @@
+package com.app.annytunes.uart.zones;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.app.annytunes.uart.ReadPlanner;
+import com.app.annytunes.uart.SimulatorTestBase;
+import com.app.annytunes.uart.zonelistchannels.ZoneChannels;
+import com.app.annytunes.uart.zonelistchannels.ZoneChannelsIo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zone write-back on the simulator: only the dirty name records and membership blocks change,
+ * neighbouring dirty blocks share a write up to the span cap, the flags are cleared, and a
+ * second sync sends nothing.
+ */
+public class ZoneSyncTest extends SimulatorTestBase {
+    private static final int ZONES = ZoneIo.getTotalZones();
+    private static final int NAME_TABLE = ZONES * ZoneIo.DEFAULT_ZONE_RECORD_SIZE;
+    private static final int MEMBER_TABLE = ZONES * ZoneChannelsIo.RECORD_STRIDE;
+
+    @Test
+    public void writesOnlyDirtyRecords() throws Exception {
+        byte[] names = random(NAME_TABLE, 1);
+        byte[] members = random(MEMBER_TABLE, 2);
+        sim.poke(ZoneIo.addressOfZone(1), names);
+        sim.poke(ZoneChannelsIo.addressOf(1), members);
+        List<Zone> zones = zones();
+
+        rename(zones, 3, "Renamed", names);
+        for (int z : new int[]{7, 8, 200}) setMembers(zones, z, new int[]{z, z + 1, 4000}, members);
+        ZoneSync.Result r = ZoneSync.writeChanged(zones);
+        awaitIdle(60_000);
+        assertEquals(1, r.names);
+        assertEquals(3, r.memberships);
+        assertEquals("zones 7 and 8 share a write", 3, r.writes);
+        assertArrayEquals(names, sim.peek(ZoneIo.addressOfZone(1), NAME_TABLE));
+        assertArrayEquals(members, sim.peek(ZoneChannelsIo.addressOf(1), MEMBER_TABLE));
+        for (Zone z : zones) assertFalse(z.changedName || z.changedChannels);
+
+        long frames = sim.getFramesIn();
+        r = ZoneSync.writeChanged(zones);
+        awaitIdle(60_000);
+        assertEquals(0, r.writes);
+        assertEquals("second sync sent frames", frames, sim.getFramesIn());
+    }
+
+    @Test
+    public void longDirtyRunIsSplitAtSpanCap() throws Exception {
+        byte[] members = random(MEMBER_TABLE, 3);
+        sim.poke(ZoneChannelsIo.addressOf(1), members);
+        List<Zone> zones = zones();
+        int perWrite = ReadPlanner.DEFAULT_MAX_SPAN / ZoneChannelsIo.RECORD_STRIDE;
+        int run = perWrite + 4;
+        for (int z = 20; z < 20 + run; z++) setMembers(zones, z, new int[]{z}, members);
+
+        ZoneSync.Result r = ZoneSync.writeChanged(zones);
+        awaitIdle(60_000);
+        assertEquals(run, r.memberships);
+        assertEquals(2, r.writes);
+        assertArrayEquals(members, sim.peek(ZoneChannelsIo.addressOf(1), MEMBER_TABLE));
+    }
+
+    private static List<Zone> zones() {
+        List<Zone> zones = new ArrayList<>(ZONES);
+        for (int z = 1; z <= ZONES; z++) zones.add(new Zone("Z" + z, new int[0]));
+        return zones;
+    }
+
+    // Edit zone z (1-based) and apply the same change to the expected table
+    private static void rename(List<Zone> zones, int z, String name, byte[] names) {
+        Zone zone = zones.get(z - 1);
+        zone.name = name;
+        zone.changedName = true;
+        byte[] rec = ZoneIo.encodeZone(zone, ZoneIo.DEFAULT_ZONE_RECORD_SIZE);
+        System.arraycopy(rec, 0, names, (z - 1) * ZoneIo.DEFAULT_ZONE_RECORD_SIZE, rec.length);
+    }
+
+    private static void setMembers(List<Zone> zones, int z, int[] channels, byte[] members) {
+        Zone zone = zones.get(z - 1);
+        zone.channelNumbers = channels;
+        zone.changedChannels = true;
+        byte[] rec = ZoneChannelsIo.encode(new ZoneChannels(z, channels));
+        System.arraycopy(rec, 0, members, (z - 1) * ZoneChannelsIo.RECORD_STRIDE, rec.length);
+    }
+}